@@ -2,22 +2,31 @@ package gr.kgdev.beer.core;
 
 import java.io.IOException;
 import java.io.Writer;
+import java.nio.ByteBuffer;
 import java.nio.charset.Charset;
 import java.time.Duration;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Collection;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.UUID;
-import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.function.Consumer;
 
 import org.apache.commons.lang3.exception.ExceptionUtils;
 import org.eclipse.jetty.ee11.servlet.DefaultServlet;
 import org.eclipse.jetty.ee11.servlet.FilterHolder;
+import org.eclipse.jetty.ee11.servlet.Holder;
 import org.eclipse.jetty.ee11.servlet.ServletContextHandler;
 import org.eclipse.jetty.ee11.servlet.ServletHolder;
+import org.eclipse.jetty.ee11.websocket.server.JettyServerUpgradeRequest;
+import org.eclipse.jetty.ee11.websocket.server.JettyServerUpgradeResponse;
 import org.eclipse.jetty.ee11.websocket.server.JettyWebSocketServlet;
 import org.eclipse.jetty.ee11.websocket.server.JettyWebSocketServletFactory;
 import org.eclipse.jetty.ee11.websocket.server.config.JettyWebSocketServletContainerInitializer;
@@ -29,17 +38,25 @@ import org.eclipse.jetty.server.Server;
 import org.eclipse.jetty.server.ServerConnector;
 import org.eclipse.jetty.server.SslConnectionFactory;
 import org.eclipse.jetty.server.handler.ErrorHandler;
+import org.eclipse.jetty.util.component.LifeCycle;
 import org.eclipse.jetty.util.resource.ResourceFactory;
 import org.eclipse.jetty.util.ssl.SslContextFactory;
 import org.eclipse.jetty.util.thread.QueuedThreadPool;
+import org.eclipse.jetty.websocket.api.ExtensionConfig;
 import org.eclipse.jetty.websocket.api.Session;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import gr.kgdev.beer.model.BroadcastMessage;
+import gr.kgdev.beer.model.BroadcastMessage.Target;
+import gr.kgdev.beer.model.BroadcastResult;
+import gr.kgdev.beer.model.RawJson;
 import gr.kgdev.beer.model.SimpleErrorMessage;
 import gr.kgdev.beer.model.SimpleMessage;
 import gr.kgdev.beer.model.exceptions.BadRequestException;
 import gr.kgdev.beer.model.exceptions.ForbiddenException;
+import gr.kgdev.beer.model.exceptions.NotFoundException;
+import gr.kgdev.beer.model.exceptions.PayloadTooLargeException;
 import gr.kgdev.beer.model.exceptions.UnauthorizedException;
 import gr.kgdev.beer.utils.BeerUtils;
 import jakarta.servlet.Filter;
@@ -62,21 +79,31 @@ import jakarta.servlet.http.HttpServletResponse;
  *
  * <p>
  * Internally, {@code Beer} dynamically creates and registers Jetty servlets
- * per route group and resolves requests in a deterministic order:
- * exact routes, wildcard routes, and parameterized routes.
+ * per route group and resolves requests through a compiled {@link BeerRouter}
+ * in a deterministic, most specific first order: exact routes, then static
+ * segments over parameter segments over wildcards at every level.
  */
 public class Beer {
 
 	public static final String PATH_PREFIX = "path:";
+	private static final String DISPATCHER_SERVLET_NAME = "beer-dispatcher";
+	private static final String STATIC_SERVLET_NAME = "beer-static";
 	private ServletContextHandler context;
 	private Server server;
 	private final Map<String, Map<String, RequestHandler>> routes = new HashMap<>();
 	private final Map<String, Map<String, RequestHandler>> wildcardRoutes = new HashMap<>();
 	private final Map<String, Map<String, RequestHandler>> pathParamRoutes = new HashMap<>();
-	private final Map<String, List<Session>> socketSessionsRoutesMap = new ConcurrentHashMap<>();
+	private volatile BeerRouter router;
+	private final BeerSocketRegistry socketRegistry = new BeerSocketRegistry();
+	private BeerSocketHeartbeat socketHeartbeat;
+	private final String nodeId = UUID.randomUUID().toString();
+	private final AtomicLong broadcastSequence = new AtomicLong();
+	private final BeerBroadcastDeduplicator broadcastDeduplicator = new BeerBroadcastDeduplicator();
 	private final Handler.Sequence handlers = new Handler.Sequence();
 	private BeerConfig config;
+	private BeerVirtualThreadExecutor virtualThreadExecutor;
 	private String staticFilePath = "";
+	private boolean staticFilesEnabled = false;
 	private Logger logger = LoggerFactory.getLogger(Beer.class);
 
 	/**
@@ -89,8 +116,21 @@ public class Beer {
 		var threadPool = new QueuedThreadPool(config.getJettyMaxThreads(), config.getJettyMinThreads(),
 				config.getJettyIdleTimeout());
 
+		if (Boolean.TRUE.equals(config.getVirtualThreadsEnabled())) {
+			virtualThreadExecutor = new BeerVirtualThreadExecutor(config.getVirtualThreadsMaxConcurrency(),
+					Boolean.TRUE.equals(config.getVirtualThreadsMetricsEnabled()));
+			threadPool.setVirtualThreadsExecutor(virtualThreadExecutor);
+		}
+
 		this.config = config;
 		this.server = new Server(threadPool);
+		BeerUtils.setJsonValidationEnabled(Boolean.TRUE.equals(config.getJsonValidationEnabled()));
+		BeerUtils.setJsonCodec(config.getJsonCodec());
+		BeerUtils.setMaxBodySize(config.getMaxBodySize());
+
+		if (virtualThreadExecutor != null) {
+			server.addBean(virtualThreadExecutor);
+		}
 
 		ServerConnector connector;
 		
@@ -126,6 +166,11 @@ public class Beer {
 		
 		 JettyWebSocketServletContainerInitializer.configure(context, null);
 
+		if (isSingleDispatcher()) {
+			// one servlet owns routing for every path, websocket and static servlets keep their own mappings
+			context.addServlet(asyncSupported(new ServletHolder(DISPATCHER_SERVLET_NAME, createServlet())), "/*");
+		}
+
 		handlers.addHandler(context);
 	}
 
@@ -142,33 +187,244 @@ public class Beer {
 
 	/**
      * Registers a WebSocket endpoint at the given path with a message handler.
+     * Outbound queues use the {@link BeerSocketOptions} of the configuration.
      *
      * @param path the WebSocket route path
      * @param onMessage consumer for incoming messages
      */
-	@SuppressWarnings("serial")
 	public void socket(String path, Consumer<Object> onMessage) {
+		socket(path, null, onMessage);
+	}
+
+	/**
+     * Registers a WebSocket endpoint at the given path with a message handler
+     * and its own outbound queue settings.
+     *
+     * @param path the WebSocket route path
+     * @param options the outbound queue settings, {@code null} for the ones of the configuration
+     * @param onMessage consumer for incoming messages
+     */
+	public void socket(String path, BeerSocketOptions options, Consumer<Object> onMessage) {
+		socket(path, options, (session, message) -> onMessage.accept(message));
+	}
+
+	/**
+     * Registers a WebSocket endpoint at the given path with a handler that
+     * receives the sending {@link BeerSocketSession}.
+     *
+     * @param path the WebSocket route path
+     * @param handler the session aware handler
+     */
+	public void socket(String path, BeerSocketHandler handler) {
+		socket(path, null, handler);
+	}
+
+	/**
+     * Registers a WebSocket endpoint at the given path with a handler that
+     * receives the sending {@link BeerSocketSession}, and its own outbound
+     * queue settings.
+     * <p>
+     * Sessions are added to the {@link BeerSocketRegistry} when they connect,
+     * before {@link BeerSocketHandler#onOpen}, and removed when they close.
+     *
+     * @param path the WebSocket route path
+     * @param options the outbound queue settings, {@code null} for the ones of the configuration
+     * @param handler the session aware handler
+     */
+	@SuppressWarnings("serial")
+	public void socket(String path, BeerSocketOptions options, BeerSocketHandler handler) {
+		var socketOptions = socketOptions(options);
 		var websocketServlet = new JettyWebSocketServlet() {
-			@SuppressWarnings("unused")
 			@Override
 			protected void configure(JettyWebSocketServletFactory factory) {
-			    factory.setIdleTimeout(Duration.ZERO); // No timeout
-			    factory.setMaxTextMessageSize(1048576); // 1 mb
+				configureSocket(factory, socketOptions);
 				factory.addMapping(path,
-						(req, res) -> new BeerSocket(
+						(req, res) -> negotiateCompression(req, res, socketOptions, new BeerSocket(
+								session -> handler.onOpen(socketRegistry.register(path, session, socketOptions)),
+								(session, msg) -> {
+									var socketSession = socketRegistry.get(session);
+									if (socketSession != null) {
+										socketSession.touch();
+										handler.onMessage(socketSession, msg);
+									}
+								},
+								(session, payload) -> {
+									var socketSession = socketRegistry.get(session);
+									if (socketSession != null) {
+										socketSession.touch();
+										handler.onBinary(socketSession, payload);
+									}
+								},
 								session -> {
-									if (socketSessionsRoutesMap.get(path) == null) {
-										socketSessionsRoutesMap.put(path, new CopyOnWriteArrayList<>());
+									var socketSession = socketRegistry.get(session);
+									if (socketSession != null) {
+										socketSession.touch();
 									}
-									socketSessionsRoutesMap.get(path).add(session);
 								},
-								(session, msg) -> onMessage.accept(msg),
 								session -> {
-									socketSessionsRoutesMap.get(path).remove(session);
-								}));
+									var socketSession = socketRegistry.unregister(session);
+									if (socketSession != null) {
+										handler.onClose(socketSession);
+									}
+								})));
+			}
+		};
+		context.addServlet(new ServletHolder(websocketServlet), path);
+		scheduleHeartbeat(path, socketOptions);
+	}
+
+	/**
+     * Registers a WebSocket endpoint at the given path whose messages are
+     * decoded to a type before reaching the handler.
+     *
+     * @param <T> the message type
+     * @param path the WebSocket route path
+     * @param type the message class
+     * @param handler the typed message handler
+     */
+	public <T> void socket(String path, Class<T> type, BeerTypedSocketHandler<T> handler) {
+		socket(path, null, type, handler);
+	}
+
+	/**
+     * Registers a WebSocket endpoint at the given path whose messages are
+     * decoded to a type before reaching the handler, with its own settings.
+     * <p>
+     * Text messages are parsed from JSON straight into the type. Binary
+     * messages are decoded with the {@link BeerSocketCodec} of the options;
+     * without a codec the endpoint does not accept binary messages.
+     *
+     * @param <T> the message type
+     * @param path the WebSocket route path
+     * @param options the endpoint settings, {@code null} for the ones of the configuration
+     * @param type the message class
+     * @param handler the typed message handler
+     */
+	public <T> void socket(String path, BeerSocketOptions options, Class<T> type, BeerTypedSocketHandler<T> handler) {
+		var codec = socketOptions(options).getCodec();
+		socket(path, options, new BeerSocketHandler() {
+			@Override
+			public void onMessage(BeerSocketSession session, String message) {
+				handler.onMessage(session, BeerUtils.fromJson(message, type));
+			}
+
+			@Override
+			public void onBinary(BeerSocketSession session, ByteBuffer message) {
+				if (codec == null) {
+					BeerSocketHandler.super.onBinary(session, message);
+				} else {
+					handler.onMessage(session, codec.decode(message, type));
+				}
+			}
+
+			@Override
+			public void onOpen(BeerSocketSession session) {
+				handler.onOpen(session);
+			}
+
+			@Override
+			public void onClose(BeerSocketSession session) {
+				handler.onClose(session);
+			}
+		});
+	}
+
+	/**
+     * Registers a WebSocket endpoint at the given path that reads messages as
+     * streams, for payloads too large to aggregate in memory.
+     *
+     * @param path the WebSocket route path
+     * @param handler the streaming handler
+     */
+	public void streamingSocket(String path, BeerSocketStreamHandler handler) {
+		streamingSocket(path, null, handler);
+	}
+
+	/**
+     * Registers a WebSocket endpoint at the given path that reads messages as
+     * streams, with its own settings.
+     *
+     * @param path the WebSocket route path
+     * @param options the endpoint settings, {@code null} for the ones of the configuration
+     * @param handler the streaming handler
+     * @see BeerSocketStreamHandler
+     */
+	@SuppressWarnings("serial")
+	public void streamingSocket(String path, BeerSocketOptions options, BeerSocketStreamHandler handler) {
+		var socketOptions = socketOptions(options);
+		var websocketServlet = new JettyWebSocketServlet() {
+			@Override
+			protected void configure(JettyWebSocketServletFactory factory) {
+				configureSocket(factory, socketOptions);
+				factory.addMapping(path, (req, res) -> negotiateCompression(req, res, socketOptions,
+						new BeerStreamingSocket(path, socketOptions, handler, socketRegistry)));
 			}
 		};
 		context.addServlet(new ServletHolder(websocketServlet), path);
+		scheduleHeartbeat(path, socketOptions);
+	}
+
+	/**
+	 * Applies the connection settings of an endpoint.
+	 *
+	 * @param factory the WebSocket factory of the endpoint
+	 * @param options the endpoint settings
+	 */
+	private void configureSocket(JettyWebSocketServletFactory factory, BeerSocketOptions options) {
+		factory.setIdleTimeout(options.getIdleTimeout() != null ? options.getIdleTimeout() : Duration.ZERO);
+		if (options.getMaxTextMessageSize() != null) {
+			factory.setMaxTextMessageSize(options.getMaxTextMessageSize());
+		}
+		if (options.getMaxBinaryMessageSize() != null) {
+			factory.setMaxBinaryMessageSize(options.getMaxBinaryMessageSize());
+		}
+		if (options.getInputBufferSize() != null) {
+			factory.setInputBufferSize(options.getInputBufferSize());
+		}
+		if (options.getOutputBufferSize() != null) {
+			factory.setOutputBufferSize(options.getOutputBufferSize());
+		}
+	}
+
+	/**
+	 * Restricts the extensions accepted for a connection to the compression
+	 * settings of its endpoint. Does nothing with the default settings, which
+	 * leave the permessage-deflate negotiation to Jetty.
+	 *
+	 * @param req the upgrade request
+	 * @param res the upgrade response
+	 * @param options the endpoint settings
+	 * @param socket the endpoint instance to return
+	 * @return the endpoint instance
+	 */
+	private static Object negotiateCompression(JettyServerUpgradeRequest req, JettyServerUpgradeResponse res,
+			BeerSocketOptions options, Object socket) {
+		var enabled = !Boolean.FALSE.equals(options.getCompressionEnabled());
+		var contextTakeover = !Boolean.FALSE.equals(options.getCompressionContextTakeover());
+		if (enabled && contextTakeover) {
+			return socket;
+		}
+
+		var extensions = new ArrayList<ExtensionConfig>();
+		var deflate = false;
+		for (var extension : req.getExtensions()) {
+			if (!"permessage-deflate".equals(extension.getName())) {
+				extensions.add(extension);
+			} else if (enabled && !deflate) {
+				// one accepted offer, compressing every message on its own in both directions
+				extensions.add(ExtensionConfig.parse("permessage-deflate; server_no_context_takeover; client_no_context_takeover"));
+				deflate = true;
+			}
+		}
+		res.setExtensions(extensions);
+		return socket;
+	}
+
+	private synchronized void scheduleHeartbeat(String path, BeerSocketOptions options) {
+		if (socketHeartbeat == null) {
+			socketHeartbeat = new BeerSocketHeartbeat(socketRegistry);
+		}
+		socketHeartbeat.schedule(path, options);
 	}
 
 
@@ -182,6 +438,16 @@ public class Beer {
 	}
 
 	
+	/**
+	 * Returns the executor running requests on virtual threads, exposing its
+	 * concurrency and pinning metrics.
+	 *
+	 * @return the virtual thread executor, or {@code null} if virtual threads are disabled
+	 */
+	public BeerVirtualThreadExecutor getVirtualThreadExecutor() {
+		return virtualThreadExecutor;
+	}
+
 	/**
 	 * Returns the ServletContextHandler used for route and filter registration.
 	 *
@@ -199,14 +465,18 @@ public class Beer {
 	 * (in order of precedence):
 	 * <ol>
 	 *   <li><b>Exact path match</b> (e.g. {@code /api/users})</li>
-	 *   <li><b>Wildcard match</b> (e.g. {@code /api/files/*})</li>
 	 *   <li><b>Path parameter match</b> (e.g. {@code /api/files/:fileId})</li>
+	 *   <li><b>Wildcard match</b>, longest prefix first (e.g. {@code /api/files/*}
+	 *   before {@code /api/*})</li>
 	 * </ol>
+	 * See {@link BeerRouter} for the exact precedence rules.
 	 *
 	 * <p>
 	 * Once a route is matched, the HTTP method (GET, POST, etc.) is used to
 	 * locate the appropriate {@link RequestHandler}. If found, the handler
-	 * is executed and its return value is written as a JSON response.
+	 * is executed and its return value is written as a JSON response. A
+	 * {@link CompletionStage} result is written once it completes, without
+	 * holding the request thread.
 	 *
 	 * <p>
 	 * Response behavior:
@@ -225,44 +495,32 @@ public class Beer {
 			protected void service(HttpServletRequest req, HttpServletResponse res)
 					throws ServletException, IOException {
 				var httpMethod = req.getMethod().toUpperCase();
-				res.setContentType("application/json");
-	
-				var reqURI = req.getRequestURI();
-	
-				// 1. Try exact match
-				var methodHandlers = routes.get(reqURI);
-	
-				// 2. If no exact match, try wildcard match
-				if (methodHandlers == null) {
-					for (var entry : wildcardRoutes.entrySet()) {
-						var wildcardPath = entry.getKey().substring(0, entry.getKey().length() - 1);
-						if (reqURI.startsWith(wildcardPath)) {
-							methodHandlers = entry.getValue();
-							break;
-						}
-					}
+				var match = router().match(req.getRequestURI());
+
+				// in single dispatcher mode unmatched requests fall through to static files
+				if (match == null && staticFilesEnabled && isSingleDispatcher()) {
+					getServletContext().getNamedDispatcher(STATIC_SERVLET_NAME).forward(req, res);
+					return;
 				}
+
+				res.setContentType("application/json");
 	
-				// 3. If no wildcard match, try param match
-				if (methodHandlers == null) {
-				    for (var entry : pathParamRoutes.entrySet()) {
-				        String pattern = entry.getKey(); // e.g. "/api/files/:fileid"
-				        if (matchesParamPattern(pattern, reqURI)) {
-				        	setAttributesForPathParams(pattern, req);
-				            methodHandlers = entry.getValue();
-				            break;
-				        }
-				    }
-				}
-				if (methodHandlers != null) {
-					var registeredHandler = methodHandlers.get(httpMethod);
+				if (match != null) {
+					var registeredHandler = match.getHandlers().get(httpMethod);
 					if (registeredHandler != null) {
+						// typed handlers take path parameters straight from the match
+						var bound = registeredHandler instanceof BeerBoundHandler b ? b : null;
+						if (bound == null) {
+							setAttributesForPathParams(match, httpMethod, req);
+						}
 						try {
-							var result = registeredHandler.handle(req, res);
+							// set before the handler runs, so handlers can pick another status (e.g. 206)
 							res.setStatus(200);
-							if (result != null) {
-								var payload = result instanceof String ? (String) result : BeerUtils.json(result);
-								res.getWriter().write(payload);
+							var result = bound != null ? bound.handle(req, res, match.getParamValues()) : registeredHandler.handle(req, res);
+							if (result instanceof CompletionStage<?> stage) {
+								completeAsync(req, res, stage);
+							} else if (result != null && !req.isAsyncStarted()) {
+								writeResult(res, result);
 							}
 							return;
 						} catch (Throwable e) {
@@ -283,8 +541,61 @@ public class Beer {
 	}
 
 	/**
-	 * Extracts path parameter values from the request URI and stores them
-	 * as request attributes.
+	 * Writes a handler result as the response body. Strings are written as
+	 * they are, or validated if JSON validation is enabled, {@link RawJson}, {@code byte[]} and {@code ByteBuffer}
+	 * results are copied to the response bytes as they are, anything else
+	 * is serialized straight into the response writer, whose output goes through the pooled buffers of Jetty and is
+	 * flushed to the client whenever the response buffer fills up.
+	 * {@code Stream}, {@code Iterator} and {@code Iterable} results are
+	 * written as JSON arrays while they are consumed.
+	 *
+	 * @see BeerUtils#writeJson(Object, Writer)
+	 */
+	private void writeResult(HttpServletResponse res, Object result) throws IOException {
+		if (result instanceof String str) {
+			// as is unless JSON validation is enabled
+			res.getWriter().write(BeerUtils.json(str));
+		} else if (result instanceof RawJson raw) {
+			res.getOutputStream().write(raw.getBytes());
+		} else if (result instanceof byte[] bytes) {
+			res.getOutputStream().write(bytes);
+		} else if (result instanceof ByteBuffer buffer) {
+			res.getOutputStream().write(buffer.slice());
+		} else {
+			BeerUtils.writeJson(result, res.getWriter());
+		}
+	}
+
+	/**
+	 * Writes the result of an asynchronous handler once it completes, without
+	 * holding the request thread meanwhile. Failures are answered like
+	 * synchronous ones, through {@link #handleException}.
+	 */
+	private void completeAsync(HttpServletRequest req, HttpServletResponse res, CompletionStage<?> stage) {
+		var asyncContext = req.isAsyncStarted() ? req.getAsyncContext() : req.startAsync();
+		stage.whenComplete((result, ex) -> {
+			try {
+				if (ex != null) {
+					var cause = ex instanceof CompletionException && ex.getCause() != null ? ex.getCause() : ex;
+					handleException(req, res, cause);
+				} else if (result != null) {
+					writeResult(res, result);
+				}
+			} catch (Exception e) {
+				logger.error(req.getMethod() + " " + req.getRequestURI() + " async response failed", e);
+			} finally {
+				try {
+					asyncContext.complete();
+				} catch (IllegalStateException e) {
+					// already completed, e.g. after an async timeout
+				}
+			}
+		});
+	}
+
+	/**
+	 * Stores the path parameter values captured by the router as request
+	 * attributes.
 	 * <p>
 	 * Path parameters are identified by segments in the route pattern
 	 * prefixed with {@code ':'}. Each extracted value is stored in the
@@ -295,71 +606,44 @@ public class Beer {
 	 * <pre>{@code
 	 * Pattern: /api/files/:fileId
 	 * URI:     /api/files/123
-	 * Result:  request attribute "path.fileId" = "123"
+	 * Result:  request attribute "path:fileId" = "123"
 	 * }</pre>
 	 *
-	 * <p>
-	 * If the pattern and request URI segment counts do not match,
-	 * no attributes are extracted.
-	 *
-	 * @param pattern the registered route pattern containing path parameters
+	 * @param match the route match holding the captured values
+	 * @param httpMethod the HTTP method of the handler serving the request
 	 * @param req the {@link HttpServletRequest} to store extracted values in
 	 */
-	private void setAttributesForPathParams(String pattern, HttpServletRequest req) {
-		var patternParts = pattern.split("/");
-		var uriParts = req.getRequestURI().split("/");
+	private void setAttributesForPathParams(BeerRouter.Match match, String httpMethod, HttpServletRequest req) {
+		var names = match.getParamNames(httpMethod);
+		if (names == null) {
+			return;
+		}
 		
-	    if (patternParts.length != uriParts.length) {
-	        // do not extract if mismatch
-	        return;
-	    }
-	    
-		for (var i = 0; i < patternParts.length; i++) {
-			if (patternParts[i].startsWith(":")) {
-				String paramName = patternParts[i].substring(1);
-				// store path param value in req
-				req.setAttribute(PATH_PREFIX + paramName, uriParts[i]);
-			}
+		var values = match.getParamValues();
+		for (var i = 0; i < names.length; i++) {
+			// store path param value in req
+			req.setAttribute(PATH_PREFIX + names[i], values[i]);
 		}
 	}
 	
 	/**
-	 * Determines whether a request URI matches a parameterized route pattern.
-	 * <p>
-	 * Static path segments must match exactly, while segments prefixed
-	 * with {@code ':'} are treated as wildcards that match any value.
+	 * Returns the compiled router, compiling it from the route tables if routes
+	 * have been added since it was last built.
 	 *
-	 * <p>
-	 * Example:
-	 * <pre>{@code
-	 * Pattern: /api/files/:fileId
-	 * URI:     /api/files/123     -> true
-	 * URI:     /api/files/abc     -> true
-	 * URI:     /api/users/123     -> false
-	 * }</pre>
-	 *
-	 * @param pattern the route pattern containing optional path parameters
-	 * @param uri the incoming request URI
-	 * @return {@code true} if the URI matches the pattern; {@code false} otherwise
+	 * @return the current {@link BeerRouter}
 	 */
-	private boolean matchesParamPattern(String pattern, String uri) {
-		var patternParts = pattern.split("/");
-		var uriParts = uri.split("/");
-
-		if (patternParts.length != uriParts.length) {
-			return false;
-		}
-
-		for (var i = 0; i < patternParts.length; i++) {
-			if (patternParts[i].startsWith(":")) {
-				continue; // matches anything
-			}
-			if (!patternParts[i].equals(uriParts[i])) {
-				return false;
+	private BeerRouter router() {
+		var current = router;
+		if (current == null) {
+			synchronized (this) {
+				current = router;
+				if (current == null) {
+					current = BeerRouter.compile(routes, wildcardRoutes, pathParamRoutes);
+					router = current;
+				}
 			}
 		}
-
-		return true;
+		return current;
 	}
 
 	/**
@@ -368,13 +652,15 @@ public class Beer {
 	 * The path is categorized into one of three routing types:
 	 * <ul>
 	 *   <li><b>Exact routes</b> – static paths with no parameters</li>
-	 *   <li><b>Wildcard routes</b> – paths ending with {@code *}</li>
+	 *   <li><b>Wildcard routes</b> – paths ending with a {@code /*} segment</li>
 	 *   <li><b>Parameterized routes</b> – paths containing {@code :param}</li>
 	 * </ul>
 	 *
 	 * <p>
 	 * When a new path is encountered, a servlet is created and registered
-	 * with the servlet context using a servlet-compatible mapping.
+	 * with the servlet context using a servlet-compatible mapping, unless
+	 * single dispatcher mode is enabled, in which case the dispatcher servlet
+	 * registered by {@link #init(BeerConfig)} serves the route.
 	 *
 	 * <p>
 	 * Attempting to register a handler on a path reserved for static
@@ -384,6 +670,8 @@ public class Beer {
 	 * @param path the route path
 	 * @param handler the {@link RequestHandler} responsible for processing requests
 	 * @throws IllegalStateException if the path conflicts with static file handling
+	 * @throws IllegalArgumentException if the path ends with a {@code *} that is
+	 *         not a whole segment, e.g. {@code /api*}
 	 */
 	private void add(String method, String path, RequestHandler handler) {
 	    method = method.toUpperCase();
@@ -395,6 +683,11 @@ public class Beer {
 	    boolean isWildcard = path.endsWith("*");
 	    boolean isParam = path.contains(":");
 
+	    if (isWildcard && !path.endsWith("/*")) {
+	        // a partial segment wildcard can neither be mapped to a servlet nor resolved as a prefix
+	        throw new IllegalArgumentException("Wildcard route '" + path + "' must end with a '/*' segment");
+	    }
+
 	    Map<String, Map<String, RequestHandler>> targetRoutes;
 
 	    if (isWildcard) {
@@ -405,11 +698,17 @@ public class Beer {
 	        targetRoutes = routes;
 	    }
 
-	    targetRoutes.computeIfAbsent(path, newPath -> {
-	        var servlet = createServlet();
-	        context.addServlet(new ServletHolder(servlet), pathToServletMapping(newPath));
-	        return new HashMap<>();
-	    }).put(method, handler);
+	    synchronized (this) {
+		    targetRoutes.computeIfAbsent(path, newPath -> {
+		    	if (!isSingleDispatcher()) {
+			        var servlet = createServlet();
+			        context.addServlet(asyncSupported(new ServletHolder(servlet)), pathToServletMapping(newPath));
+		    	}
+		        return new HashMap<>();
+		    }).put(method, handler);
+		    // invalidate compiled router, it is rebuilt on start or on next request
+		    router = null;
+	    }
 	}
 
 	/**
@@ -482,6 +781,191 @@ public class Beer {
 		add("DELETE", path, handler);
 	}
 
+	/**
+     * Registers a GET route handler taking a typed argument.
+     * <p>
+     * The argument is described by a {@link BeerParam}, compiled once here,
+     * e.g. {@code beer.get("/users/:id", path("id", long.class), id -> users.find(id))}.
+     * Path parameters of typed handlers are passed as arguments only, they
+     * are not stored as request attributes.
+     *
+     * @param <A> the argument type
+     * @param path the route path
+     * @param a the argument
+     * @param handler the typed request handler
+     * @throws IllegalArgumentException if a path parameter is not in the route or a type is not supported
+     */
+	public <A> void get(String path, BeerParam<A> a, TypedRequestHandler.Of1<A> handler) {
+		add("GET", path, BeerBoundHandler.bind(path, a, handler));
+	}
+
+	/**
+     * Registers a GET route handler taking two typed arguments.
+     *
+     * @param <A> the first argument type
+     * @param <B> the second argument type
+     * @param path the route path
+     * @param a the first argument
+     * @param b the second argument
+     * @param handler the typed request handler
+     * @see #get(String, BeerParam, TypedRequestHandler.Of1)
+     */
+	public <A, B> void get(String path, BeerParam<A> a, BeerParam<B> b, TypedRequestHandler.Of2<A, B> handler) {
+		add("GET", path, BeerBoundHandler.bind(path, a, b, handler));
+	}
+
+	/**
+     * Registers a GET route handler taking three typed arguments.
+     *
+     * @param <A> the first argument type
+     * @param <B> the second argument type
+     * @param <C> the third argument type
+     * @param path the route path
+     * @param a the first argument
+     * @param b the second argument
+     * @param c the third argument
+     * @param handler the typed request handler
+     * @see #get(String, BeerParam, TypedRequestHandler.Of1)
+     */
+	public <A, B, C> void get(String path, BeerParam<A> a, BeerParam<B> b, BeerParam<C> c, TypedRequestHandler.Of3<A, B, C> handler) {
+		add("GET", path, BeerBoundHandler.bind(path, a, b, c, handler));
+	}
+
+	/**
+     * Registers a POST route handler taking a typed argument.
+     *
+     * @param <A> the argument type
+     * @param path the route path
+     * @param a the argument
+     * @param handler the typed request handler
+     * @see #get(String, BeerParam, TypedRequestHandler.Of1)
+     */
+	public <A> void post(String path, BeerParam<A> a, TypedRequestHandler.Of1<A> handler) {
+		add("POST", path, BeerBoundHandler.bind(path, a, handler));
+	}
+
+	/**
+     * Registers a POST route handler taking two typed arguments.
+     *
+     * @param <A> the first argument type
+     * @param <B> the second argument type
+     * @param path the route path
+     * @param a the first argument
+     * @param b the second argument
+     * @param handler the typed request handler
+     * @see #get(String, BeerParam, TypedRequestHandler.Of1)
+     */
+	public <A, B> void post(String path, BeerParam<A> a, BeerParam<B> b, TypedRequestHandler.Of2<A, B> handler) {
+		add("POST", path, BeerBoundHandler.bind(path, a, b, handler));
+	}
+
+	/**
+     * Registers a POST route handler taking three typed arguments.
+     *
+     * @param <A> the first argument type
+     * @param <B> the second argument type
+     * @param <C> the third argument type
+     * @param path the route path
+     * @param a the first argument
+     * @param b the second argument
+     * @param c the third argument
+     * @param handler the typed request handler
+     * @see #get(String, BeerParam, TypedRequestHandler.Of1)
+     */
+	public <A, B, C> void post(String path, BeerParam<A> a, BeerParam<B> b, BeerParam<C> c, TypedRequestHandler.Of3<A, B, C> handler) {
+		add("POST", path, BeerBoundHandler.bind(path, a, b, c, handler));
+	}
+
+	/**
+     * Registers a PUT route handler taking a typed argument.
+     *
+     * @param <A> the argument type
+     * @param path the route path
+     * @param a the argument
+     * @param handler the typed request handler
+     * @see #get(String, BeerParam, TypedRequestHandler.Of1)
+     */
+	public <A> void put(String path, BeerParam<A> a, TypedRequestHandler.Of1<A> handler) {
+		add("PUT", path, BeerBoundHandler.bind(path, a, handler));
+	}
+
+	/**
+     * Registers a PUT route handler taking two typed arguments.
+     *
+     * @param <A> the first argument type
+     * @param <B> the second argument type
+     * @param path the route path
+     * @param a the first argument
+     * @param b the second argument
+     * @param handler the typed request handler
+     * @see #get(String, BeerParam, TypedRequestHandler.Of1)
+     */
+	public <A, B> void put(String path, BeerParam<A> a, BeerParam<B> b, TypedRequestHandler.Of2<A, B> handler) {
+		add("PUT", path, BeerBoundHandler.bind(path, a, b, handler));
+	}
+
+	/**
+     * Registers a PUT route handler taking three typed arguments.
+     *
+     * @param <A> the first argument type
+     * @param <B> the second argument type
+     * @param <C> the third argument type
+     * @param path the route path
+     * @param a the first argument
+     * @param b the second argument
+     * @param c the third argument
+     * @param handler the typed request handler
+     * @see #get(String, BeerParam, TypedRequestHandler.Of1)
+     */
+	public <A, B, C> void put(String path, BeerParam<A> a, BeerParam<B> b, BeerParam<C> c, TypedRequestHandler.Of3<A, B, C> handler) {
+		add("PUT", path, BeerBoundHandler.bind(path, a, b, c, handler));
+	}
+
+	/**
+     * Registers a DELETE route handler taking a typed argument.
+     *
+     * @param <A> the argument type
+     * @param path the route path
+     * @param a the argument
+     * @param handler the typed request handler
+     * @see #get(String, BeerParam, TypedRequestHandler.Of1)
+     */
+	public <A> void delete(String path, BeerParam<A> a, TypedRequestHandler.Of1<A> handler) {
+		add("DELETE", path, BeerBoundHandler.bind(path, a, handler));
+	}
+
+	/**
+     * Registers a DELETE route handler taking two typed arguments.
+     *
+     * @param <A> the first argument type
+     * @param <B> the second argument type
+     * @param path the route path
+     * @param a the first argument
+     * @param b the second argument
+     * @param handler the typed request handler
+     * @see #get(String, BeerParam, TypedRequestHandler.Of1)
+     */
+	public <A, B> void delete(String path, BeerParam<A> a, BeerParam<B> b, TypedRequestHandler.Of2<A, B> handler) {
+		add("DELETE", path, BeerBoundHandler.bind(path, a, b, handler));
+	}
+
+	/**
+     * Registers a DELETE route handler taking three typed arguments.
+     *
+     * @param <A> the first argument type
+     * @param <B> the second argument type
+     * @param <C> the third argument type
+     * @param path the route path
+     * @param a the first argument
+     * @param b the second argument
+     * @param c the third argument
+     * @param handler the typed request handler
+     * @see #get(String, BeerParam, TypedRequestHandler.Of1)
+     */
+	public <A, B, C> void delete(String path, BeerParam<A> a, BeerParam<B> b, BeerParam<C> c, TypedRequestHandler.Of3<A, B, C> handler) {
+		add("DELETE", path, BeerBoundHandler.bind(path, a, b, c, handler));
+	}
+
 	 /**
      * Registers a filter that runs before route for the specified path.
      *
@@ -510,7 +994,7 @@ public class Beer {
 			}
 		};
 
-		context.addFilter(new FilterHolder(servletFilter), path, null);
+		context.addFilter(asyncSupported(new FilterHolder(servletFilter)), path, null);
 	}
 
 	/**
@@ -519,6 +1003,8 @@ public class Beer {
 	 * Handles internal exception classes and maps them to HTTP status codes:
 	 * <ul>
 	 *   <li>{@code BadRequestException} (400)</li>
+	 *   <li>{@code NotFoundException} (404)</li>
+	 *   <li>{@code PayloadTooLargeException} (413)</li>
 	 *   <li>{@code ForbiddenException} (403)</li>
 	 *   <li>{@code UnauthorizedException} (401)</li>
 	 *   <li>{@code InternalServerErrorException} (500)</li>
@@ -551,7 +1037,7 @@ public class Beer {
 			}
 		};
 
-		context.addFilter(new FilterHolder(servletFilter), "/*", null);
+		context.addFilter(asyncSupported(new FilterHolder(servletFilter)), "/*", null);
 	}
 
 	protected void handleException(HttpServletRequest req, HttpServletResponse res, Throwable ex) throws IOException {
@@ -568,6 +1054,12 @@ public class Beer {
 		} else if (ex instanceof BadRequestException) {
 			res.setStatus(400);
 			res.getWriter().write(BeerUtils.json(new SimpleErrorMessage(ex.getMessage(), tag, datetime)));
+		} else if (ex instanceof NotFoundException) {
+			res.setStatus(404);
+			res.getWriter().write(BeerUtils.json(new SimpleErrorMessage(ex.getMessage(), tag, datetime)));
+		} else if (ex instanceof PayloadTooLargeException) {
+			res.setStatus(413);
+			res.getWriter().write(BeerUtils.json(new SimpleErrorMessage(ex.getMessage(), tag, datetime)));
 
 		} else {
 			res.setStatus(500);
@@ -606,10 +1098,11 @@ public class Beer {
 		context.setBaseResource(
 		        resourceFactory.newClassLoaderResource(filePathInClasspath)
 		);
-		context.addServlet(new ServletHolder(new DefaultServlet()), path);
+		context.addServlet(new ServletHolder(STATIC_SERVLET_NAME, new DefaultServlet()), path);
 		context.setWelcomeFiles(new String[]{"index.html"});
 		
 		staticFilePath = path;
+		staticFilesEnabled = true;
 	}
 
 	/**
@@ -648,7 +1141,7 @@ public class Beer {
 			}
 		};
 
-		context.addFilter(new FilterHolder(servletFilter), "/*", null);
+		context.addFilter(asyncSupported(new FilterHolder(servletFilter)), "/*", null);
 	}
 
 	public void corsAllFilter() {
@@ -675,40 +1168,265 @@ public class Beer {
 			throw new IllegalStateException("Beer is not configured! Call init() method first!");
 		}
 		
+		router = BeerRouter.compile(routes, wildcardRoutes, pathParamRoutes);
+		router.getConflicts().forEach(conflict -> logger.warn("Ambiguous route: " + conflict));
 		server.setHandler(handlers);
 		server.setErrorHandler(new JettyErrorHandler());
+		var bus = config.getBroadcastBus();
+		if (bus != null) {
+			Consumer<BroadcastMessage> receiver = this::receive;
+			bus.start(receiver);
+			// the node is on the bus as long as its server runs, however it is stopped
+			server.addEventListener(new LifeCycle.Listener() {
+				@Override
+				public void lifeCycleStopped(LifeCycle event) {
+					bus.stop(receiver);
+				}
+
+				@Override
+				public void lifeCycleFailure(LifeCycle event, Throwable cause) {
+					bus.stop(receiver);
+				}
+			});
+		}
 		server.start();
 		logger.info("Server started on http://" + config.getIp() + ":" + config.getPort());
 		server.join();
 	}
 
+	/**
+	 * Marks a servlet or filter holder as async supported, so handlers can
+	 * hand their response off to async I/O (e.g. file downloads) instead of
+	 * blocking the request thread.
+	 *
+	 * @param <T> the holder type
+	 * @param holder the servlet or filter holder
+	 * @return the same holder
+	 */
+	private <T extends Holder<?>> T asyncSupported(T holder) {
+		holder.setAsyncSupported(true);
+		return holder;
+	}
+
+	/**
+	 * Returns whether routes are served by a single dispatcher servlet.
+	 *
+	 * @return {@code true} if single dispatcher mode is enabled
+	 */
+	private boolean isSingleDispatcher() {
+		return config != null && Boolean.TRUE.equals(config.getSingleDispatcherEnabled());
+	}
+
+	/**
+     * Returns the registry of connected WebSocket sessions, for lookups by
+     * path, user or tag and for session counts.
+     *
+     * @return the socket registry
+     */
+	public BeerSocketRegistry getSocketRegistry() {
+		return socketRegistry;
+	}
+
 	/**
      * Returns the map of WebSocket sessions for each route.
+     * <p>
+     * The map is a snapshot built on every call, prefer
+     * {@link #getSocketRegistry()} for frequent lookups.
      *
      * @return map of route paths to session lists
      */
-	public Map<String, List<Session>> getSocketSessionsRoutesMap() {
-        return socketSessionsRoutesMap;
+	public Map<String, List<Session>> getSocketSessionsRoutesMap() {
+		var map = new HashMap<String, List<Session>>();
+		for (var path : socketRegistry.getPaths()) {
+			map.put(path, socketRegistry.getSessions(path).stream().map(BeerSocketSession::getSession).toList());
+		}
+		return map;
     }
 
 	 /**
      * Broadcasts a message to all WebSocket sessions registered at the given path.
+     * <p>
+     * The data is serialized once and sent to every session asynchronously,
+     * so the caller never blocks on slow clients. Closed sessions and
+     * sessions whose send failed are removed in one batch afterwards.
+     * With a {@link BeerConfig#setBroadcastBus(BeerBroadcastBus) broadcast bus},
+     * the message also reaches the sessions connected to the other nodes.
      *
      * @param path the WebSocket route path
      * @param data the message data to broadcast
+     * @return a future completed with the number of delivered and failed
+     *         sends to the local sessions
+     * @see BeerBroadcast
      */
-	public void broadcast(String path, Object data) {
-		var sessions = socketSessionsRoutesMap.get(path);
-		if (sessions != null) {
-			sessions.removeIf(session -> session == null || !session.isOpen());
-			for (Session session : sessions) {
-				try {
-					session.sendText(BeerUtils.json(data), null);
-				} catch (Exception e) {
-					throw new RuntimeException(e);
-				}
-			}
+	public CompletableFuture<BroadcastResult> broadcast(String path, Object data) {
+		return broadcast(path, data, null);
+	}
+
+	 /**
+     * Broadcasts a message to all WebSocket sessions registered at the given
+     * path, with a coalescing key.
+     * <p>
+     * With the {@code COALESCE} overflow policy, a message still queued for
+     * a session under the same key is replaced by this one, so slow clients
+     * skip intermediate updates of the same entity.
+     *
+     * @param path the WebSocket route path
+     * @param data the message data to broadcast
+     * @param coalesceKey the coalescing key, may be {@code null}
+     * @return a future completed with the number of delivered and failed sends
+     */
+	public CompletableFuture<BroadcastResult> broadcast(String path, Object data, String coalesceKey) {
+		var message = BeerUtils.json(data);
+		forward(Target.PATH, path, message, coalesceKey, false);
+		return send(socketRegistry.getSessions(path), message, coalesceKey);
+	}
+
+	 /**
+     * Broadcasts a binary message to all WebSocket sessions registered at the
+     * given path. The payload is shared by all sessions, not copied.
+     * With a {@link BeerConfig#setBroadcastBus(BeerBroadcastBus) broadcast bus},
+     * the payload also reaches the sessions connected to the other nodes,
+     * Base64 encoded on the bus.
+     *
+     * @param path the WebSocket route path
+     * @param payload the message payload
+     * @return a future completed with the number of delivered and failed
+     *         sends to the local sessions
+     */
+	public CompletableFuture<BroadcastResult> broadcastBinary(String path, ByteBuffer payload) {
+		if (config != null && config.getBroadcastBus() != null) {
+			var bytes = new byte[payload.remaining()];
+			payload.duplicate().get(bytes);
+			forward(Target.PATH, path, Base64.getEncoder().encodeToString(bytes), null, true);
+		}
+		return BeerBroadcast.send(socketRegistry.getSessions(path), payload, null, null, this::prune);
+	}
+
+	 /**
+     * Sends a message to the given WebSocket sessions, e.g. the sessions of a
+     * user or the tagged sessions selected through the
+     * {@link #getSocketRegistry() registry}. The data is serialized once.
+     *
+     * @param sessions the recipients
+     * @param data the message data to send
+     * @return a future completed with the number of delivered and failed sends
+     */
+	public CompletableFuture<BroadcastResult> sendTo(Collection<BeerSocketSession> sessions, Object data) {
+		return send(sessions, BeerUtils.json(data), null);
+	}
+
+	 /**
+     * Publishes a message to the sessions subscribed to a topic, directly or
+     * through a wildcard pattern. Subscribers are looked up in the topic index,
+     * so the cost depends on the number of subscribers, not connections.
+     *
+     * @param topic the concrete topic, without wildcards
+     * @param data the message data to publish
+     * @return a future completed with the number of delivered and failed sends
+     * @throws IllegalArgumentException if the topic contains wildcards
+     * @see BeerSocketSession#subscribe(String)
+     */
+	public CompletableFuture<BroadcastResult> publish(String topic, Object data) {
+		return publish(topic, data, null);
+	}
+
+	 /**
+     * Publishes a message to the sessions subscribed to a topic, with a
+     * coalescing key.
+     *
+     * @param topic the concrete topic, without wildcards
+     * @param data the message data to publish
+     * @param coalesceKey the coalescing key, may be {@code null}
+     * @return a future completed with the number of delivered and failed sends
+     * @throws IllegalArgumentException if the topic contains wildcards
+     */
+	public CompletableFuture<BroadcastResult> publish(String topic, Object data, String coalesceKey) {
+		var subscribers = socketRegistry.getSubscribers(topic);
+		var message = BeerUtils.json(data);
+		forward(Target.TOPIC, topic, message, coalesceKey, false);
+		return send(subscribers, message, coalesceKey);
+	}
+
+	 /**
+     * Sends a message to all WebSocket sessions of a user, across all paths.
+     *
+     * @param userId the user id
+     * @param data the message data to send
+     * @return a future completed with the number of delivered and failed sends
+     * @see BeerSocketSession#setUserId(String)
+     */
+	public CompletableFuture<BroadcastResult> sendToUser(String userId, Object data) {
+		var message = BeerUtils.json(data);
+		forward(Target.USER, userId, message, null, false);
+		return send(socketRegistry.getUserSessions(userId), message, null);
+	}
+
+	/**
+	 * Publishes a broadcast on the bus of the configuration, if any.
+	 */
+	private void forward(Target target, String name, String message, String coalesceKey, boolean binary) {
+		var bus = config != null ? config.getBroadcastBus() : null;
+		if (bus != null) {
+			var broadcast = new BroadcastMessage(nodeId, broadcastSequence.incrementAndGet(), target, name, message, coalesceKey);
+			broadcast.setBinary(binary);
+			bus.publish(broadcast);
+		}
+	}
+
+	/**
+	 * Delivers a broadcast of another node to the local sessions, once.
+	 */
+	private void receive(BroadcastMessage message) {
+		if (nodeId.equals(message.getNodeId()) || !broadcastDeduplicator.firstSeen(message.getNodeId(), message.getId())) {
+			return;
+		}
+		var sessions = switch (message.getTarget()) {
+			case PATH -> socketRegistry.getSessions(message.getName());
+			case TOPIC -> socketRegistry.getSubscribers(message.getName());
+			case USER -> socketRegistry.getUserSessions(message.getName());
+		};
+		if (message.isBinary()) {
+			var payload = ByteBuffer.wrap(Base64.getDecoder().decode(message.getMessage()));
+			BeerBroadcast.send(sessions, payload, null, null, this::prune);
+		} else {
+			send(sessions, message.getMessage(), message.getCoalesceKey());
+		}
+	}
+
+	/**
+	 * Returns the id of this node on the broadcast bus, unique per run.
+	 *
+	 * @return the node id
+	 */
+	public String getNodeId() {
+		return nodeId;
+	}
+
+	private CompletableFuture<BroadcastResult> send(Collection<BeerSocketSession> sessions, String message, String coalesceKey) {
+		return BeerBroadcast.send(sessions, message, coalesceKey, this::prune);
+	}
+
+	private void prune(List<BeerSocketSession> dead) {
+		dead.forEach(session -> socketRegistry.unregister(session.getSession()));
+	}
+
+	/**
+     * Returns the outbound queue of a WebSocket session, exposing its queue
+     * depth and delivery metrics.
+     *
+     * @param session the WebSocket session
+     * @return the sender of the session, or {@code null} if it is not connected
+     */
+	public BeerSocketSender getSocketSender(Session session) {
+		var socketSession = socketRegistry.get(session);
+		return socketSession != null ? socketSession.getSender() : null;
+	}
+
+	private BeerSocketOptions socketOptions(BeerSocketOptions options) {
+		if (options != null) {
+			return options;
 		}
+		return config != null && config.getSocketOptions() != null ? config.getSocketOptions() : new BeerSocketOptions();
 	}
 
 	public class JettyErrorHandler extends ErrorHandler {
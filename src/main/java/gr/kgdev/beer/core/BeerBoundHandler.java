@@ -0,0 +1,69 @@
+package gr.kgdev.beer.core;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+/**
+ * A {@link TypedRequestHandler} bound to its route.
+ * <p>
+ * The binding plan is built once at registration: every {@link BeerParam}
+ * is compiled to an extractor, and the handler is wrapped in a lambda that
+ * calls them in order, so serving a request involves no reflection and no
+ * argument array. Path parameter values are taken from the array captured
+ * by the router instead of request attributes.
+ */
+final class BeerBoundHandler implements RequestHandler {
+
+	@FunctionalInterface
+	private interface Invoker {
+		Object invoke(HttpServletRequest req, HttpServletResponse res, String[] pathValues) throws Exception;
+	}
+
+	private final Invoker invoker;
+
+	private BeerBoundHandler(Invoker invoker) {
+		this.invoker = invoker;
+	}
+
+	static <A> BeerBoundHandler bind(String pattern, BeerParam<A> a, TypedRequestHandler.Of1<A> handler) {
+		var ea = a.compile(pattern);
+		return new BeerBoundHandler((req, res, path) -> handler.handle(ea.extract(req, res, path)));
+	}
+
+	static <A, B> BeerBoundHandler bind(String pattern, BeerParam<A> a, BeerParam<B> b, TypedRequestHandler.Of2<A, B> handler) {
+		var ea = a.compile(pattern);
+		var eb = b.compile(pattern);
+		return new BeerBoundHandler((req, res, path) -> handler.handle(ea.extract(req, res, path), eb.extract(req, res, path)));
+	}
+
+	static <A, B, C> BeerBoundHandler bind(String pattern, BeerParam<A> a, BeerParam<B> b, BeerParam<C> c,
+			TypedRequestHandler.Of3<A, B, C> handler) {
+		var ea = a.compile(pattern);
+		var eb = b.compile(pattern);
+		var ec = c.compile(pattern);
+		return new BeerBoundHandler((req, res, path) -> handler.handle(ea.extract(req, res, path), eb.extract(req, res, path),
+				ec.extract(req, res, path)));
+	}
+
+	/**
+	 * Handles a request routed by the {@link BeerRouter}.
+	 *
+	 * @param req the request
+	 * @param res the response
+	 * @param pathValues the path parameter values of the match
+	 * @return the handler result
+	 * @throws Exception if the handler or an argument extraction fails
+	 */
+	Object handle(HttpServletRequest req, HttpServletResponse res, String[] pathValues) throws Exception {
+		return invoker.invoke(req, res, pathValues);
+	}
+
+	/**
+	 * Handles a request outside the router, path parameters are read from
+	 * the request attributes.
+	 */
+	@Override
+	public Object handle(HttpServletRequest req, HttpServletResponse res) throws Exception {
+		return invoker.invoke(req, res, null);
+	}
+}
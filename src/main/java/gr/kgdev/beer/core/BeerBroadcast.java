@@ -0,0 +1,111 @@
+package gr.kgdev.beer.core;
+
+import java.nio.ByteBuffer;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+import gr.kgdev.beer.model.BroadcastResult;
+
+/**
+ * Asynchronous fan-out of one message to many WebSocket sessions.
+ * <p>
+ * A message is serialized once by the caller and the same text, or binary
+ * buffer, is queued on the {@link BeerSocketSender} of every session, so the
+ * cost per recipient is a queued write. Sends never block the caller and a slow or broken session
+ * only affects its own queue. The returned future completes once every
+ * session either delivered, dropped or failed the message.
+ *
+ * <p>
+ * Sessions found closed are collected and handed to the caller in a single
+ * batch after the fan-out instead of being removed one by one while
+ * iterating.
+ */
+final class BeerBroadcast {
+
+	private BeerBroadcast() {
+	}
+
+	/**
+	 * Sends a text message to the given sessions.
+	 *
+	 * @param sessions the recipients
+	 * @param message the message text
+	 * @param coalesceKey the coalescing key of the message, may be {@code null}
+	 * @param prune called once with the closed sessions, if any
+	 * @return a future completed with the delivery summary, never exceptionally
+	 */
+	static CompletableFuture<BroadcastResult> send(Collection<BeerSocketSession> sessions, String message,
+			String coalesceKey, Consumer<List<BeerSocketSession>> prune) {
+		if (sessions == null || sessions.isEmpty()) {
+			return CompletableFuture.completedFuture(new BroadcastResult(0, 0, 0));
+		}
+		return send(sessions, null, message, coalesceKey, prune);
+	}
+
+	/**
+	 * Sends a text or a binary message to the given sessions.
+	 *
+	 * @param sessions the recipients
+	 * @param payload the binary message, shared by all recipients, {@code null} for a text message
+	 * @param message the message text, {@code null} for a binary message
+	 * @param coalesceKey the coalescing key of the message, may be {@code null}
+	 * @param prune called once with the closed sessions, if any
+	 * @return a future completed with the delivery summary, never exceptionally
+	 */
+	static CompletableFuture<BroadcastResult> send(Collection<BeerSocketSession> sessions, ByteBuffer payload,
+			String message, String coalesceKey, Consumer<List<BeerSocketSession>> prune) {
+		if (sessions == null || sessions.isEmpty()) {
+			return CompletableFuture.completedFuture(new BroadcastResult(0, 0, 0));
+		}
+
+		var future = new CompletableFuture<BroadcastResult>();
+		var recipients = sessions.size();
+		var delivered = new AtomicInteger();
+		var dead = new ConcurrentLinkedQueue<BeerSocketSession>();
+		// one extra count, released after the loop, so the future can not complete while still sending
+		var pending = new AtomicInteger(recipients + 1);
+
+		Runnable done = () -> {
+			if (pending.decrementAndGet() == 0) {
+				if (!dead.isEmpty()) {
+					prune.accept(List.copyOf(dead));
+				}
+				var sent = delivered.get();
+				future.complete(new BroadcastResult(recipients, sent, recipients - sent));
+			}
+		};
+
+		var count = 0;
+		for (var session : sessions) {
+			if (++count > recipients) {
+				// the collection grew while iterating, newcomers are not part of this broadcast
+				break;
+			}
+
+			if (!session.isOpen()) {
+				dead.add(session);
+				done.run();
+				continue;
+			}
+
+			session.getSender().enqueue(payload, message, coalesceKey, success -> {
+				if (success) {
+					delivered.incrementAndGet();
+				} else if (!session.isOpen()) {
+					dead.add(session);
+				}
+				done.run();
+			});
+		}
+		// the collection shrank while iterating, settle the sessions that were not visited
+		for (; count < recipients; count++) {
+			done.run();
+		}
+		done.run();
+		return future;
+	}
+}
@@ -0,0 +1,57 @@
+package gr.kgdev.beer.core;
+
+import java.io.IOException;
+import java.util.function.Consumer;
+
+import gr.kgdev.beer.model.BroadcastMessage;
+
+/**
+ * Transport of broadcasts between the nodes of a horizontally scaled Beer
+ * deployment.
+ * <p>
+ * Set with {@link BeerConfig#setBroadcastBus(BeerBroadcastBus)}. Every
+ * {@link Beer#broadcast(String, Object) broadcast},
+ * {@link Beer#broadcastBinary(String, java.nio.ByteBuffer) binary broadcast},
+ * {@link Beer#publish(String, Object) publish} and
+ * {@link Beer#sendToUser(String, Object) user send} is delivered to the local
+ * sessions and published on the bus, already serialized; the other nodes
+ * deliver it to their own sessions through the same serialize-once fan-out.
+ * Nodes ignore their own messages and duplicates, so implementations may
+ * echo messages back to the sender and deliver at least once.
+ *
+ * @see BeerLoopbackBus
+ * @see BeerMulticastBus
+ */
+public interface BeerBroadcastBus {
+
+	/**
+	 * Connects a node to the bus, called once by {@link Beer#start()}.
+	 *
+	 * @param receiver called with every message published on the bus
+	 * @throws IOException if the bus can not be joined
+	 */
+	void start(Consumer<BroadcastMessage> receiver) throws IOException;
+
+	/**
+	 * Publishes a message to the other nodes. Must not block on the network.
+	 *
+	 * @param message the broadcast message
+	 */
+	void publish(BroadcastMessage message);
+
+	/**
+	 * Disconnects a node from the bus, called when the server of the node
+	 * stops or fails to start. By default the bus is closed; buses shared by
+	 * several nodes of a JVM only stop delivering to the given receiver.
+	 *
+	 * @param receiver the receiver the node was started with
+	 */
+	default void stop(Consumer<BroadcastMessage> receiver) {
+		close();
+	}
+
+	/**
+	 * Disconnects from the bus and releases its resources.
+	 */
+	void close();
+}
@@ -0,0 +1,53 @@
+package gr.kgdev.beer.core;
+
+import java.util.BitSet;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Drops repeated deliveries of bus messages.
+ * <p>
+ * Message ids grow per sending node, so instead of remembering every id
+ * each node gets a sliding window over its most recent ids: a bit per id in
+ * the window, plus the highest id seen. Ids that fell out of the window are
+ * treated as duplicates, as a message that late is stale anyway.
+ */
+final class BeerBroadcastDeduplicator {
+
+	private static final int WINDOW = 4096;
+
+	private final Map<String, Window> nodes = new ConcurrentHashMap<>();
+
+	/**
+	 * Records a message and tells whether it was seen before.
+	 *
+	 * @param nodeId the sending node
+	 * @param id the message id, unique per node
+	 * @return {@code true} the first time the message is seen
+	 */
+	boolean firstSeen(String nodeId, long id) {
+		return nodes.computeIfAbsent(nodeId, n -> new Window()).mark(id);
+	}
+
+	private static final class Window {
+		private final BitSet seen = new BitSet(WINDOW);
+		private long highest = -1;
+
+		private synchronized boolean mark(long id) {
+			if (id > highest) {
+				// forget the ids the window slides past
+				for (var i = Math.max(highest + 1, id - WINDOW + 1); i < id; i++) {
+					seen.clear((int) (i % WINDOW));
+				}
+				seen.set((int) (id % WINDOW));
+				highest = id;
+				return true;
+			}
+			if (id <= highest - WINDOW || seen.get((int) (id % WINDOW))) {
+				return false;
+			}
+			seen.set((int) (id % WINDOW));
+			return true;
+		}
+	}
+}
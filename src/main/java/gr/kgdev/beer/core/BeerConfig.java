@@ -1,6 +1,8 @@
 
 package gr.kgdev.beer.core;
 
+import gr.kgdev.beer.utils.BeerJsonCodec;
+
 /**
  * Configuration class for the Beer server.
  * <p>
@@ -37,6 +39,42 @@ public class BeerConfig {
 	 */
 	private String loggerName;
 
+	/**
+	 * Whether routes are served by a single dispatcher servlet mapped at
+	 * {@code /*} instead of one servlet per registered route.
+	 */
+	private Boolean singleDispatcherEnabled = false;
+
+	/** Whether request handling runs on virtual threads. */
+	private Boolean virtualThreadsEnabled = false;
+
+	/**
+	 * The maximum number of requests handled concurrently on virtual threads,
+	 * {@code null} for no limit.
+	 */
+	private Integer virtualThreadsMaxConcurrency;
+
+	/** Whether pinned virtual threads are recorded through JFR. */
+	private Boolean virtualThreadsMetricsEnabled = false;
+
+	/**
+	 * Whether JSON strings are parsed and re-serialized before being sent,
+	 * see {@link gr.kgdev.beer.utils.BeerUtils#setJsonValidationEnabled(boolean)}.
+	 */
+	private Boolean jsonValidationEnabled = false;
+
+	/** Codec of all JSON encoding and decoding, {@code null} for the default. */
+	private BeerJsonCodec jsonCodec;
+
+	/** Maximum size of request bodies parsed by BeerUtils, in bytes. */
+	private Long maxBodySize = 10L * 1024 * 1024;
+
+	/** Default settings of WebSocket endpoints. */
+	private BeerSocketOptions socketOptions = new BeerSocketOptions();
+
+	/** Transport of broadcasts between nodes, {@code null} for a single node. */
+	private BeerBroadcastBus broadcastBus;
+
 	/**
 	 * Gets the IP address the server will bind to.
 	 * 
@@ -202,4 +240,209 @@ public class BeerConfig {
 		return this;
 	}
 
+	/**
+	 * Returns whether routes are served by a single dispatcher servlet.
+	 *
+	 * @return {@code true} if single dispatcher mode is enabled
+	 */
+	public Boolean getSingleDispatcherEnabled() {
+		return singleDispatcherEnabled;
+	}
+
+	/**
+	 * Enables or disables single dispatcher mode.
+	 * <p>
+	 * When enabled, Beer registers exactly one servlet at {@code /*} and owns
+	 * routing end to end, instead of registering a servlet per route and letting
+	 * Jetty resolve the servlet mapping before Beer resolves the route. Static
+	 * files registered through {@code staticFiles} are still served by Jetty's
+	 * {@code DefaultServlet} for requests that do not match any route.
+	 *
+	 * @param singleDispatcherEnabled true to enable single dispatcher mode
+	 * @return this config instance
+	 */
+	public BeerConfig setSingleDispatcherEnabled(Boolean singleDispatcherEnabled) {
+		this.singleDispatcherEnabled = singleDispatcherEnabled;
+		return this;
+	}
+
+	/**
+	 * Returns whether request handling runs on virtual threads.
+	 *
+	 * @return {@code true} if virtual threads are enabled
+	 */
+	public Boolean getVirtualThreadsEnabled() {
+		return virtualThreadsEnabled;
+	}
+
+	/**
+	 * Enables or disables virtual thread execution.
+	 * <p>
+	 * When enabled, Jetty keeps its platform thread pool (sized by
+	 * {@code jettyMinThreads}/{@code jettyMaxThreads}) for selectors and
+	 * acceptors, while servlets, filters and handlers are dispatched on a new
+	 * virtual thread per request. Suited for handlers that block on JDBC or
+	 * downstream HTTP calls.
+	 *
+	 * @param virtualThreadsEnabled true to handle requests on virtual threads
+	 * @return this config instance
+	 */
+	public BeerConfig setVirtualThreadsEnabled(Boolean virtualThreadsEnabled) {
+		this.virtualThreadsEnabled = virtualThreadsEnabled;
+		return this;
+	}
+
+	/**
+	 * Returns the maximum number of requests handled concurrently on virtual threads.
+	 *
+	 * @return the concurrency limit, or {@code null} if unbounded
+	 */
+	public Integer getVirtualThreadsMaxConcurrency() {
+		return virtualThreadsMaxConcurrency;
+	}
+
+	/**
+	 * Sets the maximum number of requests handled concurrently on virtual
+	 * threads. Requests above the limit wait for a permit without blocking
+	 * any platform thread.
+	 *
+	 * @param virtualThreadsMaxConcurrency the concurrency limit, or {@code null} for no limit
+	 * @return this config instance
+	 */
+	public BeerConfig setVirtualThreadsMaxConcurrency(Integer virtualThreadsMaxConcurrency) {
+		this.virtualThreadsMaxConcurrency = virtualThreadsMaxConcurrency;
+		return this;
+	}
+
+	/**
+	 * Returns whether pinned virtual threads are recorded through JFR.
+	 *
+	 * @return {@code true} if virtual thread metrics are enabled
+	 */
+	public Boolean getVirtualThreadsMetricsEnabled() {
+		return virtualThreadsMetricsEnabled;
+	}
+
+	/**
+	 * Enables or disables recording of pinned virtual threads through JFR.
+	 *
+	 * @param virtualThreadsMetricsEnabled true to record pinned virtual threads
+	 * @return this config instance
+	 */
+	public BeerConfig setVirtualThreadsMetricsEnabled(Boolean virtualThreadsMetricsEnabled) {
+		this.virtualThreadsMetricsEnabled = virtualThreadsMetricsEnabled;
+		return this;
+	}
+
+	/**
+	 * Returns the default settings of WebSocket endpoints.
+	 *
+	 * @return the socket options
+	 */
+	public BeerSocketOptions getSocketOptions() {
+		return socketOptions;
+	}
+
+	/**
+	 * Sets the default settings of WebSocket endpoints, such as the bounds
+	 * and overflow policy of per-session outbound queues.
+	 *
+	 * @param socketOptions the socket options
+	 * @return this config instance
+	 */
+	public BeerConfig setSocketOptions(BeerSocketOptions socketOptions) {
+		this.socketOptions = socketOptions;
+		return this;
+	}
+
+	/**
+	 * Returns the transport of broadcasts between nodes.
+	 *
+	 * @return the broadcast bus, or {@code null} for a single node
+	 */
+	public BeerBroadcastBus getBroadcastBus() {
+		return broadcastBus;
+	}
+
+	/**
+	 * Sets the transport that forwards broadcasts, topic publishes and user
+	 * sends to the other nodes of a deployment, so clients receive them
+	 * whichever node they are connected to.
+	 *
+	 * @param broadcastBus the broadcast bus, {@code null} for a single node
+	 * @return this config instance
+	 */
+	public BeerConfig setBroadcastBus(BeerBroadcastBus broadcastBus) {
+		this.broadcastBus = broadcastBus;
+		return this;
+	}
+
+	/**
+	 * Returns whether JSON strings are validated before being sent.
+	 *
+	 * @return {@code true} if enabled
+	 */
+	public Boolean getJsonValidationEnabled() {
+		return jsonValidationEnabled;
+	}
+
+	/**
+	 * Sets whether JSON strings are parsed and re-serialized before being
+	 * sent, as HTTP results or WebSocket messages. Useful during development
+	 * to catch malformed pre-rendered JSON, which fails with an
+	 * {@link IllegalArgumentException}, answered with a 500 over HTTP. Off
+	 * by default as it costs a full parse of every such payload.
+	 *
+	 * @param jsonValidationEnabled {@code true} to validate JSON strings
+	 * @return this config instance
+	 */
+	public BeerConfig setJsonValidationEnabled(Boolean jsonValidationEnabled) {
+		this.jsonValidationEnabled = jsonValidationEnabled;
+		return this;
+	}
+
+	/**
+	 * Returns the JSON codec.
+	 *
+	 * @return the codec, or {@code null} for the default
+	 */
+	public BeerJsonCodec getJsonCodec() {
+		return jsonCodec;
+	}
+
+	/**
+	 * Sets the codec used wherever the server encodes or decodes JSON:
+	 * request bodies, query parameters, results, WebSocket messages and
+	 * broadcasts. Defaults to a {@link gr.kgdev.beer.utils.BeerGsonCodec}.
+	 *
+	 * @param jsonCodec the codec, {@code null} for the default
+	 * @return this config instance
+	 */
+	public BeerConfig setJsonCodec(BeerJsonCodec jsonCodec) {
+		this.jsonCodec = jsonCodec;
+		return this;
+	}
+
+	/**
+	 * Returns the maximum size of request bodies.
+	 *
+	 * @return the maximum size in bytes, {@code null} for no limit
+	 */
+	public Long getMaxBodySize() {
+		return maxBodySize;
+	}
+
+	/**
+	 * Sets the maximum size of request bodies read with
+	 * {@code BeerUtils.parseBody}, {@code parseBodyAsync} and
+	 * {@code parseReqBody}. Larger bodies are answered with 413, before they
+	 * are read if their length is declared. Defaults to 10 MB.
+	 *
+	 * @param maxBodySize the maximum size in bytes, {@code null} for no limit
+	 * @return this config instance
+	 */
+	public BeerConfig setMaxBodySize(Long maxBodySize) {
+		this.maxBodySize = maxBodySize;
+		return this;
+	}
 }
@@ -0,0 +1,40 @@
+package gr.kgdev.beer.core;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
+import gr.kgdev.beer.model.BroadcastMessage;
+
+/**
+ * In-process {@link BeerBroadcastBus} connecting the Beer instances of a JVM
+ * that share the same bus instance, e.g. to run several nodes in a test.
+ * Messages are handed to every connected node on the publishing thread.
+ * A node that stops leaves the bus, the others stay connected.
+ */
+public class BeerLoopbackBus implements BeerBroadcastBus {
+
+	private final List<Consumer<BroadcastMessage>> receivers = new CopyOnWriteArrayList<>();
+
+	@Override
+	public void start(Consumer<BroadcastMessage> receiver) {
+		receivers.add(receiver);
+	}
+
+	@Override
+	public void publish(BroadcastMessage message) {
+		for (var receiver : receivers) {
+			receiver.accept(message);
+		}
+	}
+
+	@Override
+	public void stop(Consumer<BroadcastMessage> receiver) {
+		receivers.remove(receiver);
+	}
+
+	@Override
+	public void close() {
+		receivers.clear();
+	}
+}
@@ -0,0 +1,274 @@
+package gr.kgdev.beer.core;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.net.DatagramPacket;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.MulticastSocket;
+import java.net.NetworkInterface;
+import java.net.SocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import gr.kgdev.beer.model.BroadcastMessage;
+import gr.kgdev.beer.utils.BeerUtils;
+
+/**
+ * {@link BeerBroadcastBus} over UDP multicast, for nodes on the same network
+ * segment without a broker.
+ * <p>
+ * Published messages are serialized on the calling thread and queued; a
+ * sender thread packs the messages published within the batch delay into
+ * one datagram, a JSON array of at most {@code maxDatagramSize} bytes, so a
+ * burst of broadcasts costs a few packets instead of one each. A receiver
+ * thread unpacks incoming datagrams and hands their messages to the node.
+ *
+ * <p>
+ * Delivery is best effort, as UDP: datagrams may be lost, duplicated or
+ * reordered, and messages larger than a datagram or published while the
+ * queue is full are dropped and counted. Datagrams loop back to the sending
+ * host, so several nodes can share a machine, e.g. on the loopback interface.
+ */
+public class BeerMulticastBus implements BeerBroadcastBus {
+
+	private static final Logger LOGGER = LoggerFactory.getLogger(BeerMulticastBus.class);
+	private static final byte[] POISON = new byte[0];
+
+	private final String group;
+	private final int port;
+	private String networkInterface;
+	private int timeToLive = 1;
+	private Duration batchDelay = Duration.ofMillis(2);
+	private int maxDatagramSize = 60000;
+	private int maxQueueSize = 10000;
+
+	private volatile MulticastSocket socket;
+	private SocketAddress groupAddress;
+	private BlockingQueue<byte[]> queue;
+
+	private final LongAdder sentDatagrams = new LongAdder();
+	private final LongAdder sentMessages = new LongAdder();
+	private final LongAdder receivedMessages = new LongAdder();
+	private final LongAdder droppedMessages = new LongAdder();
+
+	/**
+	 * Creates a multicast bus.
+	 *
+	 * @param group the multicast group address, e.g. {@code 239.1.2.3}
+	 * @param port the UDP port shared by all nodes
+	 */
+	public BeerMulticastBus(String group, int port) {
+		this.group = group;
+		this.port = port;
+	}
+
+	/**
+	 * Sets the network interface to join the group on.
+	 *
+	 * @param networkInterface the interface name, e.g. {@code eth0}, {@code null} for the system default
+	 * @return this bus
+	 */
+	public BeerMulticastBus setNetworkInterface(String networkInterface) {
+		this.networkInterface = networkInterface;
+		return this;
+	}
+
+	/**
+	 * Sets how many router hops datagrams may cross.
+	 *
+	 * @param timeToLive the multicast time to live, 1 keeps them on the local segment
+	 * @return this bus
+	 */
+	public BeerMulticastBus setTimeToLive(int timeToLive) {
+		this.timeToLive = timeToLive;
+		return this;
+	}
+
+	/**
+	 * Sets how long the sender waits for more messages to fill a datagram.
+	 *
+	 * @param batchDelay the batch delay, zero sends whatever is queued at once
+	 * @return this bus
+	 */
+	public BeerMulticastBus setBatchDelay(Duration batchDelay) {
+		this.batchDelay = batchDelay;
+		return this;
+	}
+
+	/**
+	 * Sets the maximum datagram size, which also bounds the size of a message.
+	 *
+	 * @param maxDatagramSize the maximum size in bytes, at most 65507
+	 * @return this bus
+	 */
+	public BeerMulticastBus setMaxDatagramSize(int maxDatagramSize) {
+		this.maxDatagramSize = maxDatagramSize;
+		return this;
+	}
+
+	/**
+	 * Sets the maximum number of messages waiting to be sent.
+	 *
+	 * @param maxQueueSize the queue capacity
+	 * @return this bus
+	 */
+	public BeerMulticastBus setMaxQueueSize(int maxQueueSize) {
+		this.maxQueueSize = maxQueueSize;
+		return this;
+	}
+
+	@Override
+	public void start(Consumer<BroadcastMessage> receiver) throws IOException {
+		var multicastSocket = new MulticastSocket(null);
+		multicastSocket.setReuseAddress(true);
+		multicastSocket.bind(new InetSocketAddress(port));
+		multicastSocket.setOption(StandardSocketOptions.IP_MULTICAST_LOOP, true);
+		multicastSocket.setTimeToLive(timeToLive);
+
+		var nif = networkInterface != null ? NetworkInterface.getByName(networkInterface) : null;
+		if (nif != null) {
+			multicastSocket.setNetworkInterface(nif);
+		}
+		groupAddress = new InetSocketAddress(InetAddress.getByName(group), port);
+		multicastSocket.joinGroup(groupAddress, nif);
+
+		queue = new LinkedBlockingQueue<>(maxQueueSize);
+		socket = multicastSocket;
+		Thread.ofPlatform().daemon().name("beer-bus-sender").start(this::sendLoop);
+		Thread.ofPlatform().daemon().name("beer-bus-receiver").start(() -> receiveLoop(receiver));
+	}
+
+	@Override
+	public void publish(BroadcastMessage message) {
+		var bytes = BeerUtils.json(message).getBytes(StandardCharsets.UTF_8);
+		// two bytes for the brackets of the array
+		if (socket == null || bytes.length + 2 > maxDatagramSize || !queue.offer(bytes)) {
+			droppedMessages.increment();
+		}
+	}
+
+	@Override
+	public void close() {
+		var multicastSocket = socket;
+		socket = null;
+		if (multicastSocket != null) {
+			queue.offer(POISON);
+			multicastSocket.close();
+		}
+	}
+
+	private void sendLoop() {
+		var batch = new ByteArrayOutputStream(maxDatagramSize);
+		byte[] carry = null;
+		try {
+			while (socket != null) {
+				var next = carry != null ? carry : queue.take();
+				carry = null;
+				var deadline = System.nanoTime() + batchDelay.toNanos();
+				var count = 0;
+				batch.reset();
+				batch.write('[');
+				while (next != null && next != POISON) {
+					if (batch.size() + next.length + 1 > maxDatagramSize) {
+						carry = next;
+						break;
+					}
+					if (count++ > 0) {
+						batch.write(',');
+					}
+					batch.write(next, 0, next.length);
+					next = queue.poll(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+				}
+				batch.write(']');
+
+				var multicastSocket = socket;
+				if (count > 0 && multicastSocket != null) {
+					send(multicastSocket, batch.toByteArray(), count);
+				}
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	private void send(MulticastSocket multicastSocket, byte[] datagram, int count) {
+		try {
+			multicastSocket.send(new DatagramPacket(datagram, datagram.length, groupAddress));
+			sentDatagrams.increment();
+			sentMessages.add(count);
+		} catch (IOException e) {
+			droppedMessages.add(count);
+			LOGGER.warn("Could not send broadcast datagram: " + e.getMessage());
+		}
+	}
+
+	private void receiveLoop(Consumer<BroadcastMessage> receiver) {
+		var buffer = new byte[65535];
+		MulticastSocket multicastSocket;
+		while ((multicastSocket = socket) != null) {
+			try {
+				var packet = new DatagramPacket(buffer, buffer.length);
+				multicastSocket.receive(packet);
+				var json = new String(packet.getData(), packet.getOffset(), packet.getLength(), StandardCharsets.UTF_8);
+				for (var message : BeerUtils.fromJson(json, BroadcastMessage[].class)) {
+					receivedMessages.increment();
+					receiver.accept(message);
+				}
+			} catch (IOException e) {
+				if (socket != null) {
+					LOGGER.warn("Could not receive broadcast datagram: " + e.getMessage());
+				}
+			} catch (RuntimeException e) {
+				// a foreign or corrupt datagram on the group, not ours to deliver
+				LOGGER.warn("Ignored invalid broadcast datagram: " + e.getMessage());
+			}
+		}
+	}
+
+	/**
+	 * Returns the number of datagrams sent.
+	 *
+	 * @return the sent datagram count
+	 */
+	public long getSentDatagramCount() {
+		return sentDatagrams.sum();
+	}
+
+	/**
+	 * Returns the number of messages sent, batched in datagrams.
+	 *
+	 * @return the sent message count
+	 */
+	public long getSentMessageCount() {
+		return sentMessages.sum();
+	}
+
+	/**
+	 * Returns the number of messages received, including the node's own.
+	 *
+	 * @return the received message count
+	 */
+	public long getReceivedMessageCount() {
+		return receivedMessages.sum();
+	}
+
+	/**
+	 * Returns the number of messages dropped because they did not fit in a
+	 * datagram, the queue was full or the send failed.
+	 *
+	 * @return the dropped message count
+	 */
+	public long getDroppedMessageCount() {
+		return droppedMessages.sum();
+	}
+}
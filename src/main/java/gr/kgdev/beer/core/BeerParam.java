@@ -0,0 +1,207 @@
+package gr.kgdev.beer.core;
+
+import java.util.Collections;
+import java.util.function.Function;
+
+import gr.kgdev.beer.model.exceptions.BadRequestException;
+import gr.kgdev.beer.utils.BeerUtils;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+/**
+ * A typed argument of a {@link TypedRequestHandler}: where its value comes
+ * from and the type it is converted to.
+ * <p>
+ * Parameters are compiled when the route is registered, resolving path
+ * parameter names to their index in the route pattern and picking the
+ * converter of their type, so a request only runs the extraction:
+ * <pre>{@code
+ * beer.get("/users/:id", path("id", long.class), query("verbose", Boolean.class),
+ *         (id, verbose) -> users.find(id, verbose));
+ * }</pre>
+ * Path, query and header values convert to strings, primitives and their
+ * wrappers, {@code BigDecimal}, {@code BigInteger}, {@code UUID} and enums,
+ * query and header values also to arrays of these, taking every value. A
+ * value that does not convert, or a missing value of a primitive type, is
+ * answered with 400.
+ *
+ * @param <T> the type of the argument
+ */
+public final class BeerParam<T> {
+
+	private enum Source {
+		PATH, QUERY, QUERY_OBJECT, BODY, HEADER, REQUEST, RESPONSE
+	}
+
+	private final Source source;
+	private final String name;
+	private final Class<T> type;
+
+	private BeerParam(Source source, String name, Class<T> type) {
+		this.source = source;
+		this.name = name;
+		this.type = type;
+	}
+
+	/**
+	 * A path parameter, e.g. {@code id} of {@code /users/:id}.
+	 *
+	 * @param <T> the argument type
+	 * @param name the parameter name, with or without the {@code :} prefix
+	 * @param type the argument type
+	 * @return the parameter
+	 */
+	public static <T> BeerParam<T> path(String name, Class<T> type) {
+		return new BeerParam<>(Source.PATH, name.startsWith(":") ? name.substring(1) : name, type);
+	}
+
+	/**
+	 * A query parameter, {@code null} if absent.
+	 *
+	 * @param <T> the argument type
+	 * @param name the parameter name
+	 * @param type the argument type, an array type to take every value
+	 * @return the parameter
+	 */
+	public static <T> BeerParam<T> query(String name, Class<T> type) {
+		return new BeerParam<>(Source.QUERY, name, type);
+	}
+
+	/**
+	 * All query parameters, bound to an object as by
+	 * {@link BeerUtils#parseQueryParams(HttpServletRequest, Class)}.
+	 *
+	 * @param <T> the argument type
+	 * @param type the class to bind the parameters to
+	 * @return the parameter
+	 */
+	public static <T> BeerParam<T> query(Class<T> type) {
+		return new BeerParam<>(Source.QUERY_OBJECT, null, type);
+	}
+
+	/**
+	 * The JSON request body, decoded as by
+	 * {@link BeerUtils#parseBody(HttpServletRequest, Class)}.
+	 *
+	 * @param <T> the argument type
+	 * @param type the class to decode the body to
+	 * @return the parameter
+	 */
+	public static <T> BeerParam<T> body(Class<T> type) {
+		return new BeerParam<>(Source.BODY, null, type);
+	}
+
+	/**
+	 * A request header, {@code null} if absent.
+	 *
+	 * @param <T> the argument type
+	 * @param name the header name
+	 * @param type the argument type, an array type to take every value
+	 * @return the parameter
+	 */
+	public static <T> BeerParam<T> header(String name, Class<T> type) {
+		return new BeerParam<>(Source.HEADER, name, type);
+	}
+
+	/**
+	 * The request itself.
+	 *
+	 * @return the parameter
+	 */
+	public static BeerParam<HttpServletRequest> request() {
+		return new BeerParam<>(Source.REQUEST, null, HttpServletRequest.class);
+	}
+
+	/**
+	 * The response itself, e.g. to set the status or headers.
+	 *
+	 * @return the parameter
+	 */
+	public static BeerParam<HttpServletResponse> response() {
+		return new BeerParam<>(Source.RESPONSE, null, HttpServletResponse.class);
+	}
+
+	/**
+	 * Extracts the value of a parameter from a request.
+	 */
+	@FunctionalInterface
+	interface Extractor<T> {
+
+		/**
+		 * @param req the request
+		 * @param res the response
+		 * @param pathValues the path parameter values captured by the router,
+		 *                   {@code null} to read them from request attributes
+		 * @return the argument value
+		 * @throws Exception if the value can not be extracted
+		 */
+		T extract(HttpServletRequest req, HttpServletResponse res, String[] pathValues) throws Exception;
+	}
+
+	/**
+	 * Compiles the parameter for a route.
+	 *
+	 * @param pattern the route pattern
+	 * @return the extractor of the parameter
+	 * @throws IllegalArgumentException if the route has no such path
+	 *                                  parameter or the type is not supported
+	 */
+	Extractor<T> compile(String pattern) {
+		switch (source) {
+			case PATH -> {
+				var index = BeerRouter.paramNames(pattern).indexOf(name);
+				if (index < 0) {
+					throw new IllegalArgumentException("Route '" + pattern + "' has no path parameter '" + name + "'");
+				}
+				var converter = required(BeerUtils.parameterConverter(type, "path parameter '" + name + "'"));
+				return (req, res, pathValues) -> converter.apply(new String[] {
+						pathValues != null ? pathValues[index] : BeerUtils.getPathParam(req, name) });
+			}
+			case QUERY -> {
+				var converter = required(BeerUtils.parameterConverter(type, "query parameter '" + name + "'"));
+				return (req, res, pathValues) -> converter.apply(req.getParameterValues(name));
+			}
+			case HEADER -> {
+				var converter = required(BeerUtils.parameterConverter(type, "header '" + name + "'"));
+				if (type.isArray()) {
+					return (req, res, pathValues) -> {
+						var values = Collections.list(req.getHeaders(name));
+						return converter.apply(values.isEmpty() ? null : values.toArray(String[]::new));
+					};
+				}
+				return (req, res, pathValues) -> {
+					var value = req.getHeader(name);
+					return converter.apply(value != null ? new String[] { value } : null);
+				};
+			}
+			case QUERY_OBJECT -> {
+				return (req, res, pathValues) -> BeerUtils.parseQueryParams(req, type);
+			}
+			case BODY -> {
+				return (req, res, pathValues) -> BeerUtils.parseBody(req, type);
+			}
+			case REQUEST -> {
+				return (req, res, pathValues) -> type.cast(req);
+			}
+			default -> {
+				return (req, res, pathValues) -> type.cast(res);
+			}
+		}
+	}
+
+	/**
+	 * Wraps a converter to map absent values to {@code null}, or to a 400 for
+	 * a primitive type, which has no absent value.
+	 */
+	private Function<String[], T> required(Function<String[], T> converter) {
+		var description = source == Source.HEADER ? "header '" + name + "'" : source.name().toLowerCase() + " parameter '" + name + "'";
+		var primitive = type.isPrimitive();
+		return values -> {
+			var value = values != null ? converter.apply(values) : null;
+			if (value == null && primitive) {
+				throw new BadRequestException("Missing " + description);
+			}
+			return value;
+		};
+	}
+}
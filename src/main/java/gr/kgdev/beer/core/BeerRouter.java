@@ -0,0 +1,448 @@
+package gr.kgdev.beer.core;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Compiled, immutable segment trie used by {@link Beer} to resolve request URIs
+ * to their registered handlers.
+ * <p>
+ * The router is built once from Beer's route tables and supports three kinds of
+ * segments:
+ * <ul>
+ *   <li><b>Static segments</b> (e.g. {@code /api/files})</li>
+ *   <li><b>Parameter segments</b> (e.g. {@code /api/files/:fileId})</li>
+ *   <li><b>Trailing wildcard</b> (e.g. {@code /api/files/*})</li>
+ * </ul>
+ *
+ * <p>
+ * Lookups walk the request URI once, segment by segment, without regular
+ * expressions, {@code split} or intermediate substrings. Static children are
+ * resolved through an open addressing table hashed directly over the URI
+ * characters, and path parameter values are captured as offsets during the
+ * walk, so strings are only allocated for a successful match.
+ *
+ * <p>
+ * Resolution is deterministic and most specific first. Exact routes always
+ * win; otherwise, at every level of the trie a static segment is preferred
+ * over a parameter segment, and both are preferred over a wildcard registered
+ * at that level. As a result the longest matching prefix wins among wildcard
+ * routes and a parameterized route is preferred over a wildcard covering it:
+ * <pre>{@code
+ * /api/files/readme  -> /api/files/readme   (exact)
+ * /api/files/123     -> /api/files/:fileId  (param beats wildcard)
+ * /api/files/1/raw   -> /api/files/*        (longest wildcard prefix)
+ * /api/users         -> /api/*
+ * }</pre>
+ * This reverses the order of the route tables scanned before the router,
+ * which tried every wildcard before any parameterized route.
+ *
+ * <p>
+ * A lookup visits one node per segment of the URI as long as its first
+ * choice matches. When a static branch fails deeper down, the search
+ * backtracks and tries the parameter branch of the same level, then the
+ * wildcard, so a miss can re-walk the subtrees sharing a prefix; in the
+ * worst case the cost grows with the number of static and parameter
+ * branches along the URI, up to two per segment, but the route tables are
+ * never scanned.
+ *
+ * <p>
+ * Patterns that cannot be resolved unambiguously are reported by
+ * {@link #getConflicts()} when the router is compiled.
+ *
+ * <p>
+ * Instances are immutable and safe to share between request threads.
+ */
+final class BeerRouter {
+
+	private final Map<String, Map<String, RequestHandler>> exactRoutes;
+	private final Node root = new Node();
+	private final int maxParams;
+	private final List<String> conflicts = new ArrayList<>();
+
+	private BeerRouter(Map<String, Map<String, RequestHandler>> exactRoutes, int maxParams) {
+		this.exactRoutes = exactRoutes;
+		this.maxParams = maxParams;
+	}
+
+	/**
+	 * Compiles the given route tables into an immutable router.
+	 * <p>
+	 * Patterns are inserted in lexicographical order so that the resulting trie,
+	 * and the winner of any conflict, does not depend on the iteration order of
+	 * the source maps.
+	 *
+	 * @param routes exact routes, keyed by path
+	 * @param wildcardRoutes wildcard routes, keyed by pattern ending with {@code /*}
+	 * @param pathParamRoutes parameterized routes, keyed by pattern containing {@code :param}
+	 * @return the compiled router
+	 */
+	static BeerRouter compile(Map<String, Map<String, RequestHandler>> routes,
+			Map<String, Map<String, RequestHandler>> wildcardRoutes,
+			Map<String, Map<String, RequestHandler>> pathParamRoutes) {
+		var exact = new HashMap<String, Map<String, RequestHandler>>();
+		routes.forEach((path, handlers) -> {
+			// paths reserved for static files are registered without handlers
+			if (handlers != null) {
+				exact.put(path, Map.copyOf(handlers));
+			}
+		});
+
+		var maxParams = 0;
+		for (var pattern : wildcardRoutes.keySet()) {
+			maxParams = Math.max(maxParams, countParams(pattern));
+		}
+		for (var pattern : pathParamRoutes.keySet()) {
+			maxParams = Math.max(maxParams, countParams(pattern));
+		}
+
+		var router = new BeerRouter(exact, maxParams);
+		new TreeMap<>(wildcardRoutes).forEach((pattern, handlers) -> router.insert(pattern, handlers, true));
+		new TreeMap<>(pathParamRoutes).forEach((pattern, handlers) -> router.insert(pattern, handlers, false));
+		router.root.freeze();
+		return router;
+	}
+
+	/**
+	 * Returns a human readable description of every ambiguous pattern found
+	 * while compiling the router, e.g. two patterns that differ only in their
+	 * parameter names, or a {@code *} inside a segment that is not the last.
+	 *
+	 * @return the conflicts, empty if the route tables are unambiguous
+	 */
+	List<String> getConflicts() {
+		return List.copyOf(conflicts);
+	}
+
+	/**
+	 * Resolves the given request URI.
+	 *
+	 * @param uri the raw request URI
+	 * @return the match, or {@code null} if no route matches
+	 */
+	Match match(String uri) {
+		var exact = exactRoutes.get(uri);
+		if (exact != null) {
+			return new Match(uri, exact, null, null);
+		}
+
+		if (uri.isEmpty() || uri.charAt(0) != '/') {
+			return null;
+		}
+
+		var end = uri.length();
+		while (end > 0 && uri.charAt(end - 1) == '/') {
+			end--;
+		}
+
+		var captures = maxParams > 0 ? new int[maxParams * 2] : null;
+		var route = find(uri, 1, end, 0, root, captures, 0);
+		if (route == null) {
+			return null;
+		}
+
+		return new Match(route.pattern, route.handlers, route.paramNames, values(uri, captures, route.paramCount));
+	}
+
+	/**
+	 * Depth first search over the trie, most specific branch first.
+	 * <p>
+	 * {@code start} is the index of the next segment (greater than {@code end}
+	 * once every segment is consumed) and {@code prefixEnd} the index right
+	 * after the prefix matched so far, used to decide whether a wildcard
+	 * registered at {@code node} applies.
+	 */
+	private Route find(String uri, int start, int end, int prefixEnd, Node node, int[] captures, int captured) {
+		if (start > end) {
+			if (node.route != null) {
+				return node.route;
+			}
+		} else {
+			var segEnd = segmentEnd(uri, start, end);
+
+			var staticChild = node.child(uri, start, segEnd);
+			if (staticChild != null) {
+				var found = find(uri, segEnd + 1, end, segEnd, staticChild, captures, captured);
+				if (found != null) {
+					return found;
+				}
+			}
+
+			if (node.paramChild != null) {
+				captures[captured * 2] = start;
+				captures[captured * 2 + 1] = segEnd;
+				var found = find(uri, segEnd + 1, end, segEnd, node.paramChild, captures, captured + 1);
+				if (found != null) {
+					return found;
+				}
+			}
+		}
+
+		// wildcard routes match only when a '/' follows their prefix in the raw URI
+		if (node.wildcardRoute != null && prefixEnd < uri.length()) {
+			return node.wildcardRoute;
+		}
+
+		return null;
+	}
+
+	private static int segmentEnd(String uri, int start, int end) {
+		var slash = uri.indexOf('/', start);
+		return slash < 0 || slash > end ? end : slash;
+	}
+
+	private static String[] values(String uri, int[] captures, int count) {
+		if (count == 0) {
+			return null;
+		}
+		var values = new String[count];
+		for (var i = 0; i < count; i++) {
+			values[i] = uri.substring(captures[i * 2], captures[i * 2 + 1]);
+		}
+		return values;
+	}
+
+	private void insert(String pattern, Map<String, RequestHandler> handlers, boolean isWildcard) {
+		var node = root;
+		var names = new ArrayList<String>();
+		var segments = segments(pattern);
+		var last = isWildcard ? segments.size() - 1 : segments.size();
+
+		for (var i = 0; i < last; i++) {
+			var segment = segments.get(i);
+			if (segment.startsWith(":")) {
+				names.add(segment.substring(1));
+				if (node.paramChild == null) {
+					node.paramChild = new Node();
+				}
+				node = node.paramChild;
+			} else {
+				if (segment.contains("*")) {
+					conflicts.add("Route '" + pattern + "' contains a non trailing wildcard, '" + segment
+							+ "' is matched literally");
+				}
+				node = node.staticChildren.computeIfAbsent(segment, s -> new Node());
+			}
+		}
+
+		if (isWildcard) {
+			if (node.wildcardRoute == null) {
+				node.wildcardRoute = new Route(pattern, names);
+			}
+			node.wildcardRoute.add(pattern, handlers, names, conflicts);
+		} else {
+			if (node.route == null) {
+				node.route = new Route(pattern, names);
+			}
+			node.route.add(pattern, handlers, names, conflicts);
+		}
+	}
+
+	private static List<String> segments(String pattern) {
+		var segments = new ArrayList<String>();
+		var end = pattern.length();
+		while (end > 0 && pattern.charAt(end - 1) == '/') {
+			end--;
+		}
+		var start = pattern.startsWith("/") ? 1 : 0;
+		while (start <= end) {
+			var segEnd = segmentEnd(pattern, start, end);
+			segments.add(pattern.substring(start, segEnd));
+			start = segEnd + 1;
+		}
+		return segments;
+	}
+
+	/**
+	 * Returns the path parameter names of a pattern, in the order their
+	 * values are captured by {@link #match(String)}.
+	 *
+	 * @param pattern the route pattern
+	 * @return the parameter names, without the {@code :} prefix
+	 */
+	static List<String> paramNames(String pattern) {
+		var names = new ArrayList<String>();
+		for (var segment : segments(pattern)) {
+			if (segment.startsWith(":")) {
+				names.add(segment.substring(1));
+			}
+		}
+		return names;
+	}
+
+	private static int countParams(String pattern) {
+		var count = 0;
+		for (var segment : segments(pattern)) {
+			if (segment.startsWith(":")) {
+				count++;
+			}
+		}
+		return count;
+	}
+
+	/**
+	 * Result of a successful route lookup.
+	 */
+	static final class Match {
+		private final String pattern;
+		private final Map<String, RequestHandler> handlers;
+		private final Map<String, String[]> paramNames;
+		private final String[] paramValues;
+
+		private Match(String pattern, Map<String, RequestHandler> handlers, Map<String, String[]> paramNames,
+				String[] paramValues) {
+			this.pattern = pattern;
+			this.handlers = handlers;
+			this.paramNames = paramNames;
+			this.paramValues = paramValues;
+		}
+
+		/**
+		 * @return the registered route pattern that matched
+		 */
+		String getPattern() {
+			return pattern;
+		}
+
+		/**
+		 * @return the handlers of the matched route, keyed by HTTP method
+		 */
+		Map<String, RequestHandler> getHandlers() {
+			return handlers;
+		}
+
+		/**
+		 * @param method the HTTP method of the handler that will serve the request
+		 * @return the path parameter names declared by that handler's pattern,
+		 *         or {@code null} if the route has none
+		 */
+		String[] getParamNames(String method) {
+			return paramNames != null ? paramNames.get(method) : null;
+		}
+
+		/**
+		 * @return the path parameter values, in the same order as their names
+		 */
+		String[] getParamValues() {
+			return paramValues;
+		}
+	}
+
+	/**
+	 * Handlers registered on a trie node. Patterns that differ only in their
+	 * parameter names share a route, so the names are kept per HTTP method.
+	 */
+	private static final class Route {
+		private final String pattern;
+		private final String[] names;
+		private final int paramCount;
+		private Map<String, RequestHandler> handlers = new HashMap<>();
+		private Map<String, String[]> paramNames = new HashMap<>();
+
+		private Route(String pattern, List<String> names) {
+			this.pattern = pattern;
+			this.names = names.toArray(String[]::new);
+			this.paramCount = names.size();
+		}
+
+		private void add(String pattern, Map<String, RequestHandler> handlers, List<String> names,
+				List<String> conflicts) {
+			var namesArray = names.toArray(String[]::new);
+			for (var entry : handlers.entrySet()) {
+				var method = entry.getKey();
+				var existing = paramNames.get(method);
+				if (existing == null) {
+					this.handlers.put(method, entry.getValue());
+					this.paramNames.put(method, namesArray);
+				} else {
+					conflicts.add(method + " '" + pattern + "' is shadowed by " + method + " '" + this.pattern
+							+ "', both match the same requests");
+				}
+			}
+			if (!pattern.equals(this.pattern) && !Arrays.equals(namesArray, this.names)) {
+				conflicts.add("Routes '" + this.pattern + "' and '" + pattern
+						+ "' match the same requests with different parameter names");
+			}
+		}
+
+		private void freeze() {
+			handlers = Map.copyOf(handlers);
+			paramNames = Map.copyOf(paramNames);
+		}
+	}
+
+	/**
+	 * Trie node. Mutable while the router is compiled, read only afterwards.
+	 */
+	private static final class Node {
+		private Map<String, Node> staticChildren = new HashMap<>();
+		private Node paramChild;
+		private Route route;
+		private Route wildcardRoute;
+
+		// open addressing table built by freeze()
+		private String[] keys;
+		private Node[] children;
+		private int mask;
+
+		/**
+		 * Looks up the static child named by {@code uri[start, end)} without
+		 * allocating a substring.
+		 */
+		private Node child(String uri, int start, int end) {
+			if (keys == null) {
+				return null;
+			}
+			var len = end - start;
+			var i = hash(uri, start, end) & mask;
+			String key;
+			while ((key = keys[i]) != null) {
+				if (key.length() == len && key.regionMatches(0, uri, start, len)) {
+					return children[i];
+				}
+				i = (i + 1) & mask;
+			}
+			return null;
+		}
+
+		private void freeze() {
+			if (!staticChildren.isEmpty()) {
+				var capacity = Integer.highestOneBit(staticChildren.size() * 2 + 1) << 1;
+				keys = new String[capacity];
+				children = new Node[capacity];
+				mask = capacity - 1;
+				staticChildren.forEach((key, child) -> {
+					var i = hash(key, 0, key.length()) & mask;
+					while (keys[i] != null) {
+						i = (i + 1) & mask;
+					}
+					keys[i] = key;
+					children[i] = child;
+					child.freeze();
+				});
+			}
+			if (paramChild != null) {
+				paramChild.freeze();
+			}
+			if (route != null) {
+				route.freeze();
+			}
+			if (wildcardRoute != null) {
+				wildcardRoute.freeze();
+			}
+			staticChildren = null;
+		}
+
+		private static int hash(String s, int start, int end) {
+			var h = 0;
+			for (var i = start; i < end; i++) {
+				h = 31 * h + s.charAt(i);
+			}
+			return h ^ (h >>> 16);
+		}
+	}
+}
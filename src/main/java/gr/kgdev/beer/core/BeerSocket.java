@@ -1,13 +1,16 @@
 
 package gr.kgdev.beer.core;
 
-
+import java.nio.ByteBuffer;
 import java.util.function.Consumer;
 
+import org.eclipse.jetty.websocket.api.Callback;
 import org.eclipse.jetty.websocket.api.Session;
+import org.eclipse.jetty.websocket.api.StatusCode;
 import org.eclipse.jetty.websocket.api.annotations.OnWebSocketClose;
 import org.eclipse.jetty.websocket.api.annotations.OnWebSocketMessage;
 import org.eclipse.jetty.websocket.api.annotations.OnWebSocketOpen;
+import org.eclipse.jetty.websocket.api.annotations.OnWebSocketPong;
 import org.eclipse.jetty.websocket.api.annotations.WebSocket;
 
 
@@ -25,6 +28,10 @@ public class BeerSocket {
 	private final Consumer<Session> onConnect;
 	/** BiConsumer to handle incoming WebSocket messages. */
 	private final BiConsumer<Session, String> onMessage;
+	/** BiConsumer to handle incoming binary WebSocket messages. */
+	private final BiConsumer<Session, ByteBuffer> onBinary;
+	/** Consumer to handle received pongs. */
+	private final Consumer<Session> onPong;
 	/** Consumer to handle WebSocket close events. */
 	private final Consumer<Session> onClose;
 
@@ -36,8 +43,41 @@ public class BeerSocket {
 	 * @param onClose   consumer for close events
 	 */
 	public BeerSocket(Consumer<Session> onConnect, BiConsumer<Session, String> onMessage, Consumer<Session> onClose) {
+		this(onConnect, onMessage, null, onClose);
+	}
+
+	/**
+	 * Constructs a BeerSocket with custom event handlers, including binary
+	 * messages.
+	 *
+	 * @param onConnect consumer for connection events
+	 * @param onMessage bi-consumer for text message events
+	 * @param onBinary  bi-consumer for binary message events, the buffer is
+	 *                  only valid during the call
+	 * @param onClose   consumer for close events
+	 */
+	public BeerSocket(Consumer<Session> onConnect, BiConsumer<Session, String> onMessage,
+			BiConsumer<Session, ByteBuffer> onBinary, Consumer<Session> onClose) {
+		this(onConnect, onMessage, onBinary, null, onClose);
+	}
+
+	/**
+	 * Constructs a BeerSocket with custom event handlers, including binary
+	 * messages and pongs.
+	 *
+	 * @param onConnect consumer for connection events
+	 * @param onMessage bi-consumer for text message events
+	 * @param onBinary  bi-consumer for binary message events, the buffer is
+	 *                  only valid during the call
+	 * @param onPong    consumer for received pongs, e.g. to track liveness
+	 * @param onClose   consumer for close events
+	 */
+	public BeerSocket(Consumer<Session> onConnect, BiConsumer<Session, String> onMessage,
+			BiConsumer<Session, ByteBuffer> onBinary, Consumer<Session> onPong, Consumer<Session> onClose) {
 		this.onConnect = onConnect;
 		this.onMessage = onMessage;
+		this.onBinary = onBinary;
+		this.onPong = onPong;
 		this.onClose = onClose;
 	}
 
@@ -64,6 +104,41 @@ public class BeerSocket {
 			onMessage.accept(session, message);
 	}
 
+	/**
+	 * Handles an incoming binary WebSocket message. The payload is released
+	 * once the handler returns, so it is read without copying.
+	 *
+	 * @param session  the WebSocket session
+	 * @param payload  the received payload
+	 * @param callback completed once the payload has been consumed
+	 */
+	@OnWebSocketMessage
+	public void handleBinary(Session session, ByteBuffer payload, Callback callback) {
+		if (onBinary == null) {
+			session.close(StatusCode.BAD_DATA, "Binary messages not supported", Callback.NOOP);
+			callback.succeed();
+			return;
+		}
+		try {
+			onBinary.accept(session, payload);
+			callback.succeed();
+		} catch (RuntimeException e) {
+			callback.fail(e);
+		}
+	}
+
+	/**
+	 * Handles a received pong.
+	 *
+	 * @param session the WebSocket session
+	 * @param payload the pong payload
+	 */
+	@OnWebSocketPong
+	public void handlePong(Session session, ByteBuffer payload) {
+		if (onPong != null)
+			onPong.accept(session);
+	}
+
 	/**
 	 * Handles a WebSocket close event.
 	 *
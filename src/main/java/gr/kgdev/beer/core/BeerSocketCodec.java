@@ -0,0 +1,36 @@
+package gr.kgdev.beer.core;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Encoding of WebSocket messages to and from binary frames.
+ * <p>
+ * Set with {@link BeerSocketOptions#setCodec(BeerSocketCodec)} to let typed
+ * endpoints, see {@link Beer#socket(String, Class, BeerTypedSocketHandler)},
+ * decode binary messages and {@link BeerSocketSender#sendEncoded(Object)}
+ * send objects as binary frames. Plug in a compact format such as CBOR,
+ * MessagePack or Protocol Buffers for high rate endpoints; text messages are
+ * always JSON.
+ */
+public interface BeerSocketCodec {
+
+	/**
+	 * Decodes a binary message.
+	 * <p>
+	 * The buffer is only valid during the call and must not be retained.
+	 *
+	 * @param <T> the message type
+	 * @param payload the message payload
+	 * @param type the message class
+	 * @return the decoded message
+	 */
+	<T> T decode(ByteBuffer payload, Class<T> type);
+
+	/**
+	 * Encodes an object to a binary message.
+	 *
+	 * @param data the message data
+	 * @return the encoded payload, positioned at its start
+	 */
+	ByteBuffer encode(Object data);
+}
@@ -0,0 +1,57 @@
+package gr.kgdev.beer.core;
+
+import java.nio.ByteBuffer;
+
+import org.eclipse.jetty.websocket.api.Callback;
+import org.eclipse.jetty.websocket.api.StatusCode;
+
+/**
+ * Handler of a WebSocket endpoint that has access to the sending session.
+ * <p>
+ * Registered with {@link Beer#socket(String, BeerSocketHandler)}. Only
+ * {@link #onMessage(BeerSocketSession, String)} is required, so a lambda is
+ * enough for most endpoints; {@link #onOpen(BeerSocketSession)} is the place
+ * to set the user id and tags of a session, e.g. from its upgrade request.
+ * Binary messages are handled by {@link #onBinary(BeerSocketSession, ByteBuffer)}.
+ */
+@FunctionalInterface
+public interface BeerSocketHandler {
+
+	/**
+	 * Handles a text message.
+	 *
+	 * @param session the session that sent the message
+	 * @param message the message text
+	 */
+	void onMessage(BeerSocketSession session, String message);
+
+	/**
+	 * Handles a binary message. Closes the session by default, as the endpoint
+	 * does not accept binary messages.
+	 * <p>
+	 * The buffer is only valid during the call and must not be retained;
+	 * copy what is needed later.
+	 *
+	 * @param session the session that sent the message
+	 * @param message the message payload
+	 */
+	default void onBinary(BeerSocketSession session, ByteBuffer message) {
+		session.getSession().close(StatusCode.BAD_DATA, "Binary messages not supported", Callback.NOOP);
+	}
+
+	/**
+	 * Called when a session connected, after it has been registered.
+	 *
+	 * @param session the new session
+	 */
+	default void onOpen(BeerSocketSession session) {
+	}
+
+	/**
+	 * Called when a session closed, after it has been unregistered.
+	 *
+	 * @param session the closed session
+	 */
+	default void onClose(BeerSocketSession session) {
+	}
+}
@@ -0,0 +1,67 @@
+package gr.kgdev.beer.core;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.jetty.websocket.api.Callback;
+
+/**
+ * Liveness checks of the WebSocket sessions of a {@link Beer} server.
+ * <p>
+ * One daemon thread walks the sessions of every endpoint once per heartbeat
+ * interval. Sessions that received nothing for an interval are pinged,
+ * sessions that received nothing, not even the pong, for the heartbeat
+ * timeout are disconnected without a close handshake, as their peer is
+ * presumed gone. The disconnect goes through the regular close path, so
+ * the session is unregistered and its handler notified.
+ */
+final class BeerSocketHeartbeat {
+
+	private static final ByteBuffer PING = ByteBuffer.allocate(0);
+
+	private final BeerSocketRegistry registry;
+	private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+		var thread = new Thread(runnable, "beer-socket-heartbeat");
+		thread.setDaemon(true);
+		return thread;
+	});
+
+	BeerSocketHeartbeat(BeerSocketRegistry registry) {
+		this.registry = registry;
+	}
+
+	/**
+	 * Starts the heartbeat of an endpoint. Does nothing if the options
+	 * disable it.
+	 *
+	 * @param path the WebSocket route path
+	 * @param options the endpoint settings
+	 */
+	void schedule(String path, BeerSocketOptions options) {
+		var interval = options.getHeartbeatInterval();
+		if (interval == null || interval.isZero() || interval.isNegative()) {
+			return;
+		}
+		var intervalNanos = interval.toNanos();
+		var timeoutNanos = options.getHeartbeatTimeout() != null ? options.getHeartbeatTimeout().toNanos() : Long.MAX_VALUE;
+		scheduler.scheduleAtFixedRate(() -> check(path, intervalNanos, timeoutNanos), intervalNanos, intervalNanos,
+				TimeUnit.NANOSECONDS);
+	}
+
+	private void check(String path, long intervalNanos, long timeoutNanos) {
+		for (var session : registry.getSessions(path)) {
+			try {
+				var idle = session.getIdleTime().toNanos();
+				if (idle >= timeoutNanos) {
+					session.getSession().disconnect();
+				} else if (idle >= intervalNanos && session.isOpen()) {
+					session.getSession().sendPing(PING.slice(), Callback.NOOP);
+				}
+			} catch (RuntimeException e) {
+				// the session is closing, its close handler unregisters it; an exception must not cancel the task
+			}
+		}
+	}
+}
@@ -0,0 +1,357 @@
+package gr.kgdev.beer.core;
+
+import java.time.Duration;
+
+/**
+ * Settings of the WebSocket endpoints registered with
+ * {@link Beer#socket(String, java.util.function.Consumer)} and its overloads.
+ * <p>
+ * Every session gets its own bounded outbound queue (see
+ * {@link BeerSocketSender}), so a slow client only fills its own queue and
+ * never delays messages to other sessions.
+ *
+ * <p>
+ * Connections can be kept honest by a heartbeat, off by default: with a
+ * {@link #setHeartbeatInterval(Duration) heartbeat interval} set, sessions
+ * that sent nothing for an interval are pinged, and sessions that sent
+ * nothing, not even a pong, for the heartbeat timeout are disconnected.
+ * This reaps half-open connections, whose peer is gone without a close,
+ * which an idle timeout alone can not detect while writes still succeed
+ * locally. An interval of 30 seconds with the default timeout of 90 suits
+ * most deployments.
+ */
+public class BeerSocketOptions {
+
+	/**
+	 * What happens to a message sent to a session whose outbound queue is full.
+	 */
+	public enum OverflowPolicy {
+		/** The oldest queued message is dropped to make room. */
+		DROP_OLDEST,
+		/** The new message is dropped. */
+		DROP_NEWEST,
+		/**
+		 * A queued message with the same coalescing key is replaced by the new
+		 * one, keeping its place in the queue; without a match the oldest
+		 * message is dropped. Keys are honored even before the queue is full,
+		 * so a client only receives the latest state of every key.
+		 */
+		COALESCE,
+		/** The session is closed as a slow consumer. */
+		DISCONNECT
+	}
+
+	/** Maximum number of messages queued per session. */
+	private Integer maxQueueSize = 1024;
+
+	/** Maximum number of messages per session handed to the connection and not yet written. */
+	private Integer maxInFlight = 16;
+
+	/** What happens to messages sent to a session with a full queue. */
+	private OverflowPolicy overflowPolicy = OverflowPolicy.DROP_OLDEST;
+
+	/** Binary message codec, {@code null} for JSON text messages only. */
+	private BeerSocketCodec codec;
+
+	/** Connection idle timeout, zero for none. */
+	private Duration idleTimeout = Duration.ZERO;
+
+	/** Inactivity after which a session is pinged, zero disables the heartbeat. */
+	private Duration heartbeatInterval = Duration.ZERO;
+
+	/** Inactivity after which a session is disconnected. */
+	private Duration heartbeatTimeout = Duration.ofSeconds(90);
+
+	/** Maximum size of a text message in bytes. */
+	private Long maxTextMessageSize = 1048576L; // 1 mb
+
+	/** Maximum size of a binary message in bytes. */
+	private Long maxBinaryMessageSize = 1048576L; // 1 mb
+
+	/** Size of the connection read buffer, {@code null} for the Jetty default. */
+	private Integer inputBufferSize;
+
+	/** Size of the connection write buffer, {@code null} for the Jetty default. */
+	private Integer outputBufferSize;
+
+	/** Whether permessage-deflate compression is negotiated. */
+	private Boolean compressionEnabled = true;
+
+	/** Whether compression keeps its dictionary between messages. */
+	private Boolean compressionContextTakeover = true;
+
+	/**
+	 * Returns the maximum number of messages queued per session.
+	 *
+	 * @return the queue capacity
+	 */
+	public Integer getMaxQueueSize() {
+		return maxQueueSize;
+	}
+
+	/**
+	 * Sets the maximum number of messages queued per session, beyond the ones
+	 * in flight.
+	 *
+	 * @param maxQueueSize the queue capacity
+	 * @return this options instance
+	 */
+	public BeerSocketOptions setMaxQueueSize(Integer maxQueueSize) {
+		this.maxQueueSize = maxQueueSize;
+		return this;
+	}
+
+	/**
+	 * Returns the maximum number of messages per session written concurrently.
+	 *
+	 * @return the in-flight limit
+	 */
+	public Integer getMaxInFlight() {
+		return maxInFlight;
+	}
+
+	/**
+	 * Sets the maximum number of messages per session handed to the
+	 * connection and not yet written. Further messages wait in the session's
+	 * queue, where the overflow policy applies.
+	 *
+	 * @param maxInFlight the in-flight limit
+	 * @return this options instance
+	 */
+	public BeerSocketOptions setMaxInFlight(Integer maxInFlight) {
+		this.maxInFlight = maxInFlight;
+		return this;
+	}
+
+	/**
+	 * Returns what happens to messages sent to a session with a full queue.
+	 *
+	 * @return the overflow policy
+	 */
+	public OverflowPolicy getOverflowPolicy() {
+		return overflowPolicy;
+	}
+
+	/**
+	 * Sets what happens to messages sent to a session with a full queue.
+	 *
+	 * @param overflowPolicy the overflow policy
+	 * @return this options instance
+	 */
+	public BeerSocketOptions setOverflowPolicy(OverflowPolicy overflowPolicy) {
+		this.overflowPolicy = overflowPolicy;
+		return this;
+	}
+
+	/**
+	 * Returns the codec of binary messages.
+	 *
+	 * @return the codec, or {@code null} if not set
+	 */
+	public BeerSocketCodec getCodec() {
+		return codec;
+	}
+
+	/**
+	 * Sets the codec that typed endpoints decode binary messages with and
+	 * {@link BeerSocketSender#sendEncoded(Object)} encodes with.
+	 *
+	 * @param codec the binary codec, {@code null} for JSON text messages only
+	 * @return this options instance
+	 */
+	public BeerSocketOptions setCodec(BeerSocketCodec codec) {
+		this.codec = codec;
+		return this;
+	}
+
+	/**
+	 * Returns the connection idle timeout.
+	 *
+	 * @return the idle timeout, zero for none
+	 */
+	public Duration getIdleTimeout() {
+		return idleTimeout;
+	}
+
+	/**
+	 * Sets the time without any reads or writes after which a connection is
+	 * closed. Heartbeat pings count as writes, see
+	 * {@link #setHeartbeatTimeout(Duration)} for reaping unresponsive peers.
+	 *
+	 * @param idleTimeout the idle timeout, zero for none
+	 * @return this options instance
+	 */
+	public BeerSocketOptions setIdleTimeout(Duration idleTimeout) {
+		this.idleTimeout = idleTimeout;
+		return this;
+	}
+
+	/**
+	 * Returns the inactivity after which a session is pinged.
+	 *
+	 * @return the heartbeat interval, zero if disabled, as by default
+	 */
+	public Duration getHeartbeatInterval() {
+		return heartbeatInterval;
+	}
+
+	/**
+	 * Sets the time without incoming frames after which a session is pinged,
+	 * also the period of the heartbeat checks.
+	 *
+	 * @param heartbeatInterval the heartbeat interval, zero (the default) disables the heartbeat
+	 * @return this options instance
+	 */
+	public BeerSocketOptions setHeartbeatInterval(Duration heartbeatInterval) {
+		this.heartbeatInterval = heartbeatInterval;
+		return this;
+	}
+
+	/**
+	 * Returns the inactivity after which a session is disconnected.
+	 *
+	 * @return the heartbeat timeout
+	 */
+	public Duration getHeartbeatTimeout() {
+		return heartbeatTimeout;
+	}
+
+	/**
+	 * Sets the time without incoming frames, messages or pongs, after which
+	 * a session is considered dead and disconnected. Should span a few
+	 * heartbeat intervals.
+	 *
+	 * @param heartbeatTimeout the heartbeat timeout
+	 * @return this options instance
+	 */
+	public BeerSocketOptions setHeartbeatTimeout(Duration heartbeatTimeout) {
+		this.heartbeatTimeout = heartbeatTimeout;
+		return this;
+	}
+
+	/**
+	 * Returns the maximum size of a text message.
+	 *
+	 * @return the maximum size in bytes
+	 */
+	public Long getMaxTextMessageSize() {
+		return maxTextMessageSize;
+	}
+
+	/**
+	 * Sets the maximum size of a text message, larger messages close the
+	 * session. Does not apply to streaming endpoints.
+	 *
+	 * @param maxTextMessageSize the maximum size in bytes
+	 * @return this options instance
+	 */
+	public BeerSocketOptions setMaxTextMessageSize(Long maxTextMessageSize) {
+		this.maxTextMessageSize = maxTextMessageSize;
+		return this;
+	}
+
+	/**
+	 * Returns the maximum size of a binary message.
+	 *
+	 * @return the maximum size in bytes
+	 */
+	public Long getMaxBinaryMessageSize() {
+		return maxBinaryMessageSize;
+	}
+
+	/**
+	 * Sets the maximum size of a binary message, larger messages close the
+	 * session. Does not apply to streaming endpoints.
+	 *
+	 * @param maxBinaryMessageSize the maximum size in bytes
+	 * @return this options instance
+	 */
+	public BeerSocketOptions setMaxBinaryMessageSize(Long maxBinaryMessageSize) {
+		this.maxBinaryMessageSize = maxBinaryMessageSize;
+		return this;
+	}
+
+	/**
+	 * Returns the size of the connection read buffer.
+	 *
+	 * @return the buffer size in bytes, or {@code null} for the Jetty default
+	 */
+	public Integer getInputBufferSize() {
+		return inputBufferSize;
+	}
+
+	/**
+	 * Sets the size of the connection read buffer.
+	 *
+	 * @param inputBufferSize the buffer size in bytes, {@code null} for the Jetty default
+	 * @return this options instance
+	 */
+	public BeerSocketOptions setInputBufferSize(Integer inputBufferSize) {
+		this.inputBufferSize = inputBufferSize;
+		return this;
+	}
+
+	/**
+	 * Returns the size of the connection write buffer.
+	 *
+	 * @return the buffer size in bytes, or {@code null} for the Jetty default
+	 */
+	public Integer getOutputBufferSize() {
+		return outputBufferSize;
+	}
+
+	/**
+	 * Sets the size of the connection write buffer.
+	 *
+	 * @param outputBufferSize the buffer size in bytes, {@code null} for the Jetty default
+	 * @return this options instance
+	 */
+	public BeerSocketOptions setOutputBufferSize(Integer outputBufferSize) {
+		this.outputBufferSize = outputBufferSize;
+		return this;
+	}
+
+	/**
+	 * Returns whether permessage-deflate compression is negotiated.
+	 *
+	 * @return {@code true} if enabled
+	 */
+	public Boolean getCompressionEnabled() {
+		return compressionEnabled;
+	}
+
+	/**
+	 * Sets whether permessage-deflate compression is negotiated with clients
+	 * that offer it. Compression saves bandwidth on text payloads at the cost
+	 * of CPU, and hardly pays off for small or already compact messages.
+	 *
+	 * @param compressionEnabled {@code true} to enable compression
+	 * @return this options instance
+	 */
+	public BeerSocketOptions setCompressionEnabled(Boolean compressionEnabled) {
+		this.compressionEnabled = compressionEnabled;
+		return this;
+	}
+
+	/**
+	 * Returns whether compression keeps its dictionary between messages.
+	 *
+	 * @return {@code true} if context takeover is allowed
+	 */
+	public Boolean getCompressionContextTakeover() {
+		return compressionContextTakeover;
+	}
+
+	/**
+	 * Sets whether compression keeps its sliding window between messages.
+	 * Without context takeover every message is compressed on its own,
+	 * trading compression ratio for less state kept per connection.
+	 *
+	 * @param compressionContextTakeover {@code false} to negotiate no context takeover
+	 * @return this options instance
+	 */
+	public BeerSocketOptions setCompressionContextTakeover(Boolean compressionContextTakeover) {
+		this.compressionContextTakeover = compressionContextTakeover;
+		return this;
+	}
+}
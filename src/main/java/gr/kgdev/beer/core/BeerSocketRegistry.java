@@ -0,0 +1,201 @@
+package gr.kgdev.beer.core;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Predicate;
+
+import org.eclipse.jetty.websocket.api.Session;
+
+/**
+ * Registry of the connected WebSocket sessions of a {@link Beer} server.
+ * <p>
+ * Sessions are kept in {@link ConcurrentHashMap}s, per path and globally,
+ * so connects and disconnects are O(1) and only contend on a hash bin, even
+ * during connection storms. Iteration is weakly consistent and needs no
+ * copy: a broadcast walks the live map and sees every session registered
+ * before it started.
+ *
+ * <p>
+ * Sessions with a user id are also indexed by user, and topic
+ * subscriptions are indexed by topic, so the sessions of a user or the
+ * subscribers of a topic are found without scanning the connections.
+ */
+public class BeerSocketRegistry {
+
+	private final Map<Session, BeerSocketSession> sessions = new ConcurrentHashMap<>();
+	private final Map<String, Map<Session, BeerSocketSession>> paths = new ConcurrentHashMap<>();
+	private final Map<String, Set<BeerSocketSession>> users = new ConcurrentHashMap<>();
+	private final BeerSocketTopics topics = new BeerSocketTopics();
+
+	/**
+	 * Registers a newly connected session.
+	 *
+	 * @param path the route path
+	 * @param session the Jetty session
+	 * @param options the outbound queue settings
+	 * @return the registered session
+	 */
+	BeerSocketSession register(String path, Session session, BeerSocketOptions options) {
+		var socketSession = new BeerSocketSession(session, path, new BeerSocketSender(session, options), this);
+		sessions.put(session, socketSession);
+		paths.computeIfAbsent(path, p -> new ConcurrentHashMap<>()).put(session, socketSession);
+		return socketSession;
+	}
+
+	/**
+	 * Removes a session and fails its queued messages. Does nothing if the
+	 * session is not registered.
+	 *
+	 * @param session the Jetty session
+	 * @return the removed session, or {@code null}
+	 */
+	BeerSocketSession unregister(Session session) {
+		var socketSession = sessions.remove(session);
+		if (socketSession == null) {
+			return null;
+		}
+
+		var pathSessions = paths.get(socketSession.getPath());
+		if (pathSessions != null) {
+			pathSessions.remove(session);
+		}
+		// same lock as setUserId and subscribe, so concurrent changes can not re-index the removed session
+		synchronized (socketSession) {
+			var userId = socketSession.getUserId();
+			if (userId != null) {
+				userChanged(socketSession, userId, null);
+			}
+			for (var topic : socketSession.getSubscriptions()) {
+				topics.unsubscribe(topic, socketSession);
+			}
+		}
+		socketSession.getSender().close();
+		return socketSession;
+	}
+
+	void userChanged(BeerSocketSession session, String previous, String userId) {
+		if (previous != null) {
+			users.computeIfPresent(previous, (id, set) -> {
+				set.remove(session);
+				return set.isEmpty() ? null : set;
+			});
+		}
+		if (userId != null && isRegistered(session)) {
+			users.compute(userId, (id, set) -> {
+				set = set != null ? set : ConcurrentHashMap.newKeySet();
+				set.add(session);
+				return set;
+			});
+		}
+	}
+
+	/**
+	 * Returns whether a session is still registered.
+	 */
+	boolean isRegistered(BeerSocketSession session) {
+		return sessions.containsKey(session.getSession());
+	}
+
+	BeerSocketTopics getTopics() {
+		return topics;
+	}
+
+	/**
+	 * Returns the sessions subscribed to a topic, directly or through a
+	 * wildcard pattern, each once.
+	 *
+	 * @param topic the concrete topic, without wildcards
+	 * @return the subscribers
+	 * @throws IllegalArgumentException if the topic contains wildcards
+	 * @see BeerSocketSession#subscribe(String)
+	 */
+	public Collection<BeerSocketSession> getSubscribers(String topic) {
+		return topics.subscribers(topic);
+	}
+
+	/**
+	 * Returns the registered session wrapping a Jetty session.
+	 *
+	 * @param session the Jetty session
+	 * @return the registered session, or {@code null} if not connected
+	 */
+	public BeerSocketSession get(Session session) {
+		return sessions.get(session);
+	}
+
+	/**
+	 * Returns the sessions connected to a path, as a live, weakly consistent
+	 * view.
+	 *
+	 * @param path the route path
+	 * @return the sessions of the path, empty if none
+	 */
+	public Collection<BeerSocketSession> getSessions(String path) {
+		var pathSessions = paths.get(path);
+		return pathSessions != null ? Collections.unmodifiableCollection(pathSessions.values()) : List.of();
+	}
+
+	/**
+	 * Returns all connected sessions, as a live, weakly consistent view.
+	 *
+	 * @return the connected sessions
+	 */
+	public Collection<BeerSocketSession> getSessions() {
+		return Collections.unmodifiableCollection(sessions.values());
+	}
+
+	/**
+	 * Returns the sessions of a path matching a filter, e.g. on tags or attributes.
+	 *
+	 * @param path the route path
+	 * @param filter the session filter
+	 * @return a snapshot of the matching sessions
+	 */
+	public List<BeerSocketSession> getSessions(String path, Predicate<BeerSocketSession> filter) {
+		return getSessions(path).stream().filter(filter).toList();
+	}
+
+	/**
+	 * Returns the sessions of a user, across all paths.
+	 *
+	 * @param userId the user id
+	 * @return a live view of the user's sessions, empty if none
+	 */
+	public Collection<BeerSocketSession> getUserSessions(String userId) {
+		var userSessions = users.get(userId);
+		return userSessions != null ? Collections.unmodifiableCollection(userSessions) : List.of();
+	}
+
+	/**
+	 * Returns the number of sessions connected to a path.
+	 *
+	 * @param path the route path
+	 * @return the session count
+	 */
+	public int count(String path) {
+		var pathSessions = paths.get(path);
+		return pathSessions != null ? pathSessions.size() : 0;
+	}
+
+	/**
+	 * Returns the number of connected sessions.
+	 *
+	 * @return the session count
+	 */
+	public int count() {
+		return sessions.size();
+	}
+
+	/**
+	 * Returns the paths that had sessions connected.
+	 *
+	 * @return the route paths
+	 */
+	public Set<String> getPaths() {
+		return Collections.unmodifiableSet(paths.keySet());
+	}
+}
@@ -0,0 +1,333 @@
+package gr.kgdev.beer.core;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+import org.eclipse.jetty.websocket.api.Callback;
+import org.eclipse.jetty.websocket.api.Session;
+import org.eclipse.jetty.websocket.api.StatusCode;
+
+import gr.kgdev.beer.core.BeerSocketOptions.OverflowPolicy;
+import gr.kgdev.beer.utils.BeerUtils;
+
+/**
+ * Bounded outbound queue of a single WebSocket session.
+ * <p>
+ * At most {@code maxInFlight} messages are handed to the connection at a
+ * time, the rest wait in a queue of at most {@code maxQueueSize} messages
+ * whose overflow is handled by the configured
+ * {@link BeerSocketOptions.OverflowPolicy}. Sends never block and never
+ * throw: the outcome of every message is reported through its completion,
+ * {@code true} once written and {@code false} if it was dropped, coalesced
+ * away or failed.
+ *
+ * <p>
+ * Messages are written through the public {@link Session} API, so they are
+ * ordered with the ones sent on the session directly. Binary payloads are
+ * written over a slice of the given buffer, so a payload shared by many
+ * sessions is never copied.
+ */
+public class BeerSocketSender {
+
+	private final Session session;
+	private final int maxQueueSize;
+	private final int maxInFlight;
+	private final OverflowPolicy overflowPolicy;
+	private final BeerSocketCodec codec;
+
+	private final ArrayDeque<Message> queue = new ArrayDeque<>();
+	private int inFlight;
+	private boolean draining;
+	private boolean closed;
+	private int maxQueueDepth;
+
+	private final LongAdder sent = new LongAdder();
+	private final LongAdder dropped = new LongAdder();
+	private final LongAdder failed = new LongAdder();
+
+	/**
+	 * Creates the sender of a session.
+	 *
+	 * @param session the WebSocket session
+	 * @param options the queue settings
+	 */
+	public BeerSocketSender(Session session, BeerSocketOptions options) {
+		this.session = session;
+		this.maxQueueSize = Math.max(0, options.getMaxQueueSize());
+		this.maxInFlight = Math.max(1, options.getMaxInFlight());
+		this.overflowPolicy = options.getOverflowPolicy();
+		this.codec = options.getCodec();
+	}
+
+	/**
+	 * Returns the session this sender writes to.
+	 *
+	 * @return the WebSocket session
+	 */
+	public Session getSession() {
+		return session;
+	}
+
+	/**
+	 * Queues an object for sending, serialized to JSON.
+	 *
+	 * @param data the message data
+	 * @return a future completed with {@code true} once written, {@code false}
+	 *         if the message was dropped or failed
+	 */
+	public CompletableFuture<Boolean> send(Object data) {
+		return send(BeerUtils.json(data), null);
+	}
+
+	/**
+	 * Queues a text message for sending.
+	 *
+	 * @param text the message text
+	 * @param coalesceKey the key under which the message replaces a queued one
+	 *                    with the {@code COALESCE} policy, may be {@code null}
+	 * @return a future completed with {@code true} once written, {@code false}
+	 *         if the message was dropped or failed
+	 */
+	public CompletableFuture<Boolean> send(String text, String coalesceKey) {
+		var future = new CompletableFuture<Boolean>();
+		enqueue(null, text, coalesceKey, future::complete);
+		return future;
+	}
+
+	/**
+	 * Queues a binary message.
+	 *
+	 * @param payload the message payload, sent as a slice so it may be shared
+	 * @return a future completed with {@code true} once written, {@code false}
+	 *         if the message was dropped or failed
+	 */
+	public CompletableFuture<Boolean> sendBinary(ByteBuffer payload) {
+		var future = new CompletableFuture<Boolean>();
+		enqueue(payload, null, null, future::complete);
+		return future;
+	}
+
+	/**
+	 * Queues an object for sending as a binary message, encoded with the
+	 * {@link BeerSocketCodec} of the endpoint.
+	 *
+	 * @param data the message data
+	 * @return a future completed with {@code true} once written, {@code false}
+	 *         if the message was dropped or failed
+	 * @throws IllegalStateException if the endpoint has no codec
+	 */
+	public CompletableFuture<Boolean> sendEncoded(Object data) {
+		if (codec == null) {
+			throw new IllegalStateException("No codec configured for the socket options of this session");
+		}
+		return sendBinary(codec.encode(data));
+	}
+
+	/**
+	 * Queues a text or a binary message.
+	 *
+	 * @param payload the binary message, sent as a slice so it may be shared,
+	 *                {@code null} for a text message
+	 * @param text the text message, {@code null} for a binary message
+	 * @param coalesceKey the coalescing key, may be {@code null}
+	 * @param done called once with the outcome of the message
+	 */
+	void enqueue(ByteBuffer payload, String text, String coalesceKey, Consumer<Boolean> done) {
+		var message = new Message(payload, text, coalesceKey, done);
+		var rejected = new ArrayList<Message>(1);
+		var disconnect = false;
+
+		synchronized (this) {
+			if (closed || !session.isOpen()) {
+				rejected.add(message);
+			} else if (coalesceKey != null && overflowPolicy == OverflowPolicy.COALESCE && replace(message, rejected)) {
+				// replaced a queued message in place
+			} else if (inFlight < maxInFlight || queue.size() < maxQueueSize) {
+				queue.add(message);
+			} else {
+				switch (overflowPolicy) {
+					case DROP_OLDEST, COALESCE -> {
+						var oldest = queue.poll();
+						rejected.add(oldest != null ? oldest : message);
+						if (oldest != null) {
+							queue.add(message);
+						}
+					}
+					case DROP_NEWEST -> rejected.add(message);
+					case DISCONNECT -> {
+						rejected.add(message);
+						disconnect = true;
+					}
+				}
+			}
+			maxQueueDepth = Math.max(maxQueueDepth, queue.size());
+		}
+
+		for (var m : rejected) {
+			dropped.increment();
+			m.done.accept(false);
+		}
+		if (disconnect) {
+			session.close(StatusCode.POLICY_VIOLATION, "Slow consumer", Callback.NOOP);
+			close();
+		}
+		drain();
+	}
+
+	private boolean replace(Message message, ArrayList<Message> rejected) {
+		for (var queued : queue) {
+			if (message.coalesceKey.equals(queued.coalesceKey)) {
+				// the queued entry keeps its position and takes over the new content and completion
+				rejected.add(new Message(queued.payload, queued.text, queued.coalesceKey, queued.done));
+				queued.payload = message.payload;
+				queued.text = message.text;
+				queued.done = message.done;
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Fails every queued message and rejects further ones, called when the
+	 * session closes.
+	 */
+	void close() {
+		ArrayList<Message> pending;
+		synchronized (this) {
+			closed = true;
+			pending = new ArrayList<>(queue);
+			queue.clear();
+		}
+		for (var m : pending) {
+			dropped.increment();
+			m.done.accept(false);
+		}
+	}
+
+	/**
+	 * Hands queued messages to the connection until the in-flight limit is
+	 * reached. Completions of synchronous writes re-enter this method, the
+	 * draining flag turns that recursion into iterations of the outer loop.
+	 */
+	private void drain() {
+		synchronized (this) {
+			if (draining) {
+				return;
+			}
+			draining = true;
+		}
+
+		while (true) {
+			Message next;
+			synchronized (this) {
+				if (inFlight >= maxInFlight || queue.isEmpty()) {
+					draining = false;
+					return;
+				}
+				next = queue.poll();
+				inFlight++;
+			}
+			write(next);
+		}
+	}
+
+	private void write(Message message) {
+		Runnable succeeded = () -> complete(message, true);
+		Consumer<Throwable> failure = x -> complete(message, false);
+		try {
+			if (message.text == null) {
+				session.sendBinary(message.payload.slice(), Callback.from(succeeded, failure));
+			} else {
+				session.sendText(message.text, Callback.from(succeeded, failure));
+			}
+		} catch (RuntimeException e) {
+			complete(message, false);
+		}
+	}
+
+	private void complete(Message message, boolean success) {
+		synchronized (this) {
+			inFlight--;
+		}
+		(success ? sent : failed).increment();
+		message.done.accept(success);
+		drain();
+	}
+
+	/**
+	 * Returns the number of messages waiting in the queue.
+	 *
+	 * @return the current queue depth
+	 */
+	public synchronized int getQueueDepth() {
+		return queue.size();
+	}
+
+	/**
+	 * Returns the highest queue depth reached so far.
+	 *
+	 * @return the maximum queue depth
+	 */
+	public synchronized int getMaxQueueDepth() {
+		return maxQueueDepth;
+	}
+
+	/**
+	 * Returns the number of messages handed to the connection and not yet written.
+	 *
+	 * @return the in-flight message count
+	 */
+	public synchronized int getInFlight() {
+		return inFlight;
+	}
+
+	/**
+	 * Returns the number of messages written to the session.
+	 *
+	 * @return the sent message count
+	 */
+	public long getSentCount() {
+		return sent.sum();
+	}
+
+	/**
+	 * Returns the number of messages dropped by the overflow policy, replaced
+	 * by coalescing, or discarded because the session closed.
+	 *
+	 * @return the dropped message count
+	 */
+	public long getDroppedCount() {
+		return dropped.sum();
+	}
+
+	/**
+	 * Returns the number of messages whose write failed.
+	 *
+	 * @return the failed message count
+	 */
+	public long getFailedCount() {
+		return failed.sum();
+	}
+
+	/**
+	 * A queued message, its content is replaced in place when coalesced.
+	 */
+	private static final class Message {
+		private ByteBuffer payload;
+		private String text;
+		private final String coalesceKey;
+		private Consumer<Boolean> done;
+
+		private Message(ByteBuffer payload, String text, String coalesceKey, Consumer<Boolean> done) {
+			this.payload = payload;
+			this.text = text;
+			this.coalesceKey = coalesceKey;
+			this.done = done;
+		}
+	}
+}
@@ -0,0 +1,266 @@
+package gr.kgdev.beer.core;
+
+import java.nio.ByteBuffer;
+import java.time.Duration;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.eclipse.jetty.websocket.api.Session;
+
+/**
+ * A connected WebSocket session as tracked by the {@link BeerSocketRegistry}.
+ * <p>
+ * Wraps the Jetty {@link Session} together with its route path, its
+ * {@link BeerSocketSender} outbound queue, its topic subscriptions, and
+ * application attributes: a user id and tags, which targeted sends can
+ * select sessions by, and arbitrary named attributes.
+ */
+public class BeerSocketSession {
+
+	private final Session session;
+	private final String path;
+	private final BeerSocketSender sender;
+	private final BeerSocketRegistry registry;
+	private final Set<String> tags = ConcurrentHashMap.newKeySet();
+	private final Map<String, Object> attributes = new ConcurrentHashMap<>();
+	private final Set<String> subscriptions = ConcurrentHashMap.newKeySet();
+	private volatile String userId;
+	private volatile long lastActivity = System.nanoTime();
+
+	BeerSocketSession(Session session, String path, BeerSocketSender sender, BeerSocketRegistry registry) {
+		this.session = session;
+		this.path = path;
+		this.sender = sender;
+		this.registry = registry;
+	}
+
+	/**
+	 * Returns the underlying Jetty session.
+	 *
+	 * @return the WebSocket session
+	 */
+	public Session getSession() {
+		return session;
+	}
+
+	/**
+	 * Returns the route path the session connected to.
+	 *
+	 * @return the WebSocket route path
+	 */
+	public String getPath() {
+		return path;
+	}
+
+	/**
+	 * Returns the outbound queue of the session.
+	 *
+	 * @return the session sender
+	 */
+	public BeerSocketSender getSender() {
+		return sender;
+	}
+
+	/**
+	 * Returns the time since the session last received a frame, a message or
+	 * a pong.
+	 *
+	 * @return the inactivity of the session
+	 */
+	public Duration getIdleTime() {
+		return Duration.ofNanos(System.nanoTime() - lastActivity);
+	}
+
+	/**
+	 * Records incoming traffic, for the heartbeat.
+	 */
+	void touch() {
+		lastActivity = System.nanoTime();
+	}
+
+	/**
+	 * Returns whether the session is still open.
+	 *
+	 * @return {@code true} if open
+	 */
+	public boolean isOpen() {
+		return session.isOpen();
+	}
+
+	/**
+	 * Queues an object for sending to this session, serialized to JSON.
+	 *
+	 * @param data the message data
+	 * @return a future completed with {@code true} once written, {@code false}
+	 *         if the message was dropped or failed
+	 */
+	public CompletableFuture<Boolean> send(Object data) {
+		return sender.send(data);
+	}
+
+	/**
+	 * Queues a binary message for sending to this session.
+	 *
+	 * @param payload the message payload
+	 * @return a future completed with {@code true} once written, {@code false}
+	 *         if the message was dropped or failed
+	 */
+	public CompletableFuture<Boolean> sendBinary(ByteBuffer payload) {
+		return sender.sendBinary(payload);
+	}
+
+	/**
+	 * Queues an object for sending to this session as a binary message,
+	 * encoded with the {@link BeerSocketCodec} of its endpoint.
+	 *
+	 * @param data the message data
+	 * @return a future completed with {@code true} once written, {@code false}
+	 *         if the message was dropped or failed
+	 * @throws IllegalStateException if the endpoint has no codec
+	 */
+	public CompletableFuture<Boolean> sendEncoded(Object data) {
+		return sender.sendEncoded(data);
+	}
+
+	/**
+	 * Returns the id of the user this session belongs to.
+	 *
+	 * @return the user id, or {@code null} if not set
+	 */
+	public String getUserId() {
+		return userId;
+	}
+
+	/**
+	 * Sets the id of the user this session belongs to, indexing the session
+	 * for per-user lookups.
+	 *
+	 * @param userId the user id, or {@code null} to clear it
+	 * @return this session
+	 */
+	public BeerSocketSession setUserId(String userId) {
+		synchronized (this) {
+			var previous = this.userId;
+			this.userId = userId;
+			registry.userChanged(this, previous, userId);
+		}
+		return this;
+	}
+
+	/**
+	 * Adds a tag to the session.
+	 *
+	 * @param tag the tag
+	 * @return this session
+	 */
+	public BeerSocketSession addTag(String tag) {
+		tags.add(tag);
+		return this;
+	}
+
+	/**
+	 * Removes a tag from the session.
+	 *
+	 * @param tag the tag
+	 * @return this session
+	 */
+	public BeerSocketSession removeTag(String tag) {
+		tags.remove(tag);
+		return this;
+	}
+
+	/**
+	 * Returns whether the session has the given tag.
+	 *
+	 * @param tag the tag
+	 * @return {@code true} if tagged
+	 */
+	public boolean hasTag(String tag) {
+		return tags.contains(tag);
+	}
+
+	/**
+	 * Returns the tags of the session.
+	 *
+	 * @return an unmodifiable view of the tags
+	 */
+	public Set<String> getTags() {
+		return Collections.unmodifiableSet(tags);
+	}
+
+	/**
+	 * Returns a named attribute.
+	 *
+	 * @param name the attribute name
+	 * @return the attribute value, or {@code null} if not set
+	 */
+	public Object getAttribute(String name) {
+		return attributes.get(name);
+	}
+
+	/**
+	 * Sets a named attribute.
+	 *
+	 * @param name the attribute name
+	 * @param value the attribute value, {@code null} removes it
+	 * @return this session
+	 */
+	public BeerSocketSession setAttribute(String name, Object value) {
+		if (value == null) {
+			attributes.remove(name);
+		} else {
+			attributes.put(name, value);
+		}
+		return this;
+	}
+
+	/**
+	 * Subscribes the session to a topic, so it receives the messages
+	 * published to it with {@link Beer#publish(String, Object)}.
+	 * <p>
+	 * Topics are {@code /} separated levels; {@code +} matches one level and
+	 * a trailing {@code #} any number of levels, e.g. {@code orders/+/created}
+	 * or {@code orders/#}. Subscriptions end when the session closes.
+	 *
+	 * @param topic the topic or topic pattern
+	 * @return this session
+	 * @throws IllegalArgumentException if the pattern is invalid
+	 */
+	public BeerSocketSession subscribe(String topic) {
+		synchronized (this) {
+			// indexed first, so an invalid pattern never reaches the subscriptions unregister walks
+			if (registry.isRegistered(this) && !subscriptions.contains(topic)) {
+				registry.getTopics().subscribe(topic, this);
+				subscriptions.add(topic);
+			}
+		}
+		return this;
+	}
+
+	/**
+	 * Unsubscribes the session from a topic.
+	 *
+	 * @param topic the topic or topic pattern, as subscribed
+	 * @return this session
+	 */
+	public BeerSocketSession unsubscribe(String topic) {
+		synchronized (this) {
+			if (subscriptions.remove(topic)) {
+				registry.getTopics().unsubscribe(topic, this);
+			}
+		}
+		return this;
+	}
+
+	/**
+	 * Returns the topics the session is subscribed to.
+	 *
+	 * @return an unmodifiable view of the subscriptions
+	 */
+	public Set<String> getSubscriptions() {
+		return Collections.unmodifiableSet(subscriptions);
+	}
+}
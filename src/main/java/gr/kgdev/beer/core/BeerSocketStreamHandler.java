@@ -0,0 +1,59 @@
+package gr.kgdev.beer.core;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
+
+import org.eclipse.jetty.websocket.api.Callback;
+import org.eclipse.jetty.websocket.api.StatusCode;
+
+/**
+ * Handler of a WebSocket endpoint that reads messages as streams.
+ * <p>
+ * Registered with {@link Beer#streamingSocket(String, BeerSocketStreamHandler)}.
+ * Every message is handed over while its frames still arrive, so large
+ * payloads are processed in constant memory instead of being aggregated,
+ * and the maximum message size of the endpoint does not apply. The handler
+ * runs on its own thread and may block on reading; the next message is only
+ * delivered after it returns.
+ */
+@FunctionalInterface
+public interface BeerSocketStreamHandler {
+
+	/**
+	 * Handles a text message.
+	 *
+	 * @param session the session that sent the message
+	 * @param message the message text, ends with the message
+	 * @throws IOException if reading the message fails
+	 */
+	void onMessage(BeerSocketSession session, Reader message) throws IOException;
+
+	/**
+	 * Handles a binary message. Closes the session by default, as the endpoint
+	 * does not accept binary messages.
+	 *
+	 * @param session the session that sent the message
+	 * @param message the message payload, ends with the message
+	 * @throws IOException if reading the message fails
+	 */
+	default void onBinary(BeerSocketSession session, InputStream message) throws IOException {
+		session.getSession().close(StatusCode.BAD_DATA, "Binary messages not supported", Callback.NOOP);
+	}
+
+	/**
+	 * Called when a session connected, after it has been registered.
+	 *
+	 * @param session the new session
+	 */
+	default void onOpen(BeerSocketSession session) {
+	}
+
+	/**
+	 * Called when a session closed, after it has been unregistered.
+	 *
+	 * @param session the closed session
+	 */
+	default void onClose(BeerSocketSession session) {
+	}
+}
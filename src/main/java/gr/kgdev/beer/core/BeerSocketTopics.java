@@ -0,0 +1,185 @@
+package gr.kgdev.beer.core;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Inverted index from topics to subscribed sessions.
+ * <p>
+ * Topics are {@code /} separated, e.g. {@code orders/eu/42}. Subscriptions
+ * may use wildcards: {@code +} matches exactly one level and a trailing
+ * {@code #} matches any number of levels, including none, so
+ * {@code orders/+/42} and {@code orders/#} both match {@code orders/eu/42}.
+ *
+ * <p>
+ * Exact subscriptions are kept in a hash map and wildcard subscriptions in
+ * a trie of topic levels, so resolving the subscribers of a published topic
+ * costs one lookup plus a walk bounded by the topic depth, and never
+ * depends on the number of connections. Reads are lock-free, subscription
+ * changes to wildcard patterns are serialized.
+ */
+final class BeerSocketTopics {
+
+	private static final String SINGLE_LEVEL = "+";
+	private static final String MULTI_LEVEL = "#";
+
+	private final Map<String, Set<BeerSocketSession>> exact = new ConcurrentHashMap<>();
+	private final Node wildcards = new Node();
+
+	/**
+	 * Subscribes a session to a topic or topic pattern.
+	 *
+	 * @param topic the topic, may contain wildcards
+	 * @param session the subscriber
+	 * @throws IllegalArgumentException if the pattern is invalid
+	 */
+	void subscribe(String topic, BeerSocketSession session) {
+		var levels = levels(topic, true);
+		if (!isPattern(levels)) {
+			exact.compute(topic, (t, set) -> {
+				set = set != null ? set : ConcurrentHashMap.newKeySet();
+				set.add(session);
+				return set;
+			});
+			return;
+		}
+
+		synchronized (wildcards) {
+			var node = wildcards;
+			for (var level : levels) {
+				node = node.children.computeIfAbsent(level, l -> new Node());
+			}
+			node.subscribers.add(session);
+		}
+	}
+
+	/**
+	 * Unsubscribes a session from a topic or topic pattern.
+	 *
+	 * @param topic the topic, as subscribed
+	 * @param session the subscriber
+	 */
+	void unsubscribe(String topic, BeerSocketSession session) {
+		var levels = levels(topic, true);
+		if (!isPattern(levels)) {
+			exact.computeIfPresent(topic, (t, set) -> {
+				set.remove(session);
+				return set.isEmpty() ? null : set;
+			});
+			return;
+		}
+
+		synchronized (wildcards) {
+			remove(wildcards, levels, 0, session);
+		}
+	}
+
+	/**
+	 * Removes empty nodes on the way back, so churned patterns do not leak.
+	 */
+	private boolean remove(Node node, String[] levels, int i, BeerSocketSession session) {
+		if (i == levels.length) {
+			node.subscribers.remove(session);
+		} else {
+			var child = node.children.get(levels[i]);
+			if (child != null && remove(child, levels, i + 1, session)) {
+				node.children.remove(levels[i]);
+			}
+		}
+		return node.subscribers.isEmpty() && node.children.isEmpty();
+	}
+
+	/**
+	 * Returns the sessions subscribed to a published topic, each once.
+	 *
+	 * @param topic the concrete topic, without wildcards
+	 * @return the subscribers
+	 * @throws IllegalArgumentException if the topic contains wildcards
+	 */
+	Collection<BeerSocketSession> subscribers(String topic) {
+		var levels = levels(topic, false);
+		var direct = exact.get(topic);
+
+		var matched = new ArrayList<Set<BeerSocketSession>>(2);
+		if (!wildcards.children.isEmpty()) {
+			match(wildcards, levels, 0, matched);
+		}
+		if (matched.isEmpty()) {
+			// the common case, the exact subscriber set is delivered to as is
+			return direct != null ? Collections.unmodifiableSet(direct) : List.of();
+		}
+
+		// a session may match several patterns but must receive the message once
+		var all = new HashSet<BeerSocketSession>();
+		if (direct != null) {
+			all.addAll(direct);
+		}
+		for (var set : matched) {
+			all.addAll(set);
+		}
+		return all;
+	}
+
+	private void match(Node node, String[] levels, int i, List<Set<BeerSocketSession>> matched) {
+		var multi = node.children.get(MULTI_LEVEL);
+		if (multi != null && !multi.subscribers.isEmpty()) {
+			matched.add(multi.subscribers);
+		}
+		if (i == levels.length) {
+			if (!node.subscribers.isEmpty()) {
+				matched.add(node.subscribers);
+			}
+			return;
+		}
+
+		var literal = node.children.get(levels[i]);
+		if (literal != null) {
+			match(literal, levels, i + 1, matched);
+		}
+		var single = node.children.get(SINGLE_LEVEL);
+		if (single != null) {
+			match(single, levels, i + 1, matched);
+		}
+	}
+
+	private static String[] levels(String topic, boolean patternAllowed) {
+		if (topic == null || topic.isEmpty()) {
+			throw new IllegalArgumentException("Topic must not be empty");
+		}
+		var levels = topic.split("/", -1);
+		for (var i = 0; i < levels.length; i++) {
+			var level = levels[i];
+			var wildcard = level.equals(SINGLE_LEVEL) || level.equals(MULTI_LEVEL);
+			if (!wildcard && (level.contains(SINGLE_LEVEL) || level.contains(MULTI_LEVEL))) {
+				throw new IllegalArgumentException("Wildcards must occupy a whole topic level: " + topic);
+			}
+			if (wildcard && !patternAllowed) {
+				throw new IllegalArgumentException("Published topics can not contain wildcards: " + topic);
+			}
+			if (level.equals(MULTI_LEVEL) && i != levels.length - 1) {
+				throw new IllegalArgumentException("# must be the last topic level: " + topic);
+			}
+		}
+		return levels;
+	}
+
+	private static boolean isPattern(String[] levels) {
+		for (var level : levels) {
+			if (level.equals(SINGLE_LEVEL) || level.equals(MULTI_LEVEL)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private static final class Node {
+		private final Map<String, Node> children = new ConcurrentHashMap<>();
+		private final Set<BeerSocketSession> subscribers = ConcurrentHashMap.newKeySet();
+	}
+}
@@ -0,0 +1,91 @@
+package gr.kgdev.beer.core;
+
+import java.io.FilterInputStream;
+import java.io.FilterReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
+import java.nio.ByteBuffer;
+
+import org.eclipse.jetty.websocket.api.Session;
+import org.eclipse.jetty.websocket.api.annotations.OnWebSocketClose;
+import org.eclipse.jetty.websocket.api.annotations.OnWebSocketMessage;
+import org.eclipse.jetty.websocket.api.annotations.OnWebSocketOpen;
+import org.eclipse.jetty.websocket.api.annotations.OnWebSocketPong;
+import org.eclipse.jetty.websocket.api.annotations.WebSocket;
+
+/**
+ * WebSocket endpoint that hands messages over as streams.
+ * <p>
+ * Jetty dispatches every message to a reader or input stream fed by the
+ * incoming frames, instead of aggregating it first, see
+ * {@link BeerSocketStreamHandler}. Public only because Jetty invokes the
+ * annotated methods through a public lookup.
+ */
+@WebSocket
+public final class BeerStreamingSocket {
+
+	private final String path;
+	private final BeerSocketOptions options;
+	private final BeerSocketStreamHandler handler;
+	private final BeerSocketRegistry registry;
+
+	BeerStreamingSocket(String path, BeerSocketOptions options, BeerSocketStreamHandler handler, BeerSocketRegistry registry) {
+		this.path = path;
+		this.options = options;
+		this.handler = handler;
+		this.registry = registry;
+	}
+
+	@OnWebSocketOpen
+	public void handleConnect(Session session) {
+		handler.onOpen(registry.register(path, session, options));
+	}
+
+	@OnWebSocketMessage
+	public void handleMessage(Session session, Reader message) throws IOException {
+		var socketSession = registry.get(session);
+		if (socketSession != null) {
+			socketSession.touch();
+			handler.onMessage(socketSession, new FilterReader(message) {
+				@Override
+				public int read(char[] buffer, int offset, int length) throws IOException {
+					// a long message is traffic too, keep the heartbeat from reaping its session
+					socketSession.touch();
+					return super.read(buffer, offset, length);
+				}
+			});
+		}
+	}
+
+	@OnWebSocketMessage
+	public void handleBinary(Session session, InputStream message) throws IOException {
+		var socketSession = registry.get(session);
+		if (socketSession != null) {
+			socketSession.touch();
+			handler.onBinary(socketSession, new FilterInputStream(message) {
+				@Override
+				public int read(byte[] buffer, int offset, int length) throws IOException {
+					socketSession.touch();
+					return super.read(buffer, offset, length);
+				}
+			});
+		}
+	}
+
+	@OnWebSocketPong
+	public void handlePong(Session session, ByteBuffer payload) {
+		var socketSession = registry.get(session);
+		if (socketSession != null) {
+			socketSession.touch();
+		}
+	}
+
+	@OnWebSocketClose
+	public void handleClose(Session session, int statusCode, String reason) {
+		var socketSession = registry.unregister(session);
+		if (socketSession != null) {
+			handler.onClose(socketSession);
+		}
+	}
+}
@@ -0,0 +1,39 @@
+package gr.kgdev.beer.core;
+
+/**
+ * Handler of a WebSocket endpoint whose messages are decoded to a type.
+ * <p>
+ * Registered with {@link Beer#socket(String, Class, BeerTypedSocketHandler)}.
+ * Text messages are decoded from JSON and binary messages with the
+ * {@link BeerSocketCodec} of the endpoint options, once per message and
+ * without an intermediate representation.
+ *
+ * @param <T> the message type
+ */
+@FunctionalInterface
+public interface BeerTypedSocketHandler<T> {
+
+	/**
+	 * Handles a decoded message.
+	 *
+	 * @param session the session that sent the message
+	 * @param message the decoded message
+	 */
+	void onMessage(BeerSocketSession session, T message);
+
+	/**
+	 * Called when a session connected, after it has been registered.
+	 *
+	 * @param session the new session
+	 */
+	default void onOpen(BeerSocketSession session) {
+	}
+
+	/**
+	 * Called when a session closed, after it has been unregistered.
+	 *
+	 * @param session the closed session
+	 */
+	default void onClose(BeerSocketSession session) {
+	}
+}
@@ -0,0 +1,181 @@
+package gr.kgdev.beer.core;
+
+import java.time.Duration;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.eclipse.jetty.util.component.AbstractLifeCycle;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import jdk.jfr.consumer.RecordingStream;
+
+/**
+ * Executor that runs Jetty's blocking tasks (servlet, filter and handler
+ * invocations) on virtual threads.
+ * <p>
+ * It is installed through {@code QueuedThreadPool#setVirtualThreadsExecutor},
+ * so selectors and acceptors keep running on the platform thread pool while
+ * request handling is dispatched to a new virtual thread per task.
+ *
+ * <p>
+ * An optional concurrency limit bounds how many tasks run at the same time,
+ * protecting downstream resources such as JDBC pools. Tasks above the limit
+ * wait for a permit on their own virtual thread, so Jetty's platform threads
+ * are never blocked.
+ *
+ * <p>
+ * When metrics are enabled, a JFR stream listens for
+ * {@code jdk.VirtualThreadPinned} events, i.e. virtual threads that blocked
+ * while pinned to their carrier instead of unmounting from it. JFR reports
+ * them for the whole JVM, so only the events of the threads of this
+ * executor, told apart by their name, are counted. Comparing
+ * {@link #getPinnedCount()} with {@link #getCompletedTasks()} shows how often
+ * handlers hold on to carrier threads.
+ */
+public class BeerVirtualThreadExecutor extends AbstractLifeCycle implements Executor {
+
+	private static final Logger LOGGER = LoggerFactory.getLogger(BeerVirtualThreadExecutor.class);
+	private static final String PINNED_EVENT = "jdk.VirtualThreadPinned";
+	private static final AtomicInteger INSTANCES = new AtomicInteger();
+
+	/** Thread name prefix, unique per executor so pinned events can be attributed. */
+	private final String threadNamePrefix = "beer-vt-" + INSTANCES.getAndIncrement() + "-";
+	private final ThreadFactory threadFactory = Thread.ofVirtual().name(threadNamePrefix, 0).factory();
+	private final Semaphore permits;
+	private final Integer maxConcurrency;
+	private final boolean metricsEnabled;
+
+	private final AtomicInteger activeTasks = new AtomicInteger();
+	private final AtomicInteger waitingTasks = new AtomicInteger();
+	private final LongAdder completedTasks = new LongAdder();
+	private final LongAdder pinnedCount = new LongAdder();
+	private final LongAdder pinnedNanos = new LongAdder();
+	private RecordingStream pinnedEvents;
+
+	/**
+	 * Creates a virtual thread executor.
+	 *
+	 * @param maxConcurrency maximum number of tasks running at the same time,
+	 *                       or {@code null} for no limit
+	 * @param metricsEnabled whether pinned virtual threads are recorded through JFR
+	 */
+	public BeerVirtualThreadExecutor(Integer maxConcurrency, boolean metricsEnabled) {
+		this.maxConcurrency = maxConcurrency;
+		this.permits = maxConcurrency != null ? new Semaphore(maxConcurrency) : null;
+		this.metricsEnabled = metricsEnabled;
+	}
+
+	@Override
+	public void execute(Runnable task) {
+		var thread = threadFactory.newThread(() -> run(task));
+		thread.start();
+	}
+
+	private void run(Runnable task) {
+		if (permits != null && !permits.tryAcquire()) {
+			waitingTasks.incrementAndGet();
+			try {
+				// parks the virtual thread only, its carrier is released meanwhile
+				permits.acquireUninterruptibly();
+			} finally {
+				waitingTasks.decrementAndGet();
+			}
+		}
+
+		activeTasks.incrementAndGet();
+		try {
+			task.run();
+		} finally {
+			activeTasks.decrementAndGet();
+			completedTasks.increment();
+			if (permits != null) {
+				permits.release();
+			}
+		}
+	}
+
+	@Override
+	protected void doStart() throws Exception {
+		if (metricsEnabled) {
+			pinnedEvents = new RecordingStream();
+			pinnedEvents.enable(PINNED_EVENT).withThreshold(Duration.ZERO);
+			pinnedEvents.onEvent(PINNED_EVENT, event -> {
+				var thread = event.getThread();
+				if (thread != null && thread.getJavaName() != null && thread.getJavaName().startsWith(threadNamePrefix)) {
+					pinnedCount.increment();
+					pinnedNanos.add(event.getDuration().toNanos());
+				}
+			});
+			pinnedEvents.startAsync();
+			LOGGER.debug("Recording pinned virtual threads through JFR");
+		}
+	}
+
+	@Override
+	protected void doStop() throws Exception {
+		if (pinnedEvents != null) {
+			pinnedEvents.close();
+			pinnedEvents = null;
+		}
+	}
+
+	/**
+	 * Returns the configured concurrency limit.
+	 *
+	 * @return the maximum number of concurrent tasks, or {@code null} if unbounded
+	 */
+	public Integer getMaxConcurrency() {
+		return maxConcurrency;
+	}
+
+	/**
+	 * Returns the number of tasks currently running.
+	 *
+	 * @return the active task count
+	 */
+	public int getActiveTasks() {
+		return activeTasks.get();
+	}
+
+	/**
+	 * Returns the number of tasks waiting for a concurrency permit.
+	 *
+	 * @return the waiting task count
+	 */
+	public int getWaitingTasks() {
+		return waitingTasks.get();
+	}
+
+	/**
+	 * Returns the number of tasks completed since start.
+	 *
+	 * @return the completed task count
+	 */
+	public long getCompletedTasks() {
+		return completedTasks.sum();
+	}
+
+	/**
+	 * Returns how many times a virtual thread of this executor blocked while
+	 * pinned to its carrier. Always {@code 0} when metrics are disabled.
+	 *
+	 * @return the pinned event count
+	 */
+	public long getPinnedCount() {
+		return pinnedCount.sum();
+	}
+
+	/**
+	 * Returns the total time virtual threads of this executor spent blocked
+	 * while pinned to their carrier. Always zero when metrics are disabled.
+	 *
+	 * @return the total pinned duration
+	 */
+	public Duration getPinnedTime() {
+		return Duration.ofNanos(pinnedNanos.sum());
+	}
+}
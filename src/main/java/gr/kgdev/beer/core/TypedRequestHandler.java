@@ -0,0 +1,52 @@
+package gr.kgdev.beer.core;
+
+/**
+ * Route handlers that take typed arguments instead of the request and
+ * response, each described by a {@link BeerParam}.
+ * <p>
+ * Registered with the {@code get}, {@code post}, {@code put} and
+ * {@code delete} overloads of {@link Beer} that take parameters, e.g.
+ * {@link Beer#get(String, BeerParam, TypedRequestHandler.Of1)}. The result
+ * is written like the one of a {@link RequestHandler}.
+ */
+public final class TypedRequestHandler {
+
+	private TypedRequestHandler() {
+	}
+
+	/**
+	 * A handler taking one argument.
+	 *
+	 * @param <A> the argument type
+	 */
+	@FunctionalInterface
+	public interface Of1<A> {
+
+		Object handle(A a) throws Exception;
+	}
+
+	/**
+	 * A handler taking two arguments.
+	 *
+	 * @param <A> the first argument type
+	 * @param <B> the second argument type
+	 */
+	@FunctionalInterface
+	public interface Of2<A, B> {
+
+		Object handle(A a, B b) throws Exception;
+	}
+
+	/**
+	 * A handler taking three arguments.
+	 *
+	 * @param <A> the first argument type
+	 * @param <B> the second argument type
+	 * @param <C> the third argument type
+	 */
+	@FunctionalInterface
+	public interface Of3<A, B, C> {
+
+		Object handle(A a, B b, C c) throws Exception;
+	}
+}
@@ -0,0 +1,95 @@
+package gr.kgdev.beer.model;
+
+import com.google.gson.Gson;
+
+public class BroadcastMessage {
+
+	private static final Gson GSON = new Gson();
+
+	public enum Target {
+		/** The sessions connected to a route path. */
+		PATH,
+		/** The sessions subscribed to a topic. */
+		TOPIC,
+		/** The sessions of a user. */
+		USER
+	}
+
+	private String nodeId;
+	private long id;
+	private Target target;
+	private String name;
+	private String message;
+	private String coalesceKey;
+	private boolean binary;
+
+	public BroadcastMessage(String nodeId, long id, Target target, String name, String message, String coalesceKey) {
+		this.nodeId = nodeId;
+		this.id = id;
+		this.target = target;
+		this.name = name;
+		this.message = message;
+		this.coalesceKey = coalesceKey;
+	}
+
+	public String getNodeId() {
+		return nodeId;
+	}
+
+	public void setNodeId(String nodeId) {
+		this.nodeId = nodeId;
+	}
+
+	public long getId() {
+		return id;
+	}
+
+	public void setId(long id) {
+		this.id = id;
+	}
+
+	public Target getTarget() {
+		return target;
+	}
+
+	public void setTarget(Target target) {
+		this.target = target;
+	}
+
+	public String getName() {
+		return name;
+	}
+
+	public void setName(String name) {
+		this.name = name;
+	}
+
+	public String getMessage() {
+		return message;
+	}
+
+	public void setMessage(String message) {
+		this.message = message;
+	}
+
+	public String getCoalesceKey() {
+		return coalesceKey;
+	}
+
+	public void setCoalesceKey(String coalesceKey) {
+		this.coalesceKey = coalesceKey;
+	}
+
+	public boolean isBinary() {
+		return binary;
+	}
+
+	public void setBinary(boolean binary) {
+		this.binary = binary;
+	}
+
+	@Override
+	public String toString() {
+		return GSON.toJson(this);
+	}
+}
@@ -0,0 +1,47 @@
+package gr.kgdev.beer.model;
+
+import com.google.gson.Gson;
+
+public class BroadcastResult {
+
+	private static final Gson GSON = new Gson();
+
+	private int recipients;
+	private int delivered;
+	private int failed;
+
+	public BroadcastResult(int recipients, int delivered, int failed) {
+		this.recipients = recipients;
+		this.delivered = delivered;
+		this.failed = failed;
+	}
+
+	public int getRecipients() {
+		return recipients;
+	}
+
+	public void setRecipients(int recipients) {
+		this.recipients = recipients;
+	}
+
+	public int getDelivered() {
+		return delivered;
+	}
+
+	public void setDelivered(int delivered) {
+		this.delivered = delivered;
+	}
+
+	public int getFailed() {
+		return failed;
+	}
+
+	public void setFailed(int failed) {
+		this.failed = failed;
+	}
+
+	@Override
+	public String toString() {
+		return GSON.toJson(this);
+	}
+}
@@ -0,0 +1,82 @@
+package gr.kgdev.beer.model;
+
+import java.util.List;
+
+import com.google.gson.Gson;
+
+public class ChunkedUploadStatus {
+
+	private static final Gson GSON = new Gson();
+
+	private String uploadId;
+	private String fileName;
+	private long size;
+	private long received;
+	private List<long[]> ranges;
+	private boolean complete;
+
+	public ChunkedUploadStatus(String uploadId, String fileName, long size, long received, List<long[]> ranges) {
+		this.uploadId = uploadId;
+		this.fileName = fileName;
+		this.size = size;
+		this.received = received;
+		this.ranges = ranges;
+		this.complete = received == size;
+	}
+
+	public String getUploadId() {
+		return uploadId;
+	}
+
+	public void setUploadId(String uploadId) {
+		this.uploadId = uploadId;
+	}
+
+	public String getFileName() {
+		return fileName;
+	}
+
+	public void setFileName(String fileName) {
+		this.fileName = fileName;
+	}
+
+	public long getSize() {
+		return size;
+	}
+
+	public void setSize(long size) {
+		this.size = size;
+	}
+
+	public long getReceived() {
+		return received;
+	}
+
+	public void setReceived(long received) {
+		this.received = received;
+	}
+
+	/**
+	 * Returns the received byte ranges as {@code [start, endExclusive)} pairs, in order.
+	 */
+	public List<long[]> getRanges() {
+		return ranges;
+	}
+
+	public void setRanges(List<long[]> ranges) {
+		this.ranges = ranges;
+	}
+
+	public boolean isComplete() {
+		return complete;
+	}
+
+	public void setComplete(boolean complete) {
+		this.complete = complete;
+	}
+
+	@Override
+	public String toString() {
+		return GSON.toJson(this);
+	}
+}
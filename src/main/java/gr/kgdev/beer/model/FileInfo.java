@@ -0,0 +1,47 @@
+package gr.kgdev.beer.model;
+
+import com.google.gson.Gson;
+
+public class FileInfo {
+
+	private static final Gson GSON = new Gson();
+
+	private String name;
+	private long size;
+	private long lastModified;
+
+	public FileInfo(String name, long size, long lastModified) {
+		this.name = name;
+		this.size = size;
+		this.lastModified = lastModified;
+	}
+
+	public String getName() {
+		return name;
+	}
+
+	public void setName(String name) {
+		this.name = name;
+	}
+
+	public long getSize() {
+		return size;
+	}
+
+	public void setSize(long size) {
+		this.size = size;
+	}
+
+	public long getLastModified() {
+		return lastModified;
+	}
+
+	public void setLastModified(long lastModified) {
+		this.lastModified = lastModified;
+	}
+
+	@Override
+	public String toString() {
+		return GSON.toJson(this);
+	}
+}
@@ -0,0 +1,42 @@
+package gr.kgdev.beer.model;
+
+import java.util.List;
+
+import com.google.gson.Gson;
+
+public class FilePage {
+
+	private static final Gson GSON = new Gson();
+
+	private List<FileInfo> files;
+	private String next;
+
+	public FilePage(List<FileInfo> files, String next) {
+		this.files = files;
+		this.next = next;
+	}
+
+	public List<FileInfo> getFiles() {
+		return files;
+	}
+
+	public void setFiles(List<FileInfo> files) {
+		this.files = files;
+	}
+
+	/**
+	 * Continuation token of the next page, {@code null} on the last page.
+	 */
+	public String getNext() {
+		return next;
+	}
+
+	public void setNext(String next) {
+		this.next = next;
+	}
+
+	@Override
+	public String toString() {
+		return GSON.toJson(this);
+	}
+}
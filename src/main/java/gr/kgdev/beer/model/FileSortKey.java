@@ -0,0 +1,10 @@
+package gr.kgdev.beer.model;
+
+/**
+ * Sort keys for paginated file listings. Ties are broken by file name.
+ */
+public enum FileSortKey {
+	NAME,
+	LAST_MODIFIED,
+	SIZE
+}
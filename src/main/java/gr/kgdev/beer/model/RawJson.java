@@ -0,0 +1,64 @@
+package gr.kgdev.beer.model;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Pre-rendered JSON, written to responses and messages as it is.
+ * <p>
+ * Meant for cached or otherwise pre-serialized payloads: returned from a
+ * handler its UTF-8 bytes are copied to the response without being parsed,
+ * and nested in other objects it is embedded verbatim. The content is
+ * trusted to be valid JSON and never checked.
+ */
+public class RawJson {
+
+	private final byte[] bytes;
+	private String json;
+
+	private RawJson(byte[] bytes, String json) {
+		this.bytes = bytes;
+		this.json = json;
+	}
+
+	/**
+	 * Wraps a JSON string, encoding it once.
+	 *
+	 * @param json the JSON text
+	 * @return the raw JSON
+	 */
+	public static RawJson of(String json) {
+		return new RawJson(json.getBytes(StandardCharsets.UTF_8), json);
+	}
+
+	/**
+	 * Wraps UTF-8 encoded JSON, without copying it.
+	 *
+	 * @param utf8 the encoded JSON, must not be modified afterwards
+	 * @return the raw JSON
+	 */
+	public static RawJson of(byte[] utf8) {
+		return new RawJson(utf8, null);
+	}
+
+	/**
+	 * Returns the UTF-8 encoded JSON.
+	 *
+	 * @return the encoded JSON, not a copy
+	 */
+	public byte[] getBytes() {
+		return bytes;
+	}
+
+	/**
+	 * Returns the JSON text.
+	 *
+	 * @return the JSON text
+	 */
+	@Override
+	public String toString() {
+		if (json == null) {
+			json = new String(bytes, StandardCharsets.UTF_8);
+		}
+		return json;
+	}
+}
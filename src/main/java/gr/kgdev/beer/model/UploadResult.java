@@ -0,0 +1,40 @@
+package gr.kgdev.beer.model;
+
+import java.util.List;
+import java.util.Map;
+
+import com.google.gson.Gson;
+
+public class UploadResult {
+
+	private static final Gson GSON = new Gson();
+
+	private List<UploadedFile> files;
+	private Map<String, String> fields;
+
+	public UploadResult(List<UploadedFile> files, Map<String, String> fields) {
+		this.files = files;
+		this.fields = fields;
+	}
+
+	public List<UploadedFile> getFiles() {
+		return files;
+	}
+
+	public void setFiles(List<UploadedFile> files) {
+		this.files = files;
+	}
+
+	public Map<String, String> getFields() {
+		return fields;
+	}
+
+	public void setFields(Map<String, String> fields) {
+		this.fields = fields;
+	}
+
+	@Override
+	public String toString() {
+		return GSON.toJson(this);
+	}
+}
@@ -0,0 +1,74 @@
+package gr.kgdev.beer.model;
+
+import com.google.gson.Gson;
+
+public class UploadedFile {
+
+	private static final Gson GSON = new Gson();
+
+	private String partName;
+	private String fileName;
+	private String contentType;
+	private String location;
+	private long size;
+	private String sha256;
+
+	public UploadedFile(String partName, String fileName, String contentType) {
+		this.partName = partName;
+		this.fileName = fileName;
+		this.contentType = contentType;
+	}
+
+	public String getPartName() {
+		return partName;
+	}
+
+	public void setPartName(String partName) {
+		this.partName = partName;
+	}
+
+	public String getFileName() {
+		return fileName;
+	}
+
+	public void setFileName(String fileName) {
+		this.fileName = fileName;
+	}
+
+	public String getContentType() {
+		return contentType;
+	}
+
+	public void setContentType(String contentType) {
+		this.contentType = contentType;
+	}
+
+	public String getLocation() {
+		return location;
+	}
+
+	public void setLocation(String location) {
+		this.location = location;
+	}
+
+	public long getSize() {
+		return size;
+	}
+
+	public void setSize(long size) {
+		this.size = size;
+	}
+
+	public String getSha256() {
+		return sha256;
+	}
+
+	public void setSha256(String sha256) {
+		this.sha256 = sha256;
+	}
+
+	@Override
+	public String toString() {
+		return GSON.toJson(this);
+	}
+}
@@ -0,0 +1,14 @@
+package gr.kgdev.beer.model.exceptions;
+
+public class NotFoundException extends RuntimeException {
+
+	/**
+	 * 
+	 */
+	private static final long serialVersionUID = 1L;
+
+	public NotFoundException(String message) {
+		super(message);
+	}
+	
+}
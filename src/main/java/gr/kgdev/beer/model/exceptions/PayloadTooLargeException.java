@@ -0,0 +1,14 @@
+package gr.kgdev.beer.model.exceptions;
+
+public class PayloadTooLargeException extends RuntimeException {
+
+	/**
+	 * 
+	 */
+	private static final long serialVersionUID = 1L;
+
+	public PayloadTooLargeException(String message) {
+		super(message);
+	}
+	
+}
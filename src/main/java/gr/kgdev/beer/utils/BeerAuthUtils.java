@@ -1,22 +1,14 @@
 package gr.kgdev.beer.utils;
 
 import java.text.ParseException;
-import java.time.Instant;
-import java.time.temporal.ChronoUnit;
-import java.util.Date;
 import java.util.Map;
 import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.apache.commons.codec.digest.DigestUtils;
 
 import com.nimbusds.jose.JOSEException;
-import com.nimbusds.jose.JOSEObjectType;
-import com.nimbusds.jose.JWSAlgorithm;
-import com.nimbusds.jose.JWSHeader;
-import com.nimbusds.jose.crypto.MACSigner;
-import com.nimbusds.jose.crypto.MACVerifier;
 import com.nimbusds.jwt.JWTClaimsSet;
-import com.nimbusds.jwt.SignedJWT;
 
 import gr.kgdev.beer.model.exceptions.UnauthorizedException;
 
@@ -24,11 +16,17 @@ import gr.kgdev.beer.model.exceptions.UnauthorizedException;
  * Utility class providing helper methods for authentication-related operations,
  * including JWT generation, verification, and secret key creation.
  * <p>
- * This class uses HMAC SHA-256 (HS256) for signing and verifying JWT tokens.
- * All methods are stateless and thread-safe.
+ * This class uses HMAC SHA-256 (HS256) for signing and verifying JWT tokens,
+ * through a {@link BeerJwtService} kept per secret key, so verified tokens
+ * are cached across calls. All methods are thread-safe. For key rotation or
+ * asymmetric ES256 and EdDSA keys, use a {@link BeerJwtService} with a
+ * {@link BeerJwtKeyRing}.
  */
 public class BeerAuthUtils {
 
+	private static final int MAX_SERVICES = 16;
+	private static final Map<String, BeerJwtService> SERVICES = new ConcurrentHashMap<>();
+
 	/**
      * Generates a random secret key suitable for signing JWT tokens.
      * <p>
@@ -60,32 +58,18 @@ public class BeerAuthUtils {
 		return generateJwtWithClaims(secretKey, expirationMinutes, userId, Map.of());
 	}
 	
+	/**
+     * Generates a signed JWT token for a given user with additional claims.
+     *
+     * @param secretKey the secret key used to sign the JWT
+     * @param expirationMinutes the token expiration time in minutes from now
+     * @param userId the user identifier to set as the JWT subject
+     * @param claims additional claims
+     * @return the serialized JWT token as a {@link String}
+     * @see BeerJwtService#generate(Integer, String, Map)
+     */
 	public static String generateJwtWithClaims(String secretKey, Integer expirationMinutes, String userId, Map<String, Object> claims) {
-		var now = Instant.now();
-
-		var jwtBuilder = new JWTClaimsSet.Builder()
-				.subject(userId)
-				.claim(secretKey, userId)
-				.expirationTime(Date.from(now.plus(expirationMinutes, ChronoUnit.MINUTES))); // set expiration time to 1
-		claims.entrySet().forEach(entry -> jwtBuilder.claim(entry.getKey(), entry.getValue()));
-		var jwtClaims = jwtBuilder.build();
-
-        var header = new JWSHeader.Builder(JWSAlgorithm.HS256)
-                .type(JOSEObjectType.JWT)
-                .build();
-
-        var signedJWT = new SignedJWT(header, jwtClaims);
-
-        try {
-            var signer = new MACSigner(secretKey);
-            signedJWT.sign(signer);
-
-            var jwtToken = signedJWT.serialize();
-            return jwtToken;
-        } catch (JOSEException e) {
-        	// this should never happen
-            throw new RuntimeException("Could not generate jwt token", e);
-        }
+		return service(secretKey).generate(expirationMinutes, userId, claims);
 	}
 	
 	/**
@@ -105,20 +89,24 @@ public class BeerAuthUtils {
      * @throws JOSEException if a cryptographic verification error occurs
      */
 	public static JWTClaimsSet verifyJwt(String secretKey, String jwtToken) throws UnauthorizedException, ParseException, JOSEException {
-        var signedJWT = SignedJWT.parse(jwtToken);
-        var verifier = new MACVerifier(secretKey);
-        var isVerified = signedJWT.verify(verifier);
-        
-        if (!isVerified) {
-        	throw new UnauthorizedException("Error verifying JWT token: Invalid signatue");
-        }
-        
-        var claims = signedJWT.getJWTClaimsSet();
+		return service(secretKey).verify(jwtToken);
+	}
 
-        if (claims.getExpirationTime() != null && claims.getExpirationTime().getTime() < System.currentTimeMillis()) {
-        	throw new UnauthorizedException("Error verifying JWT token: Expired");
-        }
-        
-		return claims;
+	/**
+	 * Returns the shared service of a secret, whose signer, verifier and
+	 * verified token cache outlive a single call.
+	 */
+	private static BeerJwtService service(String secretKey) {
+		var service = SERVICES.get(secretKey);
+		if (service != null) {
+			return service;
+		}
+		service = new BeerJwtService(secretKey);
+		// applications use a handful of secrets, anything beyond is not worth keeping
+		if (SERVICES.size() < MAX_SERVICES) {
+			var existing = SERVICES.putIfAbsent(secretKey, service);
+			return existing != null ? existing : service;
+		}
+		return service;
 	}
 }
@@ -0,0 +1,253 @@
+package gr.kgdev.beer.utils;
+
+import java.io.ByteArrayInputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeoutException;
+
+import gr.kgdev.beer.model.exceptions.BadRequestException;
+import gr.kgdev.beer.model.exceptions.PayloadTooLargeException;
+import jakarta.servlet.AsyncEvent;
+import jakarta.servlet.AsyncListener;
+import jakarta.servlet.ReadListener;
+import jakarta.servlet.http.HttpServletRequest;
+
+/**
+ * Reads and decodes request bodies within a size limit.
+ * <p>
+ * A body whose declared length exceeds the limit is rejected before any of
+ * it is read; one sent without a length, e.g. chunked, is rejected as soon
+ * as the bytes read cross the limit. Bodies are decoded in the charset of
+ * the request, UTF-8 if it declares none.
+ *
+ * <p>
+ * Blocking reads decode JSON straight from the input stream, so the body
+ * never exists as a whole in memory. Asynchronous reads collect the body
+ * from a {@link ReadListener} into a single array, grown as bytes arrive up
+ * to the declared length, and decode it once complete, as the codec is a
+ * pull parser. A body that does not arrive within the async timeout of the
+ * container fails with a 400.
+ */
+final class BeerBodyReader {
+
+	private static final int INITIAL_CAPACITY = 8 * 1024;
+	private static final int MAX_ARRAY_SIZE = Integer.MAX_VALUE - 8;
+
+	private BeerBodyReader() {
+	}
+
+	/**
+	 * Reads the whole body as a string, blocking.
+	 *
+	 * @param req the request
+	 * @param maxSize the maximum body size in bytes
+	 * @return the body
+	 * @throws IOException if reading fails
+	 * @throws PayloadTooLargeException if the body exceeds the limit
+	 */
+	static String read(HttpServletRequest req, long maxSize) throws IOException {
+		checkLength(req, maxSize);
+		var charset = charset(req);
+		return new String(new LimitedInputStream(req.getInputStream(), maxSize).readAllBytes(), charset);
+	}
+
+	/**
+	 * Decodes the JSON body while reading it, blocking.
+	 *
+	 * @param <T> the target type
+	 * @param req the request
+	 * @param type the target class
+	 * @param maxSize the maximum body size in bytes
+	 * @return the decoded body, {@code null} if empty
+	 * @throws BadRequestException if the body can not be read or decoded
+	 * @throws PayloadTooLargeException if the body exceeds the limit
+	 */
+	static <T> T decode(HttpServletRequest req, Class<T> type, long maxSize) {
+		checkLength(req, maxSize);
+		try {
+			var in = new LimitedInputStream(req.getInputStream(), maxSize);
+			return BeerUtils.getJsonCodec().fromJson(new InputStreamReader(in, charset(req)), type);
+		} catch (PayloadTooLargeException e) {
+			throw e;
+		} catch (Exception e) {
+			throw new BadRequestException("Could not parse request's body");
+		}
+	}
+
+	/**
+	 * Reads the body asynchronously and decodes it once complete. The request
+	 * is put in async mode unless it does not support it, in which case the
+	 * body is decoded blocking.
+	 *
+	 * @param <T> the target type
+	 * @param req the request
+	 * @param type the target class
+	 * @param maxSize the maximum body size in bytes
+	 * @return a future completed with the decoded body, or failed with a
+	 *         {@link BadRequestException} or {@link PayloadTooLargeException}
+	 * @throws IOException if the input stream can not be obtained
+	 */
+	static <T> CompletableFuture<T> decodeAsync(HttpServletRequest req, Class<T> type, long maxSize) throws IOException {
+		checkLength(req, maxSize);
+		if (!req.isAsyncSupported()) {
+			return CompletableFuture.completedFuture(decode(req, type, maxSize));
+		}
+
+		Charset charset;
+		try {
+			charset = charset(req);
+		} catch (IllegalArgumentException e) {
+			return CompletableFuture.failedFuture(new BadRequestException("Could not parse request's body"));
+		}
+
+		// a slow client holds no thread while its body arrives, but no longer than the async timeout
+		var asyncContext = req.isAsyncStarted() ? req.getAsyncContext() : req.startAsync();
+
+		// nothing is allocated on the word of the client, the declared length only caps the growth
+		var declared = req.getContentLengthLong();
+		var capacity = Math.min(maxSize, MAX_ARRAY_SIZE - 1) + 1;
+		var maxCapacity = declared > 0 ? Math.min(declared + 1, capacity) : capacity;
+		var future = new CompletableFuture<T>();
+		var in = req.getInputStream();
+		var listener = new ReadListener() {
+			private byte[] body = new byte[(int) Math.min(INITIAL_CAPACITY, maxCapacity)];
+			private int size;
+
+			@Override
+			public void onDataAvailable() throws IOException {
+				try {
+					while (!future.isDone() && in.isReady() && !in.isFinished()) {
+						if (size == body.length) {
+							grow();
+						}
+						var n = in.read(body, size, body.length - size);
+						if (n > 0) {
+							size += n;
+						}
+					}
+				} catch (Throwable t) {
+					onError(t);
+				}
+			}
+
+			private void grow() {
+				if (size >= maxSize) {
+					throw new PayloadTooLargeException("Request body exceeds the maximum size of " + maxSize + " bytes");
+				}
+				if (size >= maxCapacity) {
+					throw new BadRequestException("Request body exceeds its declared length");
+				}
+				// one byte past the limit is enough to tell the body is too large
+				body = Arrays.copyOf(body, (int) Math.min(body.length * 2L, maxCapacity));
+			}
+
+			@Override
+			public void onAllDataRead() {
+				if (future.isDone()) {
+					return;
+				}
+				if (size > maxSize) {
+					onError(new PayloadTooLargeException("Request body exceeds the maximum size of " + maxSize + " bytes"));
+					return;
+				}
+				try {
+					var reader = new InputStreamReader(new ByteArrayInputStream(body, 0, size), charset);
+					future.complete(BeerUtils.getJsonCodec().fromJson(reader, type));
+				} catch (Exception e) {
+					onError(new BadRequestException("Could not parse request's body"));
+				}
+			}
+
+			@Override
+			public void onError(Throwable t) {
+				if (future.isDone()) {
+					return;
+				}
+				if (t instanceof TimeoutException || t.getCause() instanceof TimeoutException) {
+					// the container may report the async timeout to the read listener first
+					future.completeExceptionally(new BadRequestException("Request body was not received in time"));
+				} else {
+					future.completeExceptionally(t instanceof PayloadTooLargeException || t instanceof BadRequestException ? t
+							: new BadRequestException("Could not parse request's body"));
+				}
+			}
+		};
+		asyncContext.addListener(new AsyncListener() {
+			@Override
+			public void onTimeout(AsyncEvent event) {
+				listener.onError(new BadRequestException("Request body was not received in time"));
+			}
+
+			@Override
+			public void onError(AsyncEvent event) {
+				listener.onError(event.getThrowable());
+			}
+
+			@Override
+			public void onComplete(AsyncEvent event) {
+			}
+
+			@Override
+			public void onStartAsync(AsyncEvent event) {
+			}
+		});
+		in.setReadListener(listener);
+		return future;
+	}
+
+	private static void checkLength(HttpServletRequest req, long maxSize) {
+		if (req.getContentLengthLong() > maxSize) {
+			throw new PayloadTooLargeException("Request body exceeds the maximum size of " + maxSize + " bytes");
+		}
+	}
+
+	private static Charset charset(HttpServletRequest req) {
+		var encoding = req.getCharacterEncoding();
+		return encoding != null ? Charset.forName(encoding) : StandardCharsets.UTF_8;
+	}
+
+	/**
+	 * Fails a read once more than the limit has been read.
+	 */
+	private static final class LimitedInputStream extends FilterInputStream {
+
+		private final long maxSize;
+		private long size;
+
+		private LimitedInputStream(InputStream in, long maxSize) {
+			super(in);
+			this.maxSize = maxSize;
+		}
+
+		@Override
+		public int read() throws IOException {
+			var b = super.read();
+			if (b >= 0) {
+				count(1);
+			}
+			return b;
+		}
+
+		@Override
+		public int read(byte[] b, int off, int len) throws IOException {
+			var n = super.read(b, off, len);
+			if (n > 0) {
+				count(n);
+			}
+			return n;
+		}
+
+		private void count(int n) {
+			size += n;
+			if (size > maxSize) {
+				throw new PayloadTooLargeException("Request body exceeds the maximum size of " + maxSize + " bytes");
+			}
+		}
+	}
+}
@@ -0,0 +1,453 @@
+package gr.kgdev.beer.utils;
+
+import java.io.IOException;
+import java.net.URLDecoder;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import org.slf4j.LoggerFactory;
+
+import gr.kgdev.beer.model.ChunkedUploadStatus;
+import gr.kgdev.beer.model.SimpleMessage;
+import gr.kgdev.beer.model.UploadedFile;
+import gr.kgdev.beer.model.exceptions.BadRequestException;
+import gr.kgdev.beer.model.exceptions.NotFoundException;
+import gr.kgdev.beer.model.exceptions.PayloadTooLargeException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+/**
+ * Utility class for resumable uploads of large files in chunks.
+ * <p>
+ * The protocol has three steps, each mapped to a route by the application:
+ * <ol>
+ *   <li>{@link #initUpload(HttpServletRequest, HttpServletResponse, String)}
+ *   announces the file name and size and returns an upload id</li>
+ *   <li>{@link #uploadChunk(HttpServletRequest, HttpServletResponse, String)}
+ *   writes the request body at a given offset of the file; chunks may arrive
+ *   in any order, be retried, and be sent in parallel over several connections</li>
+ *   <li>{@link #finalizeUpload(String)} moves the file to its final name
+ *   once every byte has been received</li>
+ * </ol>
+ * After a dropped connection, {@link #getUploadStatus(String)} reports the
+ * byte ranges received so far (including the part of an interrupted chunk
+ * that was written), so the client only resends what is missing.
+ *
+ * <p>
+ * Chunks are written with positional {@link FileChannel} writes straight
+ * into a single temporary file in the {@code .uploads} directory of the
+ * destination, so the file is never reassembled or copied, does not show in
+ * listings before it is complete, and finalizing is an atomic rename.
+ * Limits and the inactivity timeout come from the global
+ * {@link BeerFileConfig}; expired uploads are discarded by a daemon thread
+ * started with the first upload. Upload state is kept in memory, so uploads
+ * can be resumed across connections but not across server restarts.
+ */
+public class BeerChunkedUploadUtils {
+
+	private static final int BUFFER_SIZE = 64 * 1024;
+
+	private static final long MIN_PURGE_INTERVAL = 1000;
+	private static final long MAX_PURGE_INTERVAL = 60 * 1000;
+
+	private static final Map<String, ChunkedUpload> uploads = new ConcurrentHashMap<>();
+	private static ScheduledExecutorService purger;
+
+	/**
+     * Starts a chunked upload, reading the {@code fileName} and {@code size}
+     * request parameters.
+     *
+     * @param req the {@link HttpServletRequest}
+     * @param res the {@link HttpServletResponse}
+     * @param uploadLocation the directory where the file should be stored
+     * @return the status of the new upload, holding its id
+     * @throws IOException if the temporary file cannot be created
+     * @throws BadRequestException if the parameters are missing or invalid
+     */
+	public static ChunkedUploadStatus initUpload(HttpServletRequest req, HttpServletResponse res, String uploadLocation) throws IOException {
+		var fileName = req.getParameter("fileName");
+		var size = req.getParameter("size");
+		if (fileName == null || size == null) {
+			throw new BadRequestException("Parameters fileName and size are required");
+		}
+		return initUpload(uploadLocation, fileName, parseLong(size, "size"));
+	}
+
+	/**
+     * Starts a chunked upload.
+     *
+     * @param uploadLocation the directory where the file should be stored
+     * @param fileName the name of the file
+     * @param size the total size of the file in bytes
+     * @return the status of the new upload, holding its id
+     * @throws IOException if the temporary file cannot be created
+     * @throws PayloadTooLargeException if the size exceeds the configured limit
+     */
+	public static ChunkedUploadStatus initUpload(String uploadLocation, String fileName, long size) throws IOException {
+		var config = BeerFileUtils.getFileConfig();
+		var maxSize = config.getMaxChunkedFileSize();
+		if (size < 0) {
+			throw new BadRequestException("Invalid size");
+		}
+		if (maxSize != null && size > maxSize) {
+			throw new PayloadTooLargeException("File exceeds the maximum size of " + maxSize + " bytes");
+		}
+		startPurger();
+
+		var directory = Paths.get(uploadLocation);
+		var id = UUID.randomUUID().toString();
+		var name = BeerFileUtils.sanitizeFileName(fileName);
+		var temp = BeerFileUtils.uploadTempDirectory(directory).resolve(id + ".upload");
+		var upload = new ChunkedUpload(id, name, size, directory.resolve(name), temp);
+		uploads.put(id, upload);
+
+		LoggerFactory.getLogger(BeerChunkedUploadUtils.class).info("Started chunked upload " + id + " of " + name);
+		return upload.status();
+	}
+
+	/**
+     * Writes the request body to the upload at the given offset.
+     * <p>
+     * The offset is taken from a {@code Content-Range: bytes start-end/size}
+     * header if present, otherwise from the {@code offset} query parameter.
+     *
+     * @param req the {@link HttpServletRequest} whose body is the chunk
+     * @param res the {@link HttpServletResponse}
+     * @param uploadId the upload id returned by {@code initUpload}
+     * @return the status of the upload after this chunk
+     * @throws IOException if reading the request or writing the file fails
+     * @throws NotFoundException if there is no such upload
+     * @throws BadRequestException if the chunk does not fit in the file
+     * @throws PayloadTooLargeException if the chunk exceeds the configured limit
+     */
+	public static ChunkedUploadStatus uploadChunk(HttpServletRequest req, HttpServletResponse res, String uploadId) throws IOException {
+		var upload = getUpload(uploadId);
+		var maxChunkSize = BeerFileUtils.getFileConfig().getMaxChunkSize();
+
+		long offset;
+		long end;
+		var announced = true;
+		var contentRange = req.getHeader("Content-Range");
+		if (contentRange != null) {
+			var range = parseContentRange(contentRange, upload.size);
+			offset = range[0];
+			end = range[1];
+		} else {
+			var offsetParameter = queryParameter(req, "offset");
+			if (offsetParameter == null) {
+				throw new BadRequestException("Content-Range header or offset parameter is required");
+			}
+			offset = parseLong(offsetParameter, "offset");
+			var length = req.getContentLengthLong();
+			announced = length >= 0;
+			end = announced ? offset + length : upload.size;
+		}
+
+		if (offset < 0 || end > upload.size || offset > end) {
+			throw new BadRequestException("Chunk does not fit in a file of " + upload.size + " bytes");
+		}
+		if (maxChunkSize != null && announced && end - offset > maxChunkSize) {
+			throw new PayloadTooLargeException("Chunk exceeds the maximum size of " + maxChunkSize + " bytes");
+		}
+
+		upload.write(req, offset, end, maxChunkSize != null ? maxChunkSize : Long.MAX_VALUE);
+		return upload.status();
+	}
+
+	/**
+     * Returns the status of an upload, including the byte ranges received so far.
+     *
+     * @param uploadId the upload id returned by {@code initUpload}
+     * @return the upload status
+     * @throws NotFoundException if there is no such upload
+     */
+	public static ChunkedUploadStatus getUploadStatus(String uploadId) {
+		return getUpload(uploadId).status();
+	}
+
+	/**
+     * Completes an upload, atomically moving the file to its final name.
+     *
+     * @param uploadId the upload id returned by {@code initUpload}
+     * @return the uploaded file
+     * @throws IOException if the file cannot be moved
+     * @throws NotFoundException if there is no such upload
+     * @throws BadRequestException if bytes are still missing
+     */
+	public static UploadedFile finalizeUpload(String uploadId) throws IOException {
+		var upload = getUpload(uploadId);
+		synchronized (upload) {
+			if (upload.received() != upload.size) {
+				throw new BadRequestException("Upload is incomplete, received " + upload.received() + " of " + upload.size + " bytes");
+			}
+			if (!uploads.remove(uploadId, upload)) {
+				throw new NotFoundException("Upload not found");
+			}
+			upload.close(true);
+		}
+
+		Files.move(upload.temp, upload.location, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+		BeerFileUtils.getMetadataCache().invalidate(upload.location);
+
+		var file = new UploadedFile(null, upload.fileName, null);
+		file.setLocation(upload.location.toString());
+		file.setSize(upload.size);
+		return file;
+	}
+
+	/**
+     * Cancels an upload, discarding the chunks received so far.
+     *
+     * @param uploadId the upload id returned by {@code initUpload}
+     * @return a {@link SimpleMessage} indicating the result
+     * @throws NotFoundException if there is no such upload
+     */
+	public static SimpleMessage abortUpload(String uploadId) {
+		var upload = getUpload(uploadId);
+		if (uploads.remove(uploadId, upload)) {
+			upload.discard();
+		}
+		return new SimpleMessage("Upload has been aborted");
+	}
+
+	private static ChunkedUpload getUpload(String uploadId) {
+		var upload = uploadId != null ? uploads.get(uploadId) : null;
+		if (upload == null) {
+			throw new NotFoundException("Upload not found");
+		}
+		return upload;
+	}
+
+	private static synchronized void startPurger() {
+		if (purger == null) {
+			purger = Executors.newSingleThreadScheduledExecutor(runnable -> {
+				var thread = new Thread(runnable, "beer-chunked-upload-purger");
+				thread.setDaemon(true);
+				return thread;
+			});
+			schedulePurge(MIN_PURGE_INTERVAL);
+		}
+	}
+
+	/**
+	 * Purges after a delay and schedules the next purge, at half the timeout
+	 * in effect then, so a changed timeout is picked up.
+	 */
+	private static void schedulePurge(long delay) {
+		purger.schedule(() -> {
+			var timeout = BeerFileUtils.getFileConfig().getChunkedUploadTimeout();
+			try {
+				if (timeout != null) {
+					purgeExpiredUploads(timeout);
+				}
+			} finally {
+				var interval = timeout != null ? timeout / 2 : MAX_PURGE_INTERVAL;
+				schedulePurge(Math.clamp(interval, MIN_PURGE_INTERVAL, MAX_PURGE_INTERVAL));
+			}
+		}, delay, TimeUnit.MILLISECONDS);
+	}
+
+	private static void purgeExpiredUploads(long timeout) {
+		var now = System.currentTimeMillis();
+		uploads.values().removeIf(upload -> {
+			if (now - upload.lastActivity <= timeout) {
+				return false;
+			}
+			LoggerFactory.getLogger(BeerChunkedUploadUtils.class).info("Discarding expired chunked upload " + upload.id);
+			upload.discard();
+			return true;
+		});
+	}
+
+	/**
+	 * Parses {@code bytes start-end/size} into a {@code [start, endExclusive)} pair.
+	 */
+	private static long[] parseContentRange(String header, long size) {
+		try {
+			var value = header.trim();
+			if (!value.startsWith("bytes ")) {
+				throw new BadRequestException("Invalid Content-Range");
+			}
+			var slash = value.indexOf('/');
+			var dash = value.indexOf('-');
+			var total = value.substring(slash + 1).trim();
+			if (!total.equals("*") && Long.parseLong(total) != size) {
+				throw new BadRequestException("Content-Range size does not match the upload size");
+			}
+			var start = Long.parseLong(value.substring("bytes ".length(), dash).trim());
+			var last = Long.parseLong(value.substring(dash + 1, slash).trim());
+			return new long[] { start, last + 1 };
+		} catch (IndexOutOfBoundsException | NumberFormatException e) {
+			throw new BadRequestException("Invalid Content-Range");
+		}
+	}
+
+	/**
+	 * Reads a parameter from the query string only, {@code getParameter} would
+	 * consume a form encoded chunk body.
+	 */
+	private static String queryParameter(HttpServletRequest req, String name) {
+		var query = req.getQueryString();
+		if (query == null) {
+			return null;
+		}
+		for (var pair : query.split("&")) {
+			var equals = pair.indexOf('=');
+			if (equals > 0 && URLDecoder.decode(pair.substring(0, equals), StandardCharsets.UTF_8).equals(name)) {
+				return URLDecoder.decode(pair.substring(equals + 1), StandardCharsets.UTF_8);
+			}
+		}
+		return null;
+	}
+
+	private static long parseLong(String value, String name) {
+		try {
+			return Long.parseLong(value);
+		} catch (NumberFormatException e) {
+			throw new BadRequestException("Invalid " + name);
+		}
+	}
+
+	/**
+	 * State of an upload in progress: the open temporary file and the byte
+	 * ranges written to it, kept merged in a {@link TreeMap} of start to end.
+	 * <p>
+	 * Writes to the file hold the read lock, so chunks of several connections
+	 * are written in parallel, while finalizing or discarding closes the file
+	 * under the write lock, so no write lands in it once it is closed.
+	 */
+	private static final class ChunkedUpload {
+		private final String id;
+		private final String fileName;
+		private final long size;
+		private final Path location;
+		private final Path temp;
+		private final FileChannel channel;
+		private final TreeMap<Long, Long> ranges = new TreeMap<>();
+		private final ReadWriteLock lock = new ReentrantReadWriteLock();
+		private boolean closed;
+		private long received;
+		private volatile long lastActivity = System.currentTimeMillis();
+
+		private ChunkedUpload(String id, String fileName, long size, Path location, Path temp) throws IOException {
+			this.id = id;
+			this.fileName = fileName;
+			this.size = size;
+			this.location = location;
+			this.temp = temp;
+			// shared by all connections of the upload, positional writes do not interfere
+			this.channel = FileChannel.open(temp, StandardOpenOption.CREATE_NEW, StandardOpenOption.READ,
+					StandardOpenOption.WRITE);
+		}
+
+		private void write(HttpServletRequest req, long offset, long end, long maxChunkSize) throws IOException {
+			var in = req.getInputStream();
+			var buffer = ByteBuffer.allocate(BUFFER_SIZE);
+			var position = offset;
+			try {
+				int n;
+				while ((n = in.read(buffer.array())) >= 0) {
+					if (position + n > end || position + n - offset > maxChunkSize) {
+						throw new BadRequestException("Chunk is larger than announced");
+					}
+					buffer.clear().limit(n);
+					lock.readLock().lock();
+					try {
+						if (closed) {
+							throw new NotFoundException("Upload not found");
+						}
+						while (buffer.hasRemaining()) {
+							position += channel.write(buffer, position);
+						}
+					} finally {
+						lock.readLock().unlock();
+					}
+					lastActivity = System.currentTimeMillis();
+				}
+			} finally {
+				// whatever was written is kept, an interrupted chunk is resumed from there
+				add(offset, position);
+			}
+		}
+
+		private synchronized void add(long start, long end) {
+			if (start >= end) {
+				return;
+			}
+			var floor = ranges.floorEntry(start);
+			if (floor != null && floor.getValue() >= start) {
+				start = floor.getKey();
+				end = Math.max(end, floor.getValue());
+				received -= floor.getValue() - floor.getKey();
+				ranges.remove(floor.getKey());
+			}
+			var next = ranges.ceilingEntry(start);
+			while (next != null && next.getKey() <= end) {
+				end = Math.max(end, next.getValue());
+				received -= next.getValue() - next.getKey();
+				ranges.remove(next.getKey());
+				next = ranges.ceilingEntry(start);
+			}
+			ranges.put(start, end);
+			received += end - start;
+		}
+
+		private synchronized long received() {
+			return received;
+		}
+
+		private synchronized ChunkedUploadStatus status() {
+			var list = new ArrayList<long[]>(ranges.size());
+			ranges.forEach((start, end) -> list.add(new long[] { start, end }));
+			return new ChunkedUploadStatus(id, fileName, size, received, list);
+		}
+
+		/**
+		 * Closes the file once no write is in progress, rejecting later ones.
+		 *
+		 * @param force whether to flush the file to the storage device first
+		 */
+		private void close(boolean force) throws IOException {
+			lock.writeLock().lock();
+			try {
+				if (!closed) {
+					closed = true;
+					try {
+						if (force) {
+							channel.force(false);
+						}
+					} finally {
+						channel.close();
+					}
+				}
+			} finally {
+				lock.writeLock().unlock();
+			}
+		}
+
+		private void discard() {
+			try {
+				close(false);
+				Files.deleteIfExists(temp);
+			} catch (IOException e) {
+				LoggerFactory.getLogger(BeerChunkedUploadUtils.class).warn("Could not discard " + temp + ": " + e.getMessage());
+			}
+		}
+	}
+}
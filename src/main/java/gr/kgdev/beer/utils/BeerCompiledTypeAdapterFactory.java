@@ -0,0 +1,468 @@
+package gr.kgdev.beer.utils;
+
+import java.io.IOException;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Field;
+import java.lang.reflect.AnnotatedElement;
+import java.lang.reflect.GenericArrayType;
+import java.lang.reflect.InaccessibleObjectException;
+import java.lang.reflect.Modifier;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.lang.reflect.TypeVariable;
+import java.lang.reflect.WildcardType;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import com.google.gson.Gson;
+import com.google.gson.TypeAdapter;
+import com.google.gson.TypeAdapterFactory;
+import com.google.gson.annotations.Expose;
+import com.google.gson.annotations.JsonAdapter;
+import com.google.gson.annotations.SerializedName;
+import com.google.gson.annotations.Since;
+import com.google.gson.annotations.Until;
+import com.google.gson.reflect.TypeToken;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+
+/**
+ * Gson adapters for plain classes and records, compiled once per class.
+ * <p>
+ * Gson's reflective adapter resolves fields through reflection on every
+ * read and write. This factory inspects a class once, binds its fields,
+ * record accessors and constructor to {@link MethodHandle}s, and keeps the
+ * field adapters and names in arrays and a name index, so serialization is
+ * a loop over direct handle calls; {@code int}, {@code long} and
+ * {@code boolean} fields are even written without boxing, unless the
+ * {@link Gson} instance adapts them differently, e.g. with a
+ * {@link com.google.gson.LongSerializationPolicy}.
+ *
+ * <p>
+ * A class is only compiled where Gson would use its reflective adapter, so
+ * registered type adapters and factories keep precedence, and field order,
+ * naming and null handling follow the {@link Gson} instance, so the output
+ * is the one of the reflective adapter. Fields are selected as Gson does by
+ * default, skipping static, transient and synthetic ones; if the instance
+ * selects fields otherwise, e.g. by modifiers or {@link Expose}, nothing is
+ * compiled, and classes with {@link Expose}, {@link Since} or {@link Until}
+ * fields are left to Gson. Classes the factory can not compile faithfully,
+ * e.g. generic classes or classes with {@link JsonAdapter} fields, are left
+ * to Gson too, as are classes with an {@link com.google.gson.InstanceCreator}
+ * or fields skipped by an {@link com.google.gson.ExclusionStrategy}, which
+ * the factory can not see. Classes without a no-argument constructor are
+ * written compiled and read by Gson.
+ */
+final class BeerCompiledTypeAdapterFactory implements TypeAdapterFactory {
+
+	private static final MethodType GETTER = MethodType.methodType(Object.class, Object.class);
+	private static final MethodType SETTER = MethodType.methodType(void.class, Object.class, Object.class);
+	private static final String REFLECTIVE = "com.google.gson.internal.bind.ReflectiveTypeAdapterFactory";
+	private static final int EXCLUDED_MODIFIERS = Modifier.STATIC | Modifier.TRANSIENT;
+	// the built-in adapters, shared by every Gson instance
+	private static final Gson PLAIN = new Gson();
+
+	private volatile Boolean defaultFieldSelection;
+
+	@Override
+	@SuppressWarnings("unchecked")
+	public <T> TypeAdapter<T> create(Gson gson, TypeToken<T> type) {
+		if (!(type.getType() instanceof Class<?> raw) || raw == FieldSelectionProbe.class || !isCompilable(raw)
+				|| !hasDefaultFieldSelection(gson)) {
+			return null;
+		}
+		var delegate = gson.getDelegateAdapter(this, type);
+		var enclosing = delegate.getClass().getEnclosingClass();
+		if (enclosing == null || !REFLECTIVE.equals(enclosing.getName())) {
+			// another adapter is registered for the type
+			return null;
+		}
+		try {
+			return (TypeAdapter<T>) new CompiledAdapter(gson, raw, (TypeAdapter<Object>) delegate);
+		} catch (ReflectiveOperationException | UnsupportedOperationException | IllegalArgumentException
+				| SecurityException | InaccessibleObjectException e) {
+			// not faithfully compilable, Gson's own adapter applies
+			return null;
+		}
+	}
+
+	/**
+	 * Tells whether the Gson instance selects fields as Gson does by
+	 * default, by serializing a probe with a field of every modifier.
+	 */
+	private boolean hasDefaultFieldSelection(Gson gson) {
+		var selection = defaultFieldSelection;
+		if (selection == null) {
+			var expected = new ArrayList<String>();
+			for (var field : FieldSelectionProbe.class.getDeclaredFields()) {
+				if (isSelected(field)) {
+					expected.add(gson.fieldNamingStrategy().translateName(field));
+				}
+			}
+			var actual = gson.toJsonTree(new FieldSelectionProbe()).getAsJsonObject().keySet();
+			selection = defaultFieldSelection = actual.equals(Set.copyOf(expected));
+		}
+		return selection;
+	}
+
+	private static boolean isCompilable(Class<?> raw) {
+		var name = raw.getName();
+		if (raw.isPrimitive() || raw.isArray() || raw.isEnum() || raw.isInterface() || Modifier.isAbstract(raw.getModifiers())
+				|| raw.getTypeParameters().length > 0 || raw.isAnnotationPresent(JsonAdapter.class)
+				|| Collection.class.isAssignableFrom(raw) || Map.class.isAssignableFrom(raw)
+				|| (raw.isMemberClass() && !Modifier.isStatic(raw.getModifiers()))) {
+			return false;
+		}
+		if (name.startsWith("java.") || name.startsWith("javax.") || name.startsWith("jdk.") || name.startsWith("sun.")
+				|| name.startsWith("com.google.gson.")) {
+			return false;
+		}
+		// Gson skips anonymous and local classes, and leaves versioned and exposed ones to its excluder
+		return !isAnonymousOrNonStaticLocal(raw) && !isVersionedOrExposed(raw);
+	}
+
+	private static boolean isAnonymousOrNonStaticLocal(Class<?> raw) {
+		return !raw.isEnum() && !Modifier.isStatic(raw.getModifiers()) && (raw.isAnonymousClass() || raw.isLocalClass());
+	}
+
+	private static boolean isVersionedOrExposed(Class<?> raw) {
+		for (var c = raw; c != null && c != Object.class; c = c.getSuperclass()) {
+			if (isVersionedOrExposed((AnnotatedElement) c)) {
+				return true;
+			}
+			for (var field : c.getDeclaredFields()) {
+				if (isVersionedOrExposed(field)) {
+					return true;
+				}
+			}
+		}
+		return false;
+	}
+
+	private static boolean isVersionedOrExposed(AnnotatedElement element) {
+		return element.isAnnotationPresent(Expose.class) || element.isAnnotationPresent(Since.class)
+				|| element.isAnnotationPresent(Until.class);
+	}
+
+	/**
+	 * Gson's default field selection.
+	 */
+	private static boolean isSelected(Field field) {
+		return (field.getModifiers() & EXCLUDED_MODIFIERS) == 0 && !field.isSynthetic()
+				&& !isAnonymousOrNonStaticLocal(field.getType());
+	}
+
+	private static final class CompiledAdapter extends TypeAdapter<Object> {
+
+		private final Gson gson;
+		private final Binding[] bindings;
+		private final Map<String, Binding> byName = new HashMap<>();
+		private final MethodHandle constructor;
+		private final boolean record;
+		private final TypeAdapter<Object> delegate;
+
+		private CompiledAdapter(Gson gson, Class<?> raw, TypeAdapter<Object> delegate) throws ReflectiveOperationException {
+			this.gson = gson;
+			this.delegate = delegate;
+			this.record = raw.isRecord();
+			var lookup = MethodHandles.privateLookupIn(raw, MethodHandles.lookup());
+			var settable = !record && hasNoArgsConstructor(raw);
+
+			var fields = new ArrayList<Field>();
+			for (var c = raw; c != null && c != Object.class; c = c.getSuperclass()) {
+				if (c != raw && c.getTypeParameters().length > 0) {
+					throw new UnsupportedOperationException("Generic superclass " + c.getName());
+				}
+				// as Gson, the fields of a class come before those of its superclasses
+				fields.addAll(List.of(c.getDeclaredFields()));
+			}
+
+			var list = new ArrayList<Binding>();
+			var components = record ? raw.getRecordComponents() : null;
+			for (var field : fields) {
+				if (!isSelected(field)) {
+					continue;
+				}
+				if (field.isAnnotationPresent(JsonAdapter.class) || hasTypeVariable(field.getGenericType())) {
+					throw new UnsupportedOperationException("Field " + field.getName());
+				}
+
+				var fieldLookup = MethodHandles.privateLookupIn(field.getDeclaringClass(), MethodHandles.lookup());
+				MethodHandle getter;
+				var index = -1;
+				if (record) {
+					for (var i = 0; i < components.length; i++) {
+						if (components[i].getName().equals(field.getName())) {
+							index = i;
+						}
+					}
+					if (index < 0) {
+						throw new UnsupportedOperationException("Record field " + field.getName() + " is not a component");
+					}
+					// records are serialized through their accessors, which may be overridden
+					getter = lookup.unreflect(components[index].getAccessor());
+				} else {
+					getter = fieldLookup.unreflectGetter(field);
+				}
+				MethodHandle setter = null;
+				if (settable) {
+					// as Gson, final fields are set too
+					field.setAccessible(true);
+					setter = fieldLookup.unreflectSetter(field).asType(SETTER);
+				}
+
+				var adapter = gson.getAdapter(TypeToken.get(field.getGenericType()));
+				// as Gson, primitive values are written with the adapter of their runtime, boxed, type
+				var boxed = MethodType.methodType(field.getType()).wrap().returnType();
+				var writeAdapter = field.getType().isPrimitive() ? gson.getAdapter(boxed) : adapter;
+				var binding = new Binding(name(gson, field), field.getType(), getter, setter, index, adapter, writeAdapter,
+						writeAdapter == PLAIN.getAdapter(boxed));
+				list.add(binding);
+				for (var alias : aliases(field, binding.name)) {
+					if (byName.put(alias, binding) != null) {
+						throw new IllegalArgumentException("Duplicate JSON name " + alias);
+					}
+				}
+			}
+			this.bindings = list.toArray(Binding[]::new);
+
+			if (record) {
+				var types = new Class<?>[components.length];
+				for (var i = 0; i < components.length; i++) {
+					types[i] = components[i].getType();
+				}
+				constructor = lookup.unreflectConstructor(raw.getDeclaredConstructor(types))
+						.asSpreader(Object[].class, types.length)
+						.asType(MethodType.methodType(Object.class, Object[].class));
+			} else if (settable) {
+				constructor = lookup.unreflectConstructor(raw.getDeclaredConstructor())
+						.asType(MethodType.methodType(Object.class));
+			} else {
+				// written compiled, read by Gson which can allocate without a constructor
+				constructor = null;
+			}
+		}
+
+		@Override
+		public void write(JsonWriter out, Object value) throws IOException {
+			if (value == null) {
+				out.nullValue();
+				return;
+			}
+			out.beginObject();
+			try {
+				for (var binding : bindings) {
+					binding.write(gson, out, value);
+				}
+			} catch (IOException | RuntimeException e) {
+				throw e;
+			} catch (Throwable e) {
+				throw new IllegalStateException(e);
+			}
+			out.endObject();
+		}
+
+		@Override
+		public Object read(JsonReader in) throws IOException {
+			if (!record && constructor == null) {
+				return delegate.read(in);
+			}
+			if (in.peek() == JsonToken.NULL) {
+				in.nextNull();
+				return null;
+			}
+			try {
+				var args = record ? new Object[bindings.length] : null;
+				var instance = record ? null : constructor.invokeExact();
+				in.beginObject();
+				while (in.hasNext()) {
+					var binding = byName.get(in.nextName());
+					if (binding == null) {
+						in.skipValue();
+						continue;
+					}
+					var value = binding.adapter.read(in);
+					if (value == null && binding.type.isPrimitive()) {
+						continue;
+					}
+					if (record) {
+						args[binding.index] = value;
+					} else {
+						binding.setter.invokeExact(instance, value);
+					}
+				}
+				in.endObject();
+
+				if (!record) {
+					return instance;
+				}
+				for (var binding : bindings) {
+					if (args[binding.index] == null && binding.type.isPrimitive()) {
+						args[binding.index] = defaultValue(binding.type);
+					}
+				}
+				return constructor.invokeExact(args);
+			} catch (IOException | RuntimeException e) {
+				throw e;
+			} catch (Throwable e) {
+				throw new IllegalStateException(e);
+			}
+		}
+	}
+
+	private static final class Binding {
+		private final String name;
+		private final Class<?> type;
+		private final MethodHandle getter;
+		private final MethodHandle setter;
+		private final int index;
+		@SuppressWarnings("rawtypes")
+		private final TypeAdapter adapter;
+		@SuppressWarnings("rawtypes")
+		private final TypeAdapter writeAdapter;
+		private final boolean polymorphic;
+		private final Class<?> direct;
+
+		private Binding(String name, Class<?> type, MethodHandle getter, MethodHandle setter, int index, TypeAdapter<?> adapter,
+				TypeAdapter<?> writeAdapter, boolean builtIn) {
+			this.name = name;
+			this.type = type;
+			this.setter = setter;
+			this.index = index;
+			this.adapter = adapter;
+			this.writeAdapter = writeAdapter;
+			// primitives with a direct JsonWriter method are written without boxing, unless adapted otherwise
+			this.direct = builtIn && (type == int.class || type == long.class || type == boolean.class) ? type : null;
+			this.getter = direct != null
+					? getter.asType(getter.type().changeParameterType(0, Object.class))
+					: getter.asType(GETTER);
+			this.polymorphic = !type.isPrimitive() && !Modifier.isFinal(type.getModifiers())
+					&& !Collection.class.isAssignableFrom(type) && !Map.class.isAssignableFrom(type);
+		}
+
+		@SuppressWarnings("unchecked")
+		private void write(Gson gson, JsonWriter out, Object instance) throws Throwable {
+			if (direct == int.class) {
+				out.name(name).value((int) getter.invokeExact(instance));
+			} else if (direct == long.class) {
+				out.name(name).value((long) getter.invokeExact(instance));
+			} else if (direct == boolean.class) {
+				out.name(name).value((boolean) getter.invokeExact(instance));
+			} else {
+				var value = (Object) getter.invokeExact(instance);
+				out.name(name);
+				if (value == null) {
+					// the writer drops the name again unless it serializes nulls
+					out.nullValue();
+					return;
+				}
+				// like Gson, a subclass value of a declared supertype is written with its own adapter
+				if (polymorphic && value.getClass() != type) {
+					((TypeAdapter<Object>) gson.getAdapter(value.getClass())).write(out, value);
+				} else {
+					writeAdapter.write(out, value);
+				}
+			}
+		}
+	}
+
+	/**
+	 * One field per modifier Gson may be configured to exclude.
+	 */
+	@SuppressWarnings("unused")
+	private static final class FieldSelectionProbe {
+		private int a = 1;
+		protected int b = 1;
+		public int c = 1;
+		volatile int d = 1;
+		final int e = 1;
+		transient int f = 1;
+		static int g = 1;
+	}
+
+	private static boolean hasNoArgsConstructor(Class<?> raw) {
+		for (var constructor : raw.getDeclaredConstructors()) {
+			if (constructor.getParameterCount() == 0) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private static String name(Gson gson, Field field) {
+		var serializedName = field.getAnnotation(SerializedName.class);
+		return serializedName != null ? serializedName.value() : gson.fieldNamingStrategy().translateName(field);
+	}
+
+	private static List<String> aliases(Field field, String name) {
+		var aliases = new ArrayList<String>();
+		aliases.add(name);
+		var serializedName = field.getAnnotation(SerializedName.class);
+		if (serializedName != null) {
+			aliases.addAll(List.of(serializedName.alternate()));
+		}
+		return aliases;
+	}
+
+	private static boolean hasTypeVariable(Type type) {
+		if (type instanceof TypeVariable<?>) {
+			return true;
+		}
+		if (type instanceof ParameterizedType parameterized) {
+			for (var argument : parameterized.getActualTypeArguments()) {
+				if (hasTypeVariable(argument)) {
+					return true;
+				}
+			}
+			return false;
+		}
+		if (type instanceof GenericArrayType array) {
+			return hasTypeVariable(array.getGenericComponentType());
+		}
+		if (type instanceof WildcardType wildcard) {
+			for (var bound : wildcard.getUpperBounds()) {
+				if (hasTypeVariable(bound)) {
+					return true;
+				}
+			}
+			for (var bound : wildcard.getLowerBounds()) {
+				if (hasTypeVariable(bound)) {
+					return true;
+				}
+			}
+		}
+		return false;
+	}
+
+	private static Object defaultValue(Class<?> type) {
+		if (type == boolean.class) {
+			return false;
+		}
+		if (type == char.class) {
+			return '\0';
+		}
+		if (type == long.class) {
+			return 0L;
+		}
+		if (type == float.class) {
+			return 0f;
+		}
+		if (type == double.class) {
+			return 0d;
+		}
+		if (type == byte.class) {
+			return (byte) 0;
+		}
+		if (type == short.class) {
+			return (short) 0;
+		}
+		return 0;
+	}
+}
@@ -0,0 +1,116 @@
+package gr.kgdev.beer.utils;
+
+import java.security.GeneralSecurityException;
+import java.security.Key;
+import java.security.PrivateKey;
+import java.security.PublicKey;
+import java.security.Signature;
+import java.security.interfaces.EdECKey;
+import java.util.Set;
+
+import com.nimbusds.jose.JOSEException;
+import com.nimbusds.jose.JWSAlgorithm;
+import com.nimbusds.jose.JWSHeader;
+import com.nimbusds.jose.JWSSigner;
+import com.nimbusds.jose.JWSVerifier;
+import com.nimbusds.jose.jca.JCAContext;
+import com.nimbusds.jose.util.Base64URL;
+
+/**
+ * EdDSA signing and verification over Ed25519 with the JDK provider.
+ * <p>
+ * The Ed25519 support of nimbus-jose-jwt requires Google Tink, which Beer
+ * does not depend on; the JDK has implemented Ed25519 since Java 15 and its
+ * signatures are the raw 64 bytes JWS expects.
+ */
+final class BeerEd25519 {
+
+	private static final Set<JWSAlgorithm> ALGORITHMS = Set.of(JWSAlgorithm.EdDSA, JWSAlgorithm.Ed25519);
+
+	private BeerEd25519() {
+	}
+
+	/**
+	 * Checks that a key is an Ed25519 key.
+	 *
+	 * @param key the key
+	 * @throws IllegalArgumentException if it is not
+	 */
+	static void check(Key key) {
+		if (!(key instanceof EdECKey edKey) || !"Ed25519".equalsIgnoreCase(edKey.getParams().getName())) {
+			throw new IllegalArgumentException("Not an Ed25519 key: " + key.getAlgorithm());
+		}
+	}
+
+	static final class Signer implements JWSSigner {
+
+		private final PrivateKey privateKey;
+		private final JCAContext jcaContext = new JCAContext();
+
+		Signer(PrivateKey privateKey) {
+			check(privateKey);
+			this.privateKey = privateKey;
+		}
+
+		@Override
+		public Base64URL sign(JWSHeader header, byte[] signingInput) throws JOSEException {
+			try {
+				var signature = Signature.getInstance("Ed25519");
+				signature.initSign(privateKey);
+				signature.update(signingInput);
+				return Base64URL.encode(signature.sign());
+			} catch (GeneralSecurityException e) {
+				throw new JOSEException("Could not sign with Ed25519: " + e.getMessage(), e);
+			}
+		}
+
+		@Override
+		public Set<JWSAlgorithm> supportedJWSAlgorithms() {
+			return ALGORITHMS;
+		}
+
+		@Override
+		public JCAContext getJCAContext() {
+			return jcaContext;
+		}
+	}
+
+	static final class Verifier implements JWSVerifier {
+
+		private final PublicKey publicKey;
+		private final JCAContext jcaContext = new JCAContext();
+
+		Verifier(PublicKey publicKey) {
+			check(publicKey);
+			this.publicKey = publicKey;
+		}
+
+		@Override
+		public boolean verify(JWSHeader header, byte[] signedContent, Base64URL signature) throws JOSEException {
+			if (!ALGORITHMS.contains(header.getAlgorithm())) {
+				return false;
+			}
+			try {
+				var verifier = Signature.getInstance("Ed25519");
+				verifier.initVerify(publicKey);
+				verifier.update(signedContent);
+				return verifier.verify(signature.decode());
+			} catch (java.security.SignatureException e) {
+				// malformed signature
+				return false;
+			} catch (GeneralSecurityException e) {
+				throw new JOSEException("Could not verify with Ed25519: " + e.getMessage(), e);
+			}
+		}
+
+		@Override
+		public Set<JWSAlgorithm> supportedJWSAlgorithms() {
+			return ALGORITHMS;
+		}
+
+		@Override
+		public JCAContext getJCAContext() {
+			return jcaContext;
+		}
+	}
+}
@@ -7,6 +7,18 @@ package gr.kgdev.beer.utils;
  */
 public class BeerFileConfig {
 
+	/**
+	 * How entity tags are computed for downloaded files.
+	 */
+	public enum ETagPolicy {
+		/** No {@code ETag} header is sent. */
+		NONE,
+		/** Weak tag derived from file size and last modified time, costs a single stat. */
+		WEAK,
+		/** Strong tag derived from a SHA-256 hash of the content, computed once per file version. */
+		STRONG
+	}
+
 	/**
 	 * Maximum allowed size for a single uploaded file, in bytes.
 	 */
@@ -28,6 +40,49 @@ public class BeerFileConfig {
 	 */
 	private Boolean cacheEnabled = true;
 
+	/**
+	 * {@code Cache-Control} header value sent with downloads when caching is enabled.
+	 */
+	private String cacheControl = "public, max-age=86400";
+
+	/**
+	 * How entity tags are computed for downloads.
+	 */
+	private ETagPolicy etagPolicy = ETagPolicy.WEAK;
+
+	/**
+	 * Indicates whether a {@code Last-Modified} header is sent and
+	 * {@code If-Modified-Since} is honored for downloads.
+	 */
+	private Boolean lastModifiedEnabled = true;
+
+	/**
+	 * Maximum number of files whose metadata (content type, size, modification
+	 * time, entity tag) is cached.
+	 */
+	private Integer metadataCacheSize = 10000;
+
+	/**
+	 * Maximum number of files a page of a paginated listing may hold.
+	 */
+	private Integer maxListingLimit = 1000;
+
+	/**
+	 * Maximum allowed size of a file uploaded in chunks, in bytes.
+	 */
+	private Long maxChunkedFileSize = 10L * 1024 * 1024 * 1024;
+
+	/**
+	 * Maximum allowed size of a single chunk, in bytes.
+	 */
+	private Integer maxChunkSize = 64 * 1024 * 1024;
+
+	/**
+	 * Time in milliseconds after which a chunked upload without activity is
+	 * discarded.
+	 */
+	private Long chunkedUploadTimeout = 24L * 60 * 60 * 1000;
+
 	/**
 	 * Returns the maximum file size in bytes.
 	 */
@@ -133,4 +188,154 @@ public class BeerFileConfig {
 		return this;
 	}
 
+	/**
+	 * Returns the {@code Cache-Control} header value sent with downloads.
+	 */
+	public String getCacheControl() {
+		return cacheControl;
+	}
+
+	/**
+	 * Sets the {@code Cache-Control} header value sent with downloads when
+	 * caching is enabled, e.g. {@code "private, max-age=0, must-revalidate"}.
+	 * 
+	 * @param cacheControl the header value
+	 * @return this config instance
+	 */
+	public BeerFileConfig setCacheControl(String cacheControl) {
+		this.cacheControl = cacheControl;
+		return this;
+	}
+
+	/**
+	 * Returns how entity tags are computed for downloads.
+	 */
+	public ETagPolicy getEtagPolicy() {
+		return etagPolicy;
+	}
+
+	/**
+	 * Sets how entity tags are computed for downloads. Requests carrying a
+	 * matching {@code If-None-Match} header are answered with {@code 304 Not
+	 * Modified} without sending the content.
+	 * 
+	 * @param etagPolicy the entity tag policy
+	 * @return this config instance
+	 */
+	public BeerFileConfig setEtagPolicy(ETagPolicy etagPolicy) {
+		this.etagPolicy = etagPolicy;
+		return this;
+	}
+
+	/**
+	 * Returns whether {@code Last-Modified} is sent with downloads.
+	 */
+	public Boolean getLastModifiedEnabled() {
+		return lastModifiedEnabled;
+	}
+
+	/**
+	 * Enables or disables the {@code Last-Modified} header and
+	 * {@code If-Modified-Since} handling for downloads.
+	 * 
+	 * @param lastModifiedEnabled true to enable, false to disable
+	 * @return this config instance
+	 */
+	public BeerFileConfig setLastModifiedEnabled(Boolean lastModifiedEnabled) {
+		this.lastModifiedEnabled = lastModifiedEnabled;
+		return this;
+	}
+
+	/**
+	 * Returns the maximum number of files whose metadata is cached.
+	 */
+	public Integer getMetadataCacheSize() {
+		return metadataCacheSize;
+	}
+
+	/**
+	 * Sets the maximum number of files whose metadata is cached.
+	 * 
+	 * @param metadataCacheSize the maximum number of cached files
+	 * @return this config instance
+	 */
+	public BeerFileConfig setMetadataCacheSize(Integer metadataCacheSize) {
+		this.metadataCacheSize = metadataCacheSize;
+		return this;
+	}
+
+	/**
+	 * Returns the maximum number of files a page of a paginated listing may hold.
+	 */
+	public Integer getMaxListingLimit() {
+		return maxListingLimit;
+	}
+
+	/**
+	 * Sets the maximum number of files a page of a paginated listing may
+	 * hold; larger limits are rejected with a 400.
+	 * 
+	 * @param maxListingLimit the maximum page size
+	 * @return this config instance
+	 */
+	public BeerFileConfig setMaxListingLimit(Integer maxListingLimit) {
+		this.maxListingLimit = maxListingLimit;
+		return this;
+	}
+
+	/**
+	 * Returns the maximum size of a file uploaded in chunks, in bytes.
+	 */
+	public Long getMaxChunkedFileSize() {
+		return maxChunkedFileSize;
+	}
+
+	/**
+	 * Sets the maximum size of a file uploaded in chunks, in bytes.
+	 * 
+	 * @param maxChunkedFileSize file size in bytes
+	 * @return this config instance
+	 */
+	public BeerFileConfig setMaxChunkedFileSize(Long maxChunkedFileSize) {
+		this.maxChunkedFileSize = maxChunkedFileSize;
+		return this;
+	}
+
+	/**
+	 * Returns the maximum size of a single chunk, in bytes.
+	 */
+	public Integer getMaxChunkSize() {
+		return maxChunkSize;
+	}
+
+	/**
+	 * Sets the maximum size of a single chunk, in bytes.
+	 * 
+	 * @param maxChunkSize chunk size in bytes
+	 * @return this config instance
+	 */
+	public BeerFileConfig setMaxChunkSize(Integer maxChunkSize) {
+		this.maxChunkSize = maxChunkSize;
+		return this;
+	}
+
+	/**
+	 * Returns the inactivity timeout of chunked uploads, in milliseconds.
+	 */
+	public Long getChunkedUploadTimeout() {
+		return chunkedUploadTimeout;
+	}
+
+	/**
+	 * Sets the time in milliseconds after which a chunked upload without
+	 * activity is discarded, together with the chunks received so far.
+	 * 
+	 * @param chunkedUploadTimeout timeout in milliseconds
+	 * @return this config instance
+	 */
+	public BeerFileConfig setChunkedUploadTimeout(Long chunkedUploadTimeout) {
+		this.chunkedUploadTimeout = chunkedUploadTimeout;
+		return this;
+	}
+
 }
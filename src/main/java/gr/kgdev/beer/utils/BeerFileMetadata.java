@@ -0,0 +1,121 @@
+package gr.kgdev.beer.utils;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+
+import org.apache.commons.codec.digest.DigestUtils;
+
+/**
+ * Immutable snapshot of a file's metadata, as cached by
+ * {@link BeerFileMetadataCache}.
+ * <p>
+ * Size, modification time and type come from a single attributes read.
+ * The content type and the strong (content hash) entity tag are computed
+ * lazily on first use and then memoized for the lifetime of the snapshot,
+ * i.e. until the file changes.
+ */
+public class BeerFileMetadata {
+
+	private final Path path;
+	private final long size;
+	private final long lastModified;
+	private final boolean regularFile;
+
+	private volatile String contentType;
+	private volatile String strongEtag;
+
+	BeerFileMetadata(Path path, BasicFileAttributes attributes) {
+		this.path = path;
+		this.size = attributes.size();
+		this.lastModified = attributes.lastModifiedTime().toMillis();
+		this.regularFile = attributes.isRegularFile();
+	}
+
+	/**
+	 * Returns the path of the file.
+	 *
+	 * @return the file path
+	 */
+	public Path getPath() {
+		return path;
+	}
+
+	/**
+	 * Returns the file size in bytes.
+	 *
+	 * @return the size
+	 */
+	public long getSize() {
+		return size;
+	}
+
+	/**
+	 * Returns the last modified time in milliseconds since the epoch.
+	 *
+	 * @return the last modified time
+	 */
+	public long getLastModified() {
+		return lastModified;
+	}
+
+	/**
+	 * Returns whether the path is a regular file.
+	 *
+	 * @return {@code true} for regular files
+	 */
+	public boolean isRegularFile() {
+		return regularFile;
+	}
+
+	/**
+	 * Returns the content type of the file, probed once.
+	 *
+	 * @return the content type, {@code application/octet-stream} if unknown
+	 * @throws IOException if probing fails
+	 */
+	public String getContentType() throws IOException {
+		var type = contentType;
+		if (type == null) {
+			type = Files.probeContentType(path);
+			type = type != null ? type : "application/octet-stream";
+			contentType = type;
+		}
+		return type;
+	}
+
+	/**
+	 * Returns a weak entity tag derived from size and modification time.
+	 *
+	 * @return the quoted weak entity tag
+	 */
+	public String getWeakEtag() {
+		return "W/\"" + Long.toHexString(size) + "-" + Long.toHexString(lastModified) + "\"";
+	}
+
+	/**
+	 * Returns a strong entity tag derived from a SHA-256 hash of the content,
+	 * computed once per file version.
+	 *
+	 * @return the quoted strong entity tag
+	 * @throws IOException if the file cannot be read
+	 */
+	public String getStrongEtag() throws IOException {
+		var etag = strongEtag;
+		if (etag == null) {
+			try (var in = Files.newInputStream(path)) {
+				etag = "\"" + DigestUtils.sha256Hex(in) + "\"";
+			}
+			strongEtag = etag;
+		}
+		return etag;
+	}
+
+	/**
+	 * Returns whether this snapshot still describes the given attributes.
+	 */
+	boolean matches(BasicFileAttributes attributes) {
+		return size == attributes.size() && lastModified == attributes.lastModifiedTime().toMillis();
+	}
+}
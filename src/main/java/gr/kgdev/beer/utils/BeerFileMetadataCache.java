@@ -0,0 +1,196 @@
+package gr.kgdev.beer.utils;
+
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Bounded cache of {@link BeerFileMetadata} keyed by path.
+ * <p>
+ * Every lookup costs a single attributes read, used to validate the cached
+ * snapshot: the content type probe and the content hash are only
+ * recomputed when the file's size or modification time changed. Snapshots
+ * are never trusted without that check, as a stale size would drive the
+ * {@code Content-Length}, the ETag and the mapped length of a download.
+ *
+ * <p>
+ * Directories registered with {@link #watch(Path)} are monitored with a
+ * {@link WatchService}: entries under them are dropped on create, modify and
+ * delete events, so changed files do not linger in the cache. Events are a
+ * hint only, they may arrive late or race with a lookup. Files changed
+ * through {@link BeerFileUtils} are invalidated explicitly.
+ *
+ * <p>
+ * When the cache is full, arbitrary entries are evicted to make room.
+ */
+public class BeerFileMetadataCache implements AutoCloseable {
+
+	private static final Logger LOGGER = LoggerFactory.getLogger(BeerFileMetadataCache.class);
+
+	private final int maxEntries;
+	private final Map<Path, BeerFileMetadata> entries = new ConcurrentHashMap<>();
+	private final Set<Path> watchedDirectories = ConcurrentHashMap.newKeySet();
+	private WatchService watchService;
+
+	/**
+	 * Creates a metadata cache.
+	 *
+	 * @param maxEntries the maximum number of cached files
+	 */
+	public BeerFileMetadataCache(int maxEntries) {
+		this.maxEntries = maxEntries;
+	}
+
+	/**
+	 * Returns the metadata of a file, from the cache if still valid.
+	 *
+	 * @param path the file
+	 * @return the file metadata
+	 * @throws java.nio.file.NoSuchFileException if the file does not exist
+	 * @throws IOException if the attributes cannot be read
+	 */
+	public BeerFileMetadata get(Path path) throws IOException {
+		path = path.toAbsolutePath().normalize();
+
+		var cached = entries.get(path);
+		var attributes = Files.readAttributes(path, BasicFileAttributes.class);
+		if (cached != null && cached.matches(attributes)) {
+			return cached;
+		}
+
+		var metadata = new BeerFileMetadata(path, attributes);
+		put(path, metadata);
+		return metadata;
+	}
+
+	/**
+	 * Returns the metadata of a file without adding it to the cache, for bulk
+	 * operations such as directory listings that would otherwise flush it.
+	 * A cached snapshot is returned if it matches the attributes, which are
+	 * read once unless given.
+	 *
+	 * @param path the file
+	 * @param attributes the already read attributes, or {@code null} to read them
+	 * @return the file metadata
+	 * @throws IOException if the attributes cannot be read
+	 */
+	public BeerFileMetadata peek(Path path, BasicFileAttributes attributes) throws IOException {
+		var absolute = path.toAbsolutePath().normalize();
+		if (attributes == null) {
+			attributes = Files.readAttributes(absolute, BasicFileAttributes.class);
+		}
+		var cached = entries.get(absolute);
+		if (cached != null && cached.matches(attributes)) {
+			return cached;
+		}
+		return new BeerFileMetadata(absolute, attributes);
+	}
+
+	/**
+	 * Removes a file from the cache.
+	 *
+	 * @param path the file
+	 */
+	public void invalidate(Path path) {
+		entries.remove(path.toAbsolutePath().normalize());
+	}
+
+	/**
+	 * Removes every file from the cache.
+	 */
+	public void clear() {
+		entries.clear();
+	}
+
+	/**
+	 * Monitors a directory so that entries under it are dropped when
+	 * filesystem events report a change, on top of the validation of every
+	 * lookup. Subdirectories are not monitored.
+	 *
+	 * @param directory the directory to watch
+	 * @throws IOException if the directory cannot be watched
+	 */
+	public synchronized void watch(Path directory) throws IOException {
+		directory = directory.toAbsolutePath().normalize();
+		if (watchedDirectories.contains(directory)) {
+			return;
+		}
+
+		if (watchService == null) {
+			watchService = directory.getFileSystem().newWatchService();
+			var thread = new Thread(this::processEvents, "beer-file-watcher");
+			thread.setDaemon(true);
+			thread.start();
+		}
+
+		directory.register(watchService, StandardWatchEventKinds.ENTRY_CREATE,
+				StandardWatchEventKinds.ENTRY_MODIFY, StandardWatchEventKinds.ENTRY_DELETE);
+		watchedDirectories.add(directory);
+	}
+
+	/**
+	 * Stops watching directories. Cached entries are kept, and still
+	 * validated on every lookup.
+	 *
+	 * @throws IOException if the watch service cannot be closed
+	 */
+	@Override
+	public synchronized void close() throws IOException {
+		watchedDirectories.clear();
+		if (watchService != null) {
+			watchService.close();
+			watchService = null;
+		}
+	}
+
+	private void put(Path path, BeerFileMetadata metadata) {
+		if (entries.size() >= maxEntries) {
+			var iterator = entries.keySet().iterator();
+			// evict a small batch at once, so a full cache does not evict on every miss
+			for (var i = 0; i < Math.max(1, maxEntries / 16) && iterator.hasNext(); i++) {
+				iterator.next();
+				iterator.remove();
+			}
+		}
+		entries.put(path, metadata);
+	}
+
+	private void processEvents() {
+		var service = watchService;
+		while (true) {
+			WatchKey key;
+			try {
+				key = service.take();
+			} catch (InterruptedException | ClosedWatchServiceException e) {
+				return;
+			}
+
+			var directory = (Path) key.watchable();
+			for (var event : key.pollEvents()) {
+				if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+					// events were lost, nothing under this directory can be trusted
+					entries.keySet().removeIf(path -> directory.equals(path.getParent()));
+					continue;
+				}
+				entries.remove(directory.resolve((Path) event.context()));
+			}
+
+			if (!key.reset()) {
+				LOGGER.debug("Stopped watching " + directory);
+				watchedDirectories.remove(directory);
+				entries.keySet().removeIf(path -> directory.equals(path.getParent()));
+			}
+		}
+	}
+}
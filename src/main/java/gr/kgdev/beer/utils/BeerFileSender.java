@@ -0,0 +1,356 @@
+package gr.kgdev.beer.utils;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.UUID;
+
+import org.slf4j.LoggerFactory;
+
+import jakarta.servlet.AsyncContext;
+import jakarta.servlet.ServletOutputStream;
+import jakarta.servlet.WriteListener;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+/**
+ * Writes file content to an HTTP response, honoring {@code Range} requests.
+ * <p>
+ * File regions are memory mapped through a {@link FileChannel} and handed to
+ * {@link ServletOutputStream#write(ByteBuffer)}, so Jetty writes them to the
+ * socket without copying them through heap buffers. Small regions are read
+ * with a single positional read instead, where mapping would cost more than
+ * it saves.
+ *
+ * <p>
+ * When the request supports async processing the content is written from a
+ * {@link WriteListener}, so no request thread is held while the client reads
+ * a large file. Otherwise the content is written blocking.
+ *
+ * <p>
+ * Supported responses:
+ * <ul>
+ *   <li>{@code 200 OK} – whole file, no (usable) {@code Range} header</li>
+ *   <li>{@code 206 Partial Content} – single range, or {@code multipart/byteranges}
+ *   for multiple ranges</li>
+ *   <li>{@code 416 Range Not Satisfiable} – no requested range overlaps the file</li>
+ * </ul>
+ */
+final class BeerFileSender {
+
+	/** Regions up to this size are read instead of memory mapped. */
+	private static final int MAP_THRESHOLD = 64 * 1024;
+
+	/** Maximum size of a single mapped window. */
+	private static final int MAP_WINDOW = 8 * 1024 * 1024;
+
+	/** Requests asking for more ranges than this are served whole. */
+	private static final int MAX_RANGES = 16;
+
+	private BeerFileSender() {
+	}
+
+	/**
+	 * Sends the file, or the requested ranges of it, to the response.
+	 * <p>
+	 * Content type, disposition and caching headers are expected to be set by
+	 * the caller.
+	 *
+	 * @param req the {@link HttpServletRequest}, inspected for {@code Range}
+	 * @param res the {@link HttpServletResponse} to write to
+	 * @param file the file to send
+	 * @param size the file size in bytes
+	 * @param contentType the content type of the file
+	 * @param rangesAllowed whether the {@code Range} header may be honored,
+	 *                      {@code false} e.g. when an {@code If-Range} precondition failed
+	 * @throws IOException if the file cannot be read or the response written
+	 */
+	static void send(HttpServletRequest req, HttpServletResponse res, Path file, long size, String contentType,
+			boolean rangesAllowed) throws IOException {
+		res.setHeader("Accept-Ranges", "bytes");
+
+		var ranges = rangesAllowed ? parseRanges(req.getHeader("Range"), size) : null;
+		var pieces = new ArrayDeque<Object>();
+
+		if (ranges == null) {
+			res.setStatus(200);
+			res.setContentLengthLong(size);
+			pieces.add(new long[] { 0, size });
+		} else if (ranges.isEmpty()) {
+			res.setStatus(416);
+			res.setHeader("Content-Range", "bytes */" + size);
+			return;
+		} else if (ranges.size() == 1) {
+			var range = ranges.get(0);
+			res.setStatus(206);
+			res.setHeader("Content-Range", contentRange(range, size));
+			res.setContentLengthLong(range[1] - range[0]);
+			pieces.add(range);
+		} else {
+			var boundary = UUID.randomUUID().toString().replace("-", "");
+			var length = 0L;
+			for (var range : ranges) {
+				var header = ("\r\n--" + boundary + "\r\nContent-Type: " + contentType + "\r\nContent-Range: "
+						+ contentRange(range, size) + "\r\n\r\n").getBytes(StandardCharsets.US_ASCII);
+				pieces.add(header);
+				pieces.add(range);
+				length += header.length + range[1] - range[0];
+			}
+			var trailer = ("\r\n--" + boundary + "--\r\n").getBytes(StandardCharsets.US_ASCII);
+			pieces.add(trailer);
+			length += trailer.length;
+
+			res.setStatus(206);
+			res.setContentType("multipart/byteranges; boundary=" + boundary);
+			res.setContentLengthLong(length);
+		}
+
+		var channel = FileChannel.open(file, StandardOpenOption.READ);
+		var content = new Content(channel, pieces);
+
+		if (req.isAsyncSupported()) {
+			var asyncContext = req.isAsyncStarted() ? req.getAsyncContext() : req.startAsync();
+			// the async context must not time out while a slow client downloads a large file
+			asyncContext.setTimeout(0);
+			var out = res.getOutputStream();
+			out.setWriteListener(new AsyncWriter(asyncContext, out, content));
+			return;
+		}
+
+		try (content; var out = res.getOutputStream()) {
+			ByteBuffer buffer;
+			while ((buffer = content.next()) != null) {
+				out.write(buffer);
+			}
+			out.flush();
+		}
+	}
+
+	/**
+	 * Parses a {@code Range} header.
+	 * <p>
+	 * A header that is not syntactically valid is ignored, as RFC 9110
+	 * requires. Overlapping and adjacent ranges are coalesced, so every byte
+	 * is sent once, in ascending order.
+	 *
+	 * @param header the header value, may be {@code null}
+	 * @param size the file size in bytes
+	 * @return {@code null} if the whole file should be sent, an empty list if
+	 *         no range is satisfiable, otherwise the ranges as
+	 *         {@code [start, endExclusive)} pairs
+	 */
+	static List<long[]> parseRanges(String header, long size) {
+		if (header == null || !header.startsWith("bytes=")) {
+			return null;
+		}
+
+		var specs = header.substring("bytes=".length()).split(",");
+		if (specs.length > MAX_RANGES) {
+			return null;
+		}
+
+		var ranges = new ArrayList<long[]>(specs.length);
+		for (var spec : specs) {
+			spec = spec.trim();
+			if (spec.isEmpty()) {
+				// empty list elements are allowed
+				continue;
+			}
+			var dash = spec.indexOf('-');
+			if (dash < 0) {
+				return null;
+			}
+
+			long start;
+			long end;
+			if (dash == 0) {
+				// suffix range, the last N bytes
+				var suffix = parseDigits(spec.substring(1));
+				if (suffix < 0) {
+					return null;
+				}
+				start = Math.max(0, size - suffix);
+				end = size;
+			} else {
+				start = parseDigits(spec.substring(0, dash));
+				if (start < 0) {
+					return null;
+				}
+				if (dash == spec.length() - 1) {
+					end = size;
+				} else {
+					var last = parseDigits(spec.substring(dash + 1));
+					if (last < start || last == Long.MAX_VALUE) {
+						// syntactically invalid, the whole header is ignored
+						return null;
+					}
+					end = last + 1;
+				}
+			}
+
+			end = Math.min(end, size);
+			if (start < end) {
+				ranges.add(new long[] { start, end });
+			}
+		}
+
+		return coalesce(ranges);
+	}
+
+	/**
+	 * Parses a non-negative decimal number, without the sign
+	 * {@link Long#parseLong(String)} would accept.
+	 *
+	 * @return the number, or {@code -1} if the text is not one
+	 */
+	private static long parseDigits(String text) {
+		if (text.isEmpty()) {
+			return -1;
+		}
+		for (var i = 0; i < text.length(); i++) {
+			var c = text.charAt(i);
+			if (c < '0' || c > '9') {
+				return -1;
+			}
+		}
+		try {
+			return Long.parseLong(text);
+		} catch (NumberFormatException e) {
+			// too large for any file
+			return -1;
+		}
+	}
+
+	/**
+	 * Sorts ranges by start and merges the ones that overlap or touch.
+	 */
+	private static List<long[]> coalesce(List<long[]> ranges) {
+		if (ranges.size() < 2) {
+			return ranges;
+		}
+		ranges.sort(Comparator.comparingLong(range -> range[0]));
+		var merged = new ArrayList<long[]>(ranges.size());
+		var current = ranges.get(0);
+		for (var i = 1; i < ranges.size(); i++) {
+			var next = ranges.get(i);
+			if (next[0] <= current[1]) {
+				current[1] = Math.max(current[1], next[1]);
+			} else {
+				merged.add(current);
+				current = next;
+			}
+		}
+		merged.add(current);
+		return merged;
+	}
+
+	private static String contentRange(long[] range, long size) {
+		return "bytes " + range[0] + "-" + (range[1] - 1) + "/" + size;
+	}
+
+	/**
+	 * Sequence of buffers to write: raw bytes (multipart headers) and file
+	 * regions, mapped or read lazily one window at a time.
+	 */
+	private static final class Content implements AutoCloseable {
+		private final FileChannel channel;
+		private final ArrayDeque<Object> pieces;
+
+		private Content(FileChannel channel, ArrayDeque<Object> pieces) {
+			this.channel = channel;
+			this.pieces = pieces;
+		}
+
+		/**
+		 * @return the next buffer to write, or {@code null} when done
+		 * @throws IOException if the file cannot be read
+		 */
+		private ByteBuffer next() throws IOException {
+			var piece = pieces.peek();
+			if (piece == null) {
+				return null;
+			}
+
+			if (piece instanceof byte[] bytes) {
+				pieces.poll();
+				return ByteBuffer.wrap(bytes);
+			}
+
+			var region = (long[]) piece;
+			var position = region[0];
+			var remaining = region[1] - position;
+			if (remaining <= 0) {
+				pieces.poll();
+				return next();
+			}
+
+			ByteBuffer buffer;
+			if (remaining <= MAP_THRESHOLD) {
+				buffer = ByteBuffer.allocate((int) remaining);
+				while (buffer.hasRemaining()) {
+					if (channel.read(buffer, position + buffer.position()) < 0) {
+						throw new IOException("File was truncated while being sent");
+					}
+				}
+				buffer.flip();
+			} else {
+				buffer = channel.map(FileChannel.MapMode.READ_ONLY, position, Math.min(remaining, MAP_WINDOW));
+			}
+
+			region[0] += buffer.remaining();
+			return buffer;
+		}
+
+		@Override
+		public void close() throws IOException {
+			channel.close();
+		}
+	}
+
+	/**
+	 * Writes the content whenever the output stream is ready, completing the
+	 * async context once everything has been written.
+	 */
+	private static final class AsyncWriter implements WriteListener {
+		private final AsyncContext asyncContext;
+		private final ServletOutputStream out;
+		private final Content content;
+
+		private AsyncWriter(AsyncContext asyncContext, ServletOutputStream out, Content content) {
+			this.asyncContext = asyncContext;
+			this.out = out;
+			this.content = content;
+		}
+
+		@Override
+		public void onWritePossible() throws IOException {
+			while (out.isReady()) {
+				var buffer = content.next();
+				if (buffer == null) {
+					content.close();
+					asyncContext.complete();
+					return;
+				}
+				out.write(buffer);
+			}
+		}
+
+		@Override
+		public void onError(Throwable t) {
+			LoggerFactory.getLogger(BeerFileUtils.class).debug("File transfer aborted: " + t.getMessage());
+			try {
+				content.close();
+			} catch (IOException e) {
+				// nothing left to do, the response is already broken
+			}
+			asyncContext.complete();
+		}
+	}
+}
@@ -2,18 +2,33 @@ package gr.kgdev.beer.utils;
 
 import java.io.File;
 import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.io.UnsupportedEncodingException;
 import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Base64;
 import java.util.Comparator;
 import java.util.List;
+import java.util.PriorityQueue;
+import java.util.concurrent.CompletableFuture;
 
 import org.slf4j.LoggerFactory;
 
+import com.google.gson.stream.JsonWriter;
+
+import gr.kgdev.beer.model.FileInfo;
+import gr.kgdev.beer.model.FilePage;
+import gr.kgdev.beer.model.FileSortKey;
 import gr.kgdev.beer.model.SimpleMessage;
+import gr.kgdev.beer.model.UploadResult;
+import gr.kgdev.beer.model.exceptions.BadRequestException;
+import gr.kgdev.beer.model.exceptions.PayloadTooLargeException;
 import jakarta.servlet.MultipartConfigElement;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
@@ -32,6 +47,9 @@ import jakarta.servlet.http.Part;
  */
 public class BeerFileUtils {
 
+	private static final int INITIAL_PAGE_CAPACITY = 64;
+	private static final String UPLOAD_TEMP_DIRECTORY = ".uploads";
+
 	private static BeerFileConfig fileConfig = 
 		new BeerFileConfig()
 			.setMaxFileSizeMb(100)
@@ -39,14 +57,56 @@ public class BeerFileUtils {
 			.setFileSizeThreshold(1)
 			.setCacheEnabled(true);
 
+	private static BeerFileMetadataCache metadataCache = new BeerFileMetadataCache(fileConfig.getMetadataCacheSize());
+
 	/**
      * Sets the global file configuration used by file upload and download operations.
+     * <p>
+     * Replaces the file metadata cache as well, closing the previous one so
+     * its directory watcher stops.
      *
      * @param config the {@link BeerFileConfig} containing size limits,
      *               thresholds, and caching settings
      */
 	public static void setFileConfig(BeerFileConfig config) {
+		var previous = metadataCache;
 		fileConfig = config;
+		metadataCache = new BeerFileMetadataCache(config.getMetadataCacheSize());
+		try {
+			previous.close();
+		} catch (IOException e) {
+			LoggerFactory.getLogger(BeerFileUtils.class).warn("Could not close the file metadata cache: " + e.getMessage());
+		}
+	}
+
+	/**
+	 * Returns the global file configuration.
+	 *
+	 * @return the {@link BeerFileConfig}
+	 */
+	public static BeerFileConfig getFileConfig() {
+		return fileConfig;
+	}
+
+	/**
+	 * Returns the cache holding file metadata used by downloads and listings.
+	 *
+	 * @return the {@link BeerFileMetadataCache}
+	 */
+	public static BeerFileMetadataCache getMetadataCache() {
+		return metadataCache;
+	}
+
+	/**
+	 * Watches an upload directory, so cached file metadata under it is
+	 * dropped as soon as filesystem events report a change. Cached metadata
+	 * is still validated against the file attributes on every download.
+	 *
+	 * @param uploadLocation the directory to watch
+	 * @throws IOException if the directory cannot be watched
+	 */
+	public static void watchDirectory(String uploadLocation) throws IOException {
+		metadataCache.watch(Paths.get(uploadLocation));
 	}
 	
 	/**
@@ -98,10 +158,93 @@ public class BeerFileUtils {
 				Files.copy(in, out, StandardCopyOption.REPLACE_EXISTING);
 				uploadedFile.delete();
 			}
+			metadataCache.invalidate(out);
 			
 			return new SimpleMessage("File has been uploaded");
 	}
 	
+	/**
+     * Uploads every file of a multipart HTTP request to the given directory,
+     * streaming it using the default file configuration.
+     *
+     * @param req the {@link HttpServletRequest} containing the multipart data
+     * @param res the {@link HttpServletResponse}
+     * @param uploadLocation the directory where the files should be stored
+     * @return the uploaded files and the other form fields
+     * @throws IOException if reading the request or writing the files fails
+     * @see #uploadFiles(HttpServletRequest, HttpServletResponse, BeerUploadSink, BeerFileConfig)
+     */
+	public static UploadResult uploadFiles(HttpServletRequest req, HttpServletResponse res, String uploadLocation) throws IOException {
+		return uploadFiles(req, res, BeerUploadSink.directory(uploadLocation), fileConfig);
+	}
+
+	/**
+     * Uploads every file of a multipart HTTP request to a sink, streaming it.
+     * <p>
+     * Unlike {@link #uploadFile(HttpServletRequest, HttpServletResponse, String, String, BeerFileConfig)},
+     * parts are parsed while the body is read and written once, directly to
+     * the sink, with their SHA-256 checksum computed on the fly. Size limits
+     * are enforced while reading and, if the upload fails, the files already
+     * written by it are aborted.
+     *
+     * @param req the {@link HttpServletRequest} containing the multipart data
+     * @param res the {@link HttpServletResponse}
+     * @param sink the destination of file parts
+     * @param config the {@link BeerFileConfig} whose size limits apply
+     * @return the uploaded files and the other form fields
+     * @throws IOException if reading the request or writing the files fails
+     * @throws BadRequestException if the request is not a valid multipart request
+     * @throws PayloadTooLargeException if a size limit is exceeded
+     */
+	public static UploadResult uploadFiles(HttpServletRequest req, HttpServletResponse res, BeerUploadSink sink, BeerFileConfig config) throws IOException {
+		return new BeerMultipartUpload(req, sink, config).read(req.getInputStream());
+	}
+
+	/**
+     * Uploads every file of a multipart HTTP request to the given directory,
+     * reading the body asynchronously using the default file configuration.
+     *
+     * @param req the {@link HttpServletRequest} containing the multipart data
+     * @param res the {@link HttpServletResponse}
+     * @param uploadLocation the directory where the files should be stored
+     * @return a future completed with the uploaded files and the other form fields
+     * @throws IOException if the request cannot be read
+     * @see #uploadFilesAsync(HttpServletRequest, HttpServletResponse, BeerUploadSink, BeerFileConfig)
+     */
+	public static CompletableFuture<UploadResult> uploadFilesAsync(HttpServletRequest req, HttpServletResponse res, String uploadLocation) throws IOException {
+		return uploadFilesAsync(req, res, BeerUploadSink.directory(uploadLocation), fileConfig);
+	}
+
+	/**
+     * Uploads every file of a multipart HTTP request to a sink, reading the
+     * body asynchronously.
+     * <p>
+     * Behaves like {@link #uploadFiles(HttpServletRequest, HttpServletResponse, BeerUploadSink, BeerFileConfig)},
+     * but the request is put in async mode and the body is read whenever data
+     * arrives, so no request thread waits for a slow client. Route handlers
+     * can return the future, the response is written once it completes.
+     * If the request does not support async processing, the body is read
+     * blocking and an already completed future is returned.
+     *
+     * @param req the {@link HttpServletRequest} containing the multipart data
+     * @param res the {@link HttpServletResponse}
+     * @param sink the destination of file parts
+     * @param config the {@link BeerFileConfig} whose size limits apply
+     * @return a future completed with the uploaded files and the other form fields
+     * @throws IOException if the request cannot be read
+     */
+	public static CompletableFuture<UploadResult> uploadFilesAsync(HttpServletRequest req, HttpServletResponse res, BeerUploadSink sink, BeerFileConfig config) throws IOException {
+		var upload = new BeerMultipartUpload(req, sink, config);
+		if (!req.isAsyncSupported()) {
+			return CompletableFuture.completedFuture(upload.read(req.getInputStream()));
+		}
+
+		var asyncContext = req.isAsyncStarted() ? req.getAsyncContext() : req.startAsync();
+		// the async context must not time out while a slow client uploads a large file
+		asyncContext.setTimeout(0);
+		return upload.readAsync(req.getInputStream());
+	}
+
 	/**
      * Streams a file to the HTTP response for download or inline display.
      *
@@ -114,7 +257,7 @@ public class BeerFileUtils {
      * @throws Exception if the file cannot be found or streamed
      */
 	public static String downloadFile(HttpServletRequest req, HttpServletResponse res, String uploadLocation, String path, Boolean isInline) throws Exception {
-	    return downloadFile(res, new File(uploadLocation + "/" + URLDecoder.decode(path, "UTF-8")), isInline);
+	    return downloadFile(req, res, new File(uploadLocation + "/" + URLDecoder.decode(path, "UTF-8")), isInline);
 	}
 
 	/**
@@ -130,6 +273,7 @@ public class BeerFileUtils {
 	public static SimpleMessage deleteFile(HttpServletRequest req, HttpServletResponse res, String uploadLocation, String path) throws Exception {
 	    var file = new File(uploadLocation + "/" + path);
 	    file.delete();
+	    metadataCache.invalidate(file.toPath());
 	    
 	    return new SimpleMessage("");
 	}
@@ -138,7 +282,8 @@ public class BeerFileUtils {
      * Lists all files in the given upload directory.
      * <p>
      * Only regular files are included (directories are excluded), and
-     * results are sorted by last modified time.
+     * results are sorted by last modified time. File attributes are read
+     * once per entry.
      *
      * @param uploadLocation the directory to scan
      * @return a list of file names
@@ -148,14 +293,184 @@ public class BeerFileUtils {
 		var dir = uploadLocation;
 	    try (var stream = Files.list(Paths.get(dir))){
 	        return stream
-	          .filter(file -> !Files.isDirectory(file))
-	          .map(Path::toFile)
-	          .sorted(Comparator.comparingLong(File::lastModified))
-	          .map(File::getName)
+	          .map(BeerFileUtils::peekMetadata)
+	          .filter(metadata -> metadata != null && metadata.isRegularFile())
+	          .sorted(Comparator.comparingLong(BeerFileMetadata::getLastModified))
+	          .map(metadata -> metadata.getPath().getFileName().toString())
 	          .toList();
+	    } catch (UncheckedIOException e) {
+	    	throw e.getCause();
 	    }
 	}
 
+	/**
+     * Lists one page of the regular files in the given upload directory.
+     * <p>
+     * Entries are streamed from a {@link java.nio.file.DirectoryStream} with
+     * their attributes read at most once, and only the {@code limit} entries
+     * following the cursor are retained, so memory stays proportional to the
+     * page size regardless of the directory size.
+     *
+     * @param uploadLocation the directory to scan
+     * @param sortKey the sort order of the listing, ties are broken by name
+     * @param limit the maximum number of files in the page, at most {@link BeerFileConfig#getMaxListingLimit()}
+     * @param cursor the continuation token of the previous page, listed with the same sort key, or {@code null} for the first page
+     * @return the page, with the continuation token of the next page if there are more files
+     * @throws BadRequestException if the limit is out of range or the cursor is invalid
+     * @throws IOException if directory access fails
+     */
+	public static FilePage listFiles(String uploadLocation, FileSortKey sortKey, int limit, String cursor) throws IOException {
+		var maxLimit = fileConfig.getMaxListingLimit();
+		if (limit <= 0 || (maxLimit != null && limit > maxLimit)) {
+			throw new BadRequestException(maxLimit != null
+					? "Limit must be between 1 and " + maxLimit
+					: "Limit must be a positive number");
+		}
+
+		var comparator = fileComparator(sortKey);
+		var after = cursor != null ? decodeCursor(cursor, sortKey) : null;
+		// max-heap of the smallest entries after the cursor, its head is the one to drop
+		// sized for small pages, the heap grows with the directory up to limit + 1 entries
+		var page = new PriorityQueue<FileInfo>(Math.min(limit, INITIAL_PAGE_CAPACITY) + 1, comparator.reversed());
+		var hasMore = false;
+
+		try (var stream = Files.newDirectoryStream(Paths.get(uploadLocation))) {
+			for (var path : stream) {
+				var metadata = peekMetadata(path);
+				if (metadata == null || !metadata.isRegularFile()) {
+					continue;
+				}
+
+				var file = new FileInfo(path.getFileName().toString(), metadata.getSize(), metadata.getLastModified());
+				if (after != null && comparator.compare(file, after) <= 0) {
+					continue;
+				}
+
+				page.add(file);
+				if (page.size() > limit) {
+					page.poll();
+					hasMore = true;
+				}
+			}
+		} catch (UncheckedIOException e) {
+			throw e.getCause();
+		}
+
+		var files = new ArrayList<>(page);
+		files.sort(comparator);
+		var next = hasMore ? encodeCursor(files.get(files.size() - 1), sortKey) : null;
+		return new FilePage(files, next);
+	}
+
+	/**
+     * Writes every regular file of the given upload directory to the response
+     * as a JSON array of {@code {name, size, lastModified}} objects.
+     * <p>
+     * Entries are written in directory order while the directory is being
+     * read, so neither the listing nor its JSON representation is ever held
+     * in memory.
+     *
+     * @param res the {@link HttpServletResponse} to write to
+     * @param uploadLocation the directory to scan
+     * @return {@code null} after the listing is written
+     * @throws IOException if directory access or response writing fails
+     */
+	public static String writeFiles(HttpServletResponse res, String uploadLocation) throws IOException {
+		res.setContentType("application/json");
+		try (var stream = Files.newDirectoryStream(Paths.get(uploadLocation))) {
+			var json = new JsonWriter(res.getWriter());
+			json.beginArray();
+			for (var path : stream) {
+				var metadata = peekMetadata(path);
+				if (metadata == null || !metadata.isRegularFile()) {
+					continue;
+				}
+				json.beginObject()
+					.name("name").value(path.getFileName().toString())
+					.name("size").value(metadata.getSize())
+					.name("lastModified").value(metadata.getLastModified())
+					.endObject();
+			}
+			json.endArray();
+			json.flush();
+		} catch (UncheckedIOException e) {
+			throw e.getCause();
+		}
+		return null;
+	}
+
+	/**
+	 * Returns the directory files being uploaded to an upload location are
+	 * written to until complete. It is a directory, so listings, which hold
+	 * regular files only, skip it, and it is inside the upload location, so
+	 * moving a file into place is an atomic rename.
+	 */
+	static Path uploadTempDirectory(Path uploadLocation) throws IOException {
+		return Files.createDirectories(uploadLocation.resolve(UPLOAD_TEMP_DIRECTORY));
+	}
+
+	/**
+	 * Strips any directory from a client supplied file name, so files can
+	 * not be written outside the upload location.
+	 */
+	static String sanitizeFileName(String fileName) {
+		var name = fileName.substring(Math.max(fileName.lastIndexOf('/'), fileName.lastIndexOf('\\')) + 1).trim();
+		if (name.isEmpty() || name.equals(".") || name.equals("..")) {
+			throw new BadRequestException("Invalid file name");
+		}
+		return name;
+	}
+
+	private static Comparator<FileInfo> fileComparator(FileSortKey sortKey) {
+		Comparator<FileInfo> byName = Comparator.comparing(FileInfo::getName);
+		if (sortKey == null) {
+			return byName;
+		}
+		return switch (sortKey) {
+			case NAME -> byName;
+			case LAST_MODIFIED -> Comparator.comparingLong(FileInfo::getLastModified).thenComparing(byName);
+			case SIZE -> Comparator.comparingLong(FileInfo::getSize).thenComparing(byName);
+		};
+	}
+
+	/**
+	 * Encodes the position after a file, along with the sort order it is a
+	 * position in.
+	 */
+	private static String encodeCursor(FileInfo file, FileSortKey sortKey) {
+		var cursor = sortKeyOf(sortKey) + ":" + file.getSize() + ":" + file.getLastModified() + ":" + file.getName();
+		return Base64.getUrlEncoder().withoutPadding().encodeToString(cursor.getBytes(StandardCharsets.UTF_8));
+	}
+
+	private static FileInfo decodeCursor(String cursor, FileSortKey sortKey) {
+		try {
+			var decoded = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+			var parts = decoded.split(":", 4);
+			// a position in another order would skip or repeat files
+			if (!parts[0].equals(sortKeyOf(sortKey).name())) {
+				throw new BadRequestException("Invalid cursor");
+			}
+			return new FileInfo(parts[3], Long.parseLong(parts[1]), Long.parseLong(parts[2]));
+		} catch (Exception e) {
+			throw new BadRequestException("Invalid cursor");
+		}
+	}
+
+	private static FileSortKey sortKeyOf(FileSortKey sortKey) {
+		return sortKey != null ? sortKey : FileSortKey.NAME;
+	}
+
+	private static BeerFileMetadata peekMetadata(Path path) {
+		try {
+			return metadataCache.peek(path, null);
+		} catch (NoSuchFileException e) {
+			// deleted while listing
+			return null;
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
 	/**
      * Extracts and decodes the original filename from a multipart request part.
      *
@@ -174,20 +489,49 @@ public class BeerFileUtils {
      * Writes a file to the HTTP response output stream.
      * <p>
      * Sets appropriate content type, cache headers, and content disposition.
+     * Validators ({@code ETag}, {@code Last-Modified}) and the content type
+     * come from the {@link BeerFileMetadataCache}, according to the configured
+     * {@link BeerFileConfig.ETagPolicy},
+     * and conditional requests ({@code If-None-Match}, {@code If-Modified-Since})
+     * are answered with {@code 304 Not Modified} before the file is opened.
+     * <p>
+     * The content is sent through {@link BeerFileSender}, which honors
+     * single and multiple {@code Range} requests (subject to {@code If-Range}),
+     * transfers memory mapped file regions without heap copies and, when the
+     * request supports it, writes asynchronously without holding the request
+     * thread.
      *
+     * @param req the {@link HttpServletRequest}
      * @param res the {@link HttpServletResponse} to write to
      * @param file the file to stream
      * @param makeInlineFiles whether the file should be displayed inline
-     * @return {@code null} after streaming is complete
+     * @return {@code null} after streaming is complete or has been handed off
      * @throws IOException if file reading or response writing fails
      */
-	private static String downloadFile(HttpServletResponse res, File file, boolean makeInlineFiles) throws IOException {
-	    String contentType = Files.probeContentType(file.toPath());
-	    res.setContentType(contentType != null ? contentType : "application/octet-stream");
+	private static String downloadFile(HttpServletRequest req, HttpServletResponse res, File file, boolean makeInlineFiles) throws IOException {
+		var metadata = metadataCache.get(file.toPath());
+		var size = metadata.getSize();
+		// HTTP dates have a resolution of one second
+		var lastModified = metadata.getLastModified() / 1000 * 1000;
+		var etag = etag(metadata);
 
 	    if (fileConfig.getCacheEnabled()) {
-	    	res.setHeader("Cache-Control", "public, max-age=86400"); // cache for 1 day
+	    	res.setHeader("Cache-Control", fileConfig.getCacheControl());
+	    }
+	    if (etag != null) {
+	    	res.setHeader("ETag", etag);
+	    }
+	    if (fileConfig.getLastModifiedEnabled()) {
+	    	res.setDateHeader("Last-Modified", lastModified);
+	    }
+
+	    if (isNotModified(req, etag, lastModified)) {
+	    	res.setStatus(304);
+	    	return null;
 	    }
+
+	    var contentType = metadata.getContentType();
+	    res.setContentType(contentType);
 	    
 	    res.setHeader(
 	        "Content-Disposition",
@@ -195,13 +539,86 @@ public class BeerFileUtils {
 	        "; filename=\"" + file.getName() + "\""
 	    );
 
-	    try (var in = Files.newInputStream(file.toPath());
-	         var out = res.getOutputStream()) {
-	        in.transferTo(out);
-	        out.flush();
-	    }
+	    BeerFileSender.send(req, res, metadata.getPath(), size, contentType, ifRangeMatches(req, etag, lastModified));
         
         return null;
 	}
 
+	/**
+	 * Computes the entity tag of a file according to the configured policy.
+	 *
+	 * @param metadata the cached file metadata
+	 * @return the quoted entity tag, or {@code null} if tags are disabled
+	 * @throws IOException if the file cannot be read
+	 */
+	private static String etag(BeerFileMetadata metadata) throws IOException {
+		var policy = fileConfig.getEtagPolicy();
+		if (policy == null || policy == BeerFileConfig.ETagPolicy.NONE) {
+			return null;
+		}
+		return policy == BeerFileConfig.ETagPolicy.STRONG ? metadata.getStrongEtag() : metadata.getWeakEtag();
+	}
+
+	/**
+	 * Evaluates {@code If-None-Match} and, in its absence,
+	 * {@code If-Modified-Since} against the file validators.
+	 *
+	 * @return {@code true} if the client's copy is still valid
+	 */
+	private static boolean isNotModified(HttpServletRequest req, String etag, long lastModified) {
+		var ifNoneMatch = req.getHeader("If-None-Match");
+		if (ifNoneMatch != null) {
+			if (etag == null) {
+				return false;
+			}
+			for (var candidate : ifNoneMatch.split(",")) {
+				candidate = candidate.trim();
+				// If-None-Match uses the weak comparison function
+				if (candidate.equals("*") || opaqueTag(candidate).equals(opaqueTag(etag))) {
+					return true;
+				}
+			}
+			return false;
+		}
+
+		if (fileConfig.getLastModifiedEnabled()) {
+			var ifModifiedSince = dateHeader(req, "If-Modified-Since");
+			return ifModifiedSince >= 0 && lastModified <= ifModifiedSince;
+		}
+
+		return false;
+	}
+
+	/**
+	 * Evaluates {@code If-Range}: a {@code Range} request is honored only if
+	 * the client's representation is still current.
+	 *
+	 * @return {@code true} if ranges may be served
+	 */
+	private static boolean ifRangeMatches(HttpServletRequest req, String etag, long lastModified) {
+		var ifRange = req.getHeader("If-Range");
+		if (ifRange == null) {
+			return true;
+		}
+		ifRange = ifRange.trim();
+		if (ifRange.startsWith("\"") || ifRange.startsWith("W/")) {
+			// If-Range uses the strong comparison function, weak tags never match
+			return etag != null && !etag.startsWith("W/") && etag.equals(ifRange);
+		}
+		return fileConfig.getLastModifiedEnabled() && dateHeader(req, "If-Range") == lastModified;
+	}
+
+	private static String opaqueTag(String etag) {
+		return etag.startsWith("W/") ? etag.substring(2) : etag;
+	}
+
+	private static long dateHeader(HttpServletRequest req, String name) {
+		try {
+			return req.getDateHeader(name);
+		} catch (IllegalArgumentException e) {
+			// unparsable dates are ignored
+			return -1;
+		}
+	}
+
 }
@@ -0,0 +1,110 @@
+package gr.kgdev.beer.utils;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.util.function.Consumer;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonIOException;
+import com.google.gson.JsonParser;
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonWriter;
+
+import gr.kgdev.beer.model.RawJson;
+
+/**
+ * The default {@link BeerJsonCodec}, backed by Gson.
+ * <p>
+ * Plain classes and records are serialized with adapters compiled once per
+ * class to method handles instead of Gson's reflective adapter, producing
+ * the same JSON. {@link RawJson} values are written verbatim.
+ */
+public class BeerGsonCodec implements BeerJsonCodec {
+
+	private final Gson gson;
+
+	/**
+	 * Creates a codec with Gson's default settings.
+	 */
+	public BeerGsonCodec() {
+		this(builder -> {});
+	}
+
+	/**
+	 * Creates a codec with customized Gson settings, e.g. a field naming
+	 * policy or type adapters, which take precedence over the compiled ones.
+	 *
+	 * @param customizer configures the Gson builder
+	 */
+	public BeerGsonCodec(Consumer<GsonBuilder> customizer) {
+		var builder = new GsonBuilder()
+				.registerTypeAdapterFactory(new BeerCompiledTypeAdapterFactory())
+				.registerTypeAdapter(RawJson.class, new RawJsonAdapter());
+		customizer.accept(builder);
+		this.gson = builder.create();
+	}
+
+	/**
+	 * Returns the underlying Gson instance.
+	 *
+	 * @return the Gson instance
+	 */
+	public Gson getGson() {
+		return gson;
+	}
+
+	@Override
+	public String toJson(Object value) {
+		return gson.toJson(value);
+	}
+
+	@Override
+	public void toJson(Object value, Writer writer) throws IOException {
+		try {
+			gson.toJson(value, writer);
+		} catch (JsonIOException e) {
+			throw ioException(e);
+		}
+	}
+
+	@Override
+	public <T> T fromJson(String json, Class<T> type) {
+		return gson.fromJson(json, type);
+	}
+
+	@Override
+	public <T> T fromJson(Reader reader, Class<T> type) throws IOException {
+		try {
+			return gson.fromJson(reader, type);
+		} catch (JsonIOException e) {
+			throw ioException(e);
+		}
+	}
+
+	/**
+	 * Unwraps the I/O failure Gson wraps, e.g. a client that went away.
+	 */
+	private static IOException ioException(JsonIOException e) {
+		return e.getCause() instanceof IOException io ? io : new IOException(e.getMessage(), e);
+	}
+
+	private static final class RawJsonAdapter extends TypeAdapter<RawJson> {
+
+		@Override
+		public void write(JsonWriter out, RawJson value) throws IOException {
+			if (value == null) {
+				out.nullValue();
+			} else {
+				out.jsonValue(value.toString());
+			}
+		}
+
+		@Override
+		public RawJson read(JsonReader in) throws IOException {
+			return RawJson.of(JsonParser.parseReader(in).toString());
+		}
+	}
+}
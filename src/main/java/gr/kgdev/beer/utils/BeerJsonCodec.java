@@ -0,0 +1,108 @@
+package gr.kgdev.beer.utils;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * JSON encoding and decoding used throughout Beer.
+ * <p>
+ * Request bodies, query parameters, handler results, WebSocket messages and
+ * broadcasts all go through the codec set with
+ * {@link gr.kgdev.beer.core.BeerConfig#setJsonCodec(BeerJsonCodec)}, by
+ * default a {@link BeerGsonCodec}. Implementations must be thread safe and
+ * should write {@link gr.kgdev.beer.model.RawJson} values verbatim.
+ */
+public interface BeerJsonCodec {
+
+	/**
+	 * Serializes an object to a JSON string.
+	 *
+	 * @param value the object, may be {@code null}
+	 * @return the JSON text
+	 */
+	String toJson(Object value);
+
+	/**
+	 * Serializes an object as JSON into a writer.
+	 *
+	 * @param value the object, may be {@code null}
+	 * @param writer the target writer, not flushed or closed
+	 * @throws IOException if writing fails
+	 */
+	void toJson(Object value, Writer writer) throws IOException;
+
+	/**
+	 * Serializes an object as UTF-8 encoded JSON into a stream.
+	 *
+	 * @param value the object, may be {@code null}
+	 * @param out the target stream, flushed but not closed
+	 * @throws IOException if writing fails
+	 */
+	default void toJson(Object value, OutputStream out) throws IOException {
+		var writer = new OutputStreamWriter(out, StandardCharsets.UTF_8);
+		toJson(value, writer);
+		writer.flush();
+	}
+
+	/**
+	 * Serializes an object to UTF-8 encoded JSON.
+	 *
+	 * @param value the object, may be {@code null}
+	 * @return the encoded JSON
+	 */
+	default byte[] toJsonBytes(Object value) {
+		return toJson(value).getBytes(StandardCharsets.UTF_8);
+	}
+
+	/**
+	 * Deserializes a JSON string.
+	 *
+	 * @param <T> the target type
+	 * @param json the JSON text
+	 * @param type the target class
+	 * @return the decoded object
+	 */
+	<T> T fromJson(String json, Class<T> type);
+
+	/**
+	 * Deserializes JSON read from a reader.
+	 *
+	 * @param <T> the target type
+	 * @param reader the JSON source, not closed
+	 * @param type the target class
+	 * @return the decoded object
+	 * @throws IOException if reading fails
+	 */
+	<T> T fromJson(Reader reader, Class<T> type) throws IOException;
+
+	/**
+	 * Deserializes UTF-8 encoded JSON read from a stream.
+	 *
+	 * @param <T> the target type
+	 * @param in the JSON source, not closed
+	 * @param type the target class
+	 * @return the decoded object
+	 * @throws IOException if reading fails
+	 */
+	default <T> T fromJson(InputStream in, Class<T> type) throws IOException {
+		return fromJson(new InputStreamReader(in, StandardCharsets.UTF_8), type);
+	}
+
+	/**
+	 * Deserializes UTF-8 encoded JSON.
+	 *
+	 * @param <T> the target type
+	 * @param json the encoded JSON
+	 * @param type the target class
+	 * @return the decoded object
+	 */
+	default <T> T fromJson(byte[] json, Class<T> type) {
+		return fromJson(new String(json, StandardCharsets.UTF_8), type);
+	}
+}
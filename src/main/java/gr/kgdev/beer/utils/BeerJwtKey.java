@@ -0,0 +1,291 @@
+package gr.kgdev.beer.utils;
+
+import java.security.GeneralSecurityException;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.PublicKey;
+import java.security.interfaces.ECPrivateKey;
+import java.security.interfaces.ECPublicKey;
+import java.security.spec.ECGenParameterSpec;
+import java.time.Instant;
+
+import com.nimbusds.jose.JOSEException;
+import com.nimbusds.jose.JWSAlgorithm;
+import com.nimbusds.jose.JWSSigner;
+import com.nimbusds.jose.JWSVerifier;
+import com.nimbusds.jose.crypto.ECDSASigner;
+import com.nimbusds.jose.crypto.ECDSAVerifier;
+import com.nimbusds.jose.crypto.MACSigner;
+import com.nimbusds.jose.crypto.MACVerifier;
+import com.nimbusds.jose.jwk.Curve;
+
+/**
+ * A JWT signing key of a {@link BeerJwtKeyRing}, identified by the
+ * {@code kid} header of the tokens it signs.
+ * <p>
+ * HS256 keys share one secret for signing and verifying. ES256 and EdDSA
+ * (Ed25519) keys sign with a private key and verify with the public one, so
+ * nodes that only verify tokens can be given the public key alone, see
+ * {@link #es256(String, ECPublicKey)} and {@link #ed25519(String, PublicKey)}.
+ *
+ * <p>
+ * A key signs new tokens from its {@code activeFrom} time, and its tokens
+ * are accepted until its {@code validUntil} time. Rotation adds the next key
+ * ahead of time with a later {@code activeFrom}, so every node verifies it
+ * before any token is signed with it, and retires the previous key with a
+ * {@code validUntil} past the lifetime of the last tokens it signed.
+ */
+public class BeerJwtKey {
+
+	private final String kid;
+	private final JWSAlgorithm algorithm;
+	private final JWSSigner signer;
+	private final JWSVerifier verifier;
+	private final PublicKey publicKey;
+	private volatile Instant activeFrom = Instant.EPOCH;
+	private volatile Instant validUntil;
+
+	private BeerJwtKey(String kid, JWSAlgorithm algorithm, JWSSigner signer, JWSVerifier verifier, PublicKey publicKey) {
+		this.kid = kid;
+		this.algorithm = algorithm;
+		this.signer = signer;
+		this.verifier = verifier;
+		this.publicKey = publicKey;
+	}
+
+	/**
+	 * Creates an HS256 key.
+	 *
+	 * @param kid the key id, {@code null} for tokens without a {@code kid} header
+	 * @param secretKey the HMAC secret, at least 256 bits
+	 * @return the key
+	 * @throws IllegalArgumentException if the secret is too short
+	 */
+	public static BeerJwtKey hmac(String kid, String secretKey) {
+		try {
+			return new BeerJwtKey(kid, JWSAlgorithm.HS256, new MACSigner(secretKey), new MACVerifier(secretKey), null);
+		} catch (JOSEException e) {
+			throw new IllegalArgumentException("Invalid JWT secret key: " + e.getMessage(), e);
+		}
+	}
+
+	/**
+	 * Creates an ES256 key that signs and verifies.
+	 *
+	 * @param kid the key id
+	 * @param keyPair a P-256 key pair
+	 * @return the key
+	 * @throws IllegalArgumentException if the key pair is not a P-256 one
+	 */
+	public static BeerJwtKey es256(String kid, KeyPair keyPair) {
+		if (!(keyPair.getPrivate() instanceof ECPrivateKey privateKey) || !(keyPair.getPublic() instanceof ECPublicKey publicKey)) {
+			throw new IllegalArgumentException("Not an EC key pair: " + keyPair.getPublic().getAlgorithm());
+		}
+		checkP256(publicKey);
+		try {
+			return new BeerJwtKey(kid, JWSAlgorithm.ES256, new ECDSASigner(privateKey), new ECDSAVerifier(publicKey), publicKey);
+		} catch (JOSEException e) {
+			throw new IllegalArgumentException("Invalid ES256 key: " + e.getMessage(), e);
+		}
+	}
+
+	/**
+	 * Creates an ES256 key that only verifies.
+	 *
+	 * @param kid the key id
+	 * @param publicKey a P-256 public key
+	 * @return the key
+	 * @throws IllegalArgumentException if the key is not a P-256 one
+	 */
+	public static BeerJwtKey es256(String kid, ECPublicKey publicKey) {
+		checkP256(publicKey);
+		try {
+			return new BeerJwtKey(kid, JWSAlgorithm.ES256, null, new ECDSAVerifier(publicKey), publicKey);
+		} catch (JOSEException e) {
+			throw new IllegalArgumentException("Invalid ES256 key: " + e.getMessage(), e);
+		}
+	}
+
+	/**
+	 * Creates an EdDSA key over Ed25519 that signs and verifies.
+	 *
+	 * @param kid the key id
+	 * @param keyPair an Ed25519 key pair
+	 * @return the key
+	 * @throws IllegalArgumentException if the key pair is not an Ed25519 one
+	 */
+	public static BeerJwtKey ed25519(String kid, KeyPair keyPair) {
+		return new BeerJwtKey(kid, JWSAlgorithm.EdDSA, new BeerEd25519.Signer(keyPair.getPrivate()),
+				new BeerEd25519.Verifier(keyPair.getPublic()), keyPair.getPublic());
+	}
+
+	/**
+	 * Creates an EdDSA key over Ed25519 that only verifies.
+	 *
+	 * @param kid the key id
+	 * @param publicKey an Ed25519 public key
+	 * @return the key
+	 * @throws IllegalArgumentException if the key is not an Ed25519 one
+	 */
+	public static BeerJwtKey ed25519(String kid, PublicKey publicKey) {
+		return new BeerJwtKey(kid, JWSAlgorithm.EdDSA, null, new BeerEd25519.Verifier(publicKey), publicKey);
+	}
+
+	/**
+	 * Generates a new ES256 key.
+	 *
+	 * @param kid the key id
+	 * @return the key
+	 */
+	public static BeerJwtKey generateEs256(String kid) {
+		try {
+			var generator = KeyPairGenerator.getInstance("EC");
+			generator.initialize(new ECGenParameterSpec("secp256r1"));
+			return es256(kid, generator.generateKeyPair());
+		} catch (GeneralSecurityException e) {
+			// every JDK provides P-256
+			throw new IllegalStateException(e);
+		}
+	}
+
+	/**
+	 * Generates a new EdDSA key over Ed25519.
+	 *
+	 * @param kid the key id
+	 * @return the key
+	 */
+	public static BeerJwtKey generateEd25519(String kid) {
+		try {
+			return ed25519(kid, KeyPairGenerator.getInstance("Ed25519").generateKeyPair());
+		} catch (GeneralSecurityException e) {
+			// every JDK since 15 provides Ed25519
+			throw new IllegalStateException(e);
+		}
+	}
+
+	private static void checkP256(ECPublicKey publicKey) {
+		if (!Curve.P_256.equals(Curve.forECParameterSpec(publicKey.getParams()))) {
+			throw new IllegalArgumentException("ES256 requires a P-256 key");
+		}
+	}
+
+	/**
+	 * Returns the key id.
+	 *
+	 * @return the {@code kid} header value, or {@code null} for tokens without one
+	 */
+	public String getKid() {
+		return kid;
+	}
+
+	/**
+	 * Returns the signing algorithm.
+	 *
+	 * @return the JWS algorithm
+	 */
+	public JWSAlgorithm getAlgorithm() {
+		return algorithm;
+	}
+
+	/**
+	 * Returns the public key, to hand to nodes that only verify.
+	 *
+	 * @return the public key, or {@code null} for an HMAC key
+	 */
+	public PublicKey getPublicKey() {
+		return publicKey;
+	}
+
+	/**
+	 * Returns whether the key holds the private part or secret it signs with.
+	 *
+	 * @return {@code true} if the key can sign
+	 */
+	public boolean canSign() {
+		return signer != null;
+	}
+
+	/**
+	 * Returns the time from which the key signs new tokens.
+	 *
+	 * @return the activation time
+	 */
+	public Instant getActiveFrom() {
+		return activeFrom;
+	}
+
+	/**
+	 * Sets the time from which the key signs new tokens. Among the keys
+	 * active at a time, the one activated last signs.
+	 *
+	 * @param activeFrom the activation time, by default the epoch
+	 * @return this key
+	 */
+	public BeerJwtKey setActiveFrom(Instant activeFrom) {
+		this.activeFrom = activeFrom != null ? activeFrom : Instant.EPOCH;
+		return this;
+	}
+
+	/**
+	 * Returns the time until which tokens of the key are accepted.
+	 *
+	 * @return the expiry, or {@code null} if the key does not expire
+	 */
+	public Instant getValidUntil() {
+		return validUntil;
+	}
+
+	/**
+	 * Sets the time until which tokens of the key are accepted. The key stops
+	 * signing at that time as well.
+	 *
+	 * @param validUntil the expiry, {@code null} for none
+	 * @return this key
+	 */
+	public BeerJwtKey setValidUntil(Instant validUntil) {
+		this.validUntil = validUntil;
+		return this;
+	}
+
+	/**
+	 * Returns whether the key accepts tokens at a time.
+	 *
+	 * @param now the time
+	 * @return {@code true} if not expired
+	 */
+	public boolean isValidAt(Instant now) {
+		var until = validUntil;
+		return until == null || !now.isAfter(until);
+	}
+
+	/**
+	 * Returns whether the key signs new tokens at a time.
+	 *
+	 * @param now the time
+	 * @return {@code true} if the key can sign, is activated and not expired
+	 */
+	public boolean isActiveAt(Instant now) {
+		return signer != null && !now.isBefore(activeFrom) && isValidAt(now);
+	}
+
+	/**
+	 * Returns whether a token header names the algorithm of the key. EdDSA
+	 * keys accept {@code Ed25519}, the fully specified name of the same
+	 * algorithm.
+	 *
+	 * @param headerAlgorithm the {@code alg} of the token
+	 * @return {@code true} if it is the algorithm of the key
+	 */
+	boolean accepts(JWSAlgorithm headerAlgorithm) {
+		return algorithm.equals(headerAlgorithm)
+				|| (JWSAlgorithm.EdDSA.equals(algorithm) && JWSAlgorithm.Ed25519.equals(headerAlgorithm));
+	}
+
+	JWSSigner getSigner() {
+		return signer;
+	}
+
+	JWSVerifier getVerifier() {
+		return verifier;
+	}
+}
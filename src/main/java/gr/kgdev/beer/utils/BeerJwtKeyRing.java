@@ -0,0 +1,113 @@
+package gr.kgdev.beer.utils;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The set of {@link BeerJwtKey}s a {@link BeerJwtService} signs and verifies
+ * tokens with.
+ * <p>
+ * Tokens are verified with the key named by their {@code kid} header, found
+ * in a hash map, so the number of keys in rotation does not affect the cost
+ * of a verification. Tokens without a {@code kid} are verified with the key
+ * that has none, if any, e.g. the secret tokens were signed with before keys
+ * had ids. New tokens are signed with the active key activated last.
+ *
+ * <p>
+ * Keys can be added and removed at any time, e.g. by a scheduled rotation,
+ * while tokens are being signed and verified.
+ */
+public class BeerJwtKeyRing {
+
+	private final Map<String, BeerJwtKey> keys = new ConcurrentHashMap<>();
+	private volatile BeerJwtKey unnamedKey;
+
+	/**
+	 * Adds a key, replacing one with the same id.
+	 *
+	 * @param key the key
+	 * @return this key ring
+	 */
+	public BeerJwtKeyRing add(BeerJwtKey key) {
+		if (key.getKid() == null) {
+			unnamedKey = key;
+		} else {
+			keys.put(key.getKid(), key);
+		}
+		return this;
+	}
+
+	/**
+	 * Removes a key, its tokens are rejected from then on.
+	 *
+	 * @param kid the key id, {@code null} for the key without one
+	 * @return this key ring
+	 */
+	public BeerJwtKeyRing remove(String kid) {
+		if (kid == null) {
+			unnamedKey = null;
+		} else {
+			keys.remove(kid);
+		}
+		return this;
+	}
+
+	/**
+	 * Returns a key by id.
+	 *
+	 * @param kid the key id, {@code null} for the key without one
+	 * @return the key, or {@code null} if there is none
+	 */
+	public BeerJwtKey get(String kid) {
+		return kid == null ? unnamedKey : keys.get(kid);
+	}
+
+	/**
+	 * Returns the key that signs new tokens at a time: of the keys that can
+	 * sign, are activated and not expired, the one activated last.
+	 *
+	 * @param now the time
+	 * @return the signing key, or {@code null} if no key is active
+	 */
+	public BeerJwtKey getSigningKey(Instant now) {
+		BeerJwtKey signing = null;
+		for (var key : getKeys()) {
+			if (key.isActiveAt(now) && (signing == null || key.getActiveFrom().isAfter(signing.getActiveFrom()))) {
+				signing = key;
+			}
+		}
+		return signing;
+	}
+
+	/**
+	 * Removes every key expired at a time.
+	 *
+	 * @param now the time
+	 * @return this key ring
+	 */
+	public BeerJwtKeyRing removeExpired(Instant now) {
+		keys.values().removeIf(key -> !key.isValidAt(now));
+		var unnamed = unnamedKey;
+		if (unnamed != null && !unnamed.isValidAt(now)) {
+			unnamedKey = null;
+		}
+		return this;
+	}
+
+	/**
+	 * Returns the keys of the ring.
+	 *
+	 * @return a snapshot of the keys
+	 */
+	public List<BeerJwtKey> getKeys() {
+		var all = new ArrayList<BeerJwtKey>(keys.values());
+		var unnamed = unnamedKey;
+		if (unnamed != null) {
+			all.add(unnamed);
+		}
+		return all;
+	}
+}
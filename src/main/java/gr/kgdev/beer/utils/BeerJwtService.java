@@ -0,0 +1,334 @@
+package gr.kgdev.beer.utils;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.text.ParseException;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.Collections;
+import java.util.Date;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+import com.nimbusds.jose.JOSEException;
+import com.nimbusds.jose.JOSEObjectType;
+import com.nimbusds.jose.JWSHeader;
+import com.nimbusds.jwt.JWTClaimsSet;
+import com.nimbusds.jwt.SignedJWT;
+
+import gr.kgdev.beer.model.exceptions.UnauthorizedException;
+
+/**
+ * Issues and verifies JWT tokens with the keys of a {@link BeerJwtKeyRing},
+ * or with a single HS256 secret key.
+ * <p>
+ * Tokens are signed with the signing key of the ring and carry its id in
+ * their {@code kid} header. A token is verified with the key its
+ * {@code kid} names, and rejected if the ring has no such key, if the key
+ * has expired or if its algorithm is not the one of the key, so a token can
+ * not pick a weaker algorithm or another key than the one it claims.
+ *
+ * <p>
+ * Signers and verifiers are built once with their keys, and verified tokens are cached
+ * until they expire, keyed by their SHA-256 hash, so a client presenting the
+ * same token on every request is verified once: later requests cost a hash
+ * and a lookup instead of parsing the token and checking its signature. The
+ * cache holds at most {@code maxCacheSize} tokens and always admits new
+ * ones: expired tokens are evicted when looked up, and a full cache sheds a
+ * tenth of its entries at once, expired ones first and then, with a clock
+ * hand sweeping the cache, ones not hit since the hand last passed them, so
+ * the cost of eviction is amortized over the insertions it makes room for
+ * and tokens in use stay cached.
+ *
+ * <p>
+ * Instances are thread-safe and meant to be shared, e.g. one per secret.
+ */
+public class BeerJwtService {
+
+	private static final int DEFAULT_MAX_CACHE_SIZE = 10000;
+
+	private final BeerJwtKeyRing keyRing;
+	private final int maxCacheSize;
+	private final Map<TokenHash, Verified> cache = new ConcurrentHashMap<>();
+	private final Object evictionLock = new Object();
+	private Iterator<Verified> hand = Collections.emptyIterator();
+
+	private final LongAdder hits = new LongAdder();
+	private final LongAdder misses = new LongAdder();
+
+	/**
+	 * Creates a service with a single HS256 key, caching up to 10000 verified
+	 * tokens. Its tokens have no {@code kid} header.
+	 *
+	 * @param secretKey the HMAC secret, at least 256 bits
+	 * @throws IllegalArgumentException if the secret is too short
+	 */
+	public BeerJwtService(String secretKey) {
+		this(secretKey, DEFAULT_MAX_CACHE_SIZE);
+	}
+
+	/**
+	 * Creates a service with a single HS256 key. Its tokens have no
+	 * {@code kid} header.
+	 *
+	 * @param secretKey the HMAC secret, at least 256 bits
+	 * @param maxCacheSize the maximum number of verified tokens cached, 0 disables the cache
+	 * @throws IllegalArgumentException if the secret is too short
+	 */
+	public BeerJwtService(String secretKey, int maxCacheSize) {
+		this(new BeerJwtKeyRing().add(BeerJwtKey.hmac(null, secretKey)), maxCacheSize);
+	}
+
+	/**
+	 * Creates a service with a key ring, caching up to 10000 verified tokens.
+	 *
+	 * @param keyRing the keys to sign and verify with
+	 */
+	public BeerJwtService(BeerJwtKeyRing keyRing) {
+		this(keyRing, DEFAULT_MAX_CACHE_SIZE);
+	}
+
+	/**
+	 * Creates a service with a key ring.
+	 *
+	 * @param keyRing the keys to sign and verify with
+	 * @param maxCacheSize the maximum number of verified tokens cached, 0 disables the cache
+	 */
+	public BeerJwtService(BeerJwtKeyRing keyRing, int maxCacheSize) {
+		this.keyRing = keyRing;
+		this.maxCacheSize = Math.max(0, maxCacheSize);
+	}
+
+	/**
+	 * Returns the key ring, to add and retire keys.
+	 *
+	 * @return the key ring
+	 */
+	public BeerJwtKeyRing getKeyRing() {
+		return keyRing;
+	}
+
+	/**
+	 * Generates a signed token whose subject is the given user.
+	 *
+	 * @param expirationMinutes the token expiration time in minutes from now
+	 * @param userId the user identifier to set as the subject
+	 * @return the serialized token
+	 */
+	public String generate(Integer expirationMinutes, String userId) {
+		return generate(expirationMinutes, userId, Map.of());
+	}
+
+	/**
+	 * Generates a signed token whose subject is the given user, with
+	 * additional claims.
+	 *
+	 * @param expirationMinutes the token expiration time in minutes from now
+	 * @param userId the user identifier to set as the subject
+	 * @param claims additional claims
+	 * @return the serialized token
+	 * @throws IllegalStateException if no key of the ring is active
+	 */
+	public String generate(Integer expirationMinutes, String userId, Map<String, Object> claims) {
+		var now = Instant.now();
+		var key = keyRing.getSigningKey(now);
+		if (key == null) {
+			throw new IllegalStateException("No active JWT signing key");
+		}
+
+		var jwtBuilder = new JWTClaimsSet.Builder()
+				.subject(userId)
+				.expirationTime(Date.from(now.plus(expirationMinutes, ChronoUnit.MINUTES)));
+		claims.entrySet().forEach(entry -> jwtBuilder.claim(entry.getKey(), entry.getValue()));
+
+		var header = new JWSHeader.Builder(key.getAlgorithm())
+				.type(JOSEObjectType.JWT)
+				.keyID(key.getKid())
+				.build();
+
+		var signedJWT = new SignedJWT(header, jwtBuilder.build());
+		try {
+			signedJWT.sign(key.getSigner());
+			return signedJWT.serialize();
+		} catch (JOSEException e) {
+			// this should never happen
+			throw new RuntimeException("Could not generate jwt token", e);
+		}
+	}
+
+	/**
+	 * Verifies a token and returns its claims if valid, as
+	 * {@link BeerAuthUtils#verifyJwt(String, String)}.
+	 *
+	 * @param jwtToken the serialized token
+	 * @return the claims of the token
+	 * @throws UnauthorizedException if the key is unknown or expired, the signature is invalid or the token is expired
+	 * @throws ParseException if the token can not be parsed
+	 * @throws JOSEException if a cryptographic verification error occurs
+	 */
+	public JWTClaimsSet verify(String jwtToken) throws UnauthorizedException, ParseException, JOSEException {
+		var now = System.currentTimeMillis();
+		var hash = maxCacheSize > 0 ? TokenHash.of(jwtToken) : null;
+
+		if (hash != null) {
+			var verified = cache.get(hash);
+			if (verified != null) {
+				// the key may have been removed or retired since
+				if (verified.expiresAt >= now && keyRing.get(verified.key.getKid()) == verified.key
+						&& verified.key.isValidAt(Instant.ofEpochMilli(now))) {
+					hits.increment();
+					if (!verified.referenced) {
+						verified.referenced = true;
+					}
+					return verified.claims;
+				}
+				cache.remove(hash, verified);
+			}
+			misses.increment();
+		}
+
+		var signedJWT = SignedJWT.parse(jwtToken);
+		var header = signedJWT.getHeader();
+		var key = keyRing.get(header.getKeyID());
+		if (key == null) {
+			throw new UnauthorizedException("Error verifying JWT token: Unknown key");
+		}
+		if (!key.accepts(header.getAlgorithm())) {
+			throw new UnauthorizedException("Error verifying JWT token: Unexpected algorithm");
+		}
+		var validUntil = key.getValidUntil();
+		if (!key.isValidAt(Instant.ofEpochMilli(now))) {
+			throw new UnauthorizedException("Error verifying JWT token: Key expired");
+		}
+		if (!signedJWT.verify(key.getVerifier())) {
+			throw new UnauthorizedException("Error verifying JWT token: Invalid signatue");
+		}
+
+		var claims = signedJWT.getJWTClaimsSet();
+		var expiration = claims.getExpirationTime();
+		if (expiration != null && expiration.getTime() < now) {
+			throw new UnauthorizedException("Error verifying JWT token: Expired");
+		}
+
+		if (hash != null) {
+			var expiresAt = expiration != null ? expiration.getTime() : Long.MAX_VALUE;
+			if (validUntil != null) {
+				expiresAt = Math.min(expiresAt, validUntil.toEpochMilli());
+			}
+			cache(hash, new Verified(claims, expiresAt, key), now);
+		}
+		return claims;
+	}
+
+	private void cache(TokenHash hash, Verified verified, long now) {
+		if (cache.size() >= maxCacheSize) {
+			evict(now);
+		}
+		cache.put(hash, verified);
+	}
+
+	private void evict(long now) {
+		synchronized (evictionLock) {
+			// another thread may have made room meanwhile
+			if (cache.size() < maxCacheSize) {
+				return;
+			}
+			var target = maxCacheSize - Math.max(1, maxCacheSize / 10);
+			cache.values().removeIf(entry -> entry.expiresAt < now);
+			// second chance: a token hit since the hand last passed it survives, two turns clear every flag
+			for (var steps = 2L * cache.size(); cache.size() > target && steps > 0; steps--) {
+				if (!hand.hasNext()) {
+					hand = cache.values().iterator();
+					if (!hand.hasNext()) {
+						break;
+					}
+				}
+				var entry = hand.next();
+				if (entry.referenced) {
+					entry.referenced = false;
+				} else {
+					hand.remove();
+				}
+			}
+		}
+	}
+
+	/**
+	 * Empties the verified token cache, e.g. after revoking tokens.
+	 */
+	public void clearCache() {
+		cache.clear();
+	}
+
+	/**
+	 * Returns the number of verified tokens cached.
+	 *
+	 * @return the cache size
+	 */
+	public int getCacheSize() {
+		return cache.size();
+	}
+
+	/**
+	 * Returns the number of verifications answered from the cache.
+	 *
+	 * @return the hit count
+	 */
+	public long getCacheHitCount() {
+		return hits.sum();
+	}
+
+	/**
+	 * Returns the number of verifications that checked the signature.
+	 *
+	 * @return the miss count
+	 */
+	public long getCacheMissCount() {
+		return misses.sum();
+	}
+
+	/**
+	 * Returns the share of verifications answered from the cache.
+	 *
+	 * @return the hit ratio between 0 and 1, 0 before any verification
+	 */
+	public double getCacheHitRatio() {
+		var h = hits.sum();
+		var total = h + misses.sum();
+		return total == 0 ? 0 : (double) h / total;
+	}
+
+	/**
+	 * SHA-256 of a token, so the cache does not keep tokens themselves.
+	 */
+	private record TokenHash(long a, long b, long c, long d) {
+
+		private static TokenHash of(String token) {
+			try {
+				var digest = ByteBuffer.wrap(MessageDigest.getInstance("SHA-256").digest(token.getBytes(StandardCharsets.UTF_8)));
+				return new TokenHash(digest.getLong(), digest.getLong(), digest.getLong(), digest.getLong());
+			} catch (NoSuchAlgorithmException e) {
+				// every JDK provides SHA-256
+				throw new IllegalStateException(e);
+			}
+		}
+	}
+
+	private static final class Verified {
+
+		private final JWTClaimsSet claims;
+		private final long expiresAt;
+		private final BeerJwtKey key;
+		private volatile boolean referenced;
+
+		private Verified(JWTClaimsSet claims, long expiresAt, BeerJwtKey key) {
+			this.claims = claims;
+			this.expiresAt = expiresAt;
+			this.key = key;
+		}
+	}
+}
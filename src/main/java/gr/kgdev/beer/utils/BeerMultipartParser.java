@@ -0,0 +1,273 @@
+package gr.kgdev.beer.utils;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+
+import gr.kgdev.beer.model.exceptions.BadRequestException;
+
+/**
+ * Incremental {@code multipart/form-data} parser.
+ * <p>
+ * The body is fed in chunks of any size, as they are read from the request,
+ * and part content is handed to a {@link Handler} as slices of those chunks,
+ * without buffering whole parts. Only the part headers and at most a
+ * delimiter's length of content are held between chunks.
+ *
+ * <p>
+ * Delimiters are found with a single pass over the content: a delimiter
+ * ({@code CRLF--boundary}) starts with the only {@code CR} it contains, so a
+ * failed partial match never has to backtrack further than the current byte.
+ */
+final class BeerMultipartParser {
+
+	/** Maximum size of the headers of a single part. */
+	private static final int MAX_HEADERS_SIZE = 8 * 1024;
+
+	/**
+	 * Receives the parts of a multipart body.
+	 */
+	interface Handler {
+		void partStart(Map<String, String> headers) throws IOException;
+
+		void partData(ByteBuffer data) throws IOException;
+
+		void partEnd() throws IOException;
+	}
+
+	private enum State {
+		PREAMBLE, DELIMITER_SUFFIX, HEADERS, BODY, EPILOGUE
+	}
+
+	private final byte[] delimiter;
+	private final Handler handler;
+
+	private State state = State.PREAMBLE;
+	/** Number of delimiter bytes matched so far. */
+	private int matched;
+	/** Number of matched delimiter bytes that belong to previous chunks. */
+	private int carried;
+	/** The first byte of a delimiter suffix, {@code --} or {@code CRLF}. */
+	private byte suffix;
+	private final byte[] headers = new byte[MAX_HEADERS_SIZE];
+	private int headersLength;
+
+	/**
+	 * Creates a parser.
+	 *
+	 * @param boundary the boundary of the body
+	 * @param handler the handler receiving the parts
+	 */
+	BeerMultipartParser(String boundary, Handler handler) {
+		this.delimiter = ("\r\n--" + boundary).getBytes(StandardCharsets.US_ASCII);
+		this.handler = handler;
+		// the first delimiter is not preceded by CRLF, pretend it was
+		this.matched = 2;
+		this.carried = 2;
+	}
+
+	/**
+	 * Extracts the boundary from a {@code multipart/form-data} content type.
+	 *
+	 * @param contentType the request content type
+	 * @return the boundary
+	 * @throws BadRequestException if the content type is not multipart or has no boundary
+	 */
+	static String boundary(String contentType) {
+		if (contentType == null || !contentType.toLowerCase().startsWith("multipart/")) {
+			throw new BadRequestException("Expected a multipart request");
+		}
+		var boundary = parameters(contentType).get("boundary");
+		if (boundary == null || boundary.isEmpty() || boundary.length() > 70) {
+			throw new BadRequestException("Invalid multipart boundary");
+		}
+		return boundary;
+	}
+
+	/**
+	 * Parses the parameters of a header value such as
+	 * {@code form-data; name="file"; filename="a.txt"}.
+	 *
+	 * @param value the header value
+	 * @return the parameters by lower case name, quotes removed
+	 */
+	static Map<String, String> parameters(String value) {
+		var parameters = new HashMap<String, String>();
+		var i = value.indexOf(';');
+		while (i >= 0 && i < value.length()) {
+			var equals = value.indexOf('=', i);
+			if (equals < 0) {
+				break;
+			}
+			var name = value.substring(i + 1, equals).trim().toLowerCase();
+			var start = equals + 1;
+			while (start < value.length() && value.charAt(start) == ' ') {
+				start++;
+			}
+
+			String parameter;
+			if (start < value.length() && value.charAt(start) == '"') {
+				var sb = new StringBuilder();
+				var j = start + 1;
+				for (; j < value.length() && value.charAt(j) != '"'; j++) {
+					var c = value.charAt(j);
+					if (c == '\\' && j + 1 < value.length()) {
+						c = value.charAt(++j);
+					}
+					sb.append(c);
+				}
+				parameter = sb.toString();
+				i = value.indexOf(';', j);
+			} else {
+				i = value.indexOf(';', start);
+				parameter = value.substring(start, i < 0 ? value.length() : i).trim();
+			}
+			parameters.put(name, parameter);
+		}
+		return parameters;
+	}
+
+	/**
+	 * Returns whether the closing delimiter has been parsed.
+	 *
+	 * @return {@code true} if the body is complete
+	 */
+	boolean isComplete() {
+		return state == State.EPILOGUE;
+	}
+
+	/**
+	 * Parses the next chunk of the body.
+	 *
+	 * @param chunk the buffer holding the chunk, not retained after the call
+	 * @param offset the chunk offset
+	 * @param length the chunk length
+	 * @throws IOException if the handler fails
+	 * @throws BadRequestException if the body is malformed
+	 */
+	void feed(byte[] chunk, int offset, int length) throws IOException {
+		var i = offset;
+		var end = offset + length;
+		while (i < end) {
+			switch (state) {
+				case PREAMBLE, BODY -> i = content(chunk, i, end);
+				case DELIMITER_SUFFIX -> i = delimiterSuffix(chunk, i, end);
+				case HEADERS -> i = headers(chunk, i, end);
+				case EPILOGUE -> i = end;
+			}
+		}
+	}
+
+	private int content(byte[] chunk, int i, int end) throws IOException {
+		var dataStart = i;
+		while (i < end) {
+			if (matched == 0) {
+				while (i < end && chunk[i] != '\r') {
+					i++;
+				}
+				if (i == end) {
+					break;
+				}
+			}
+
+			if (chunk[i] == delimiter[matched]) {
+				matched++;
+				i++;
+				if (matched == delimiter.length) {
+					// when bytes were carried the match spans the chunk start, so there is no data before it
+					data(chunk, dataStart, i - (matched - carried) - dataStart);
+					matched = 0;
+					carried = 0;
+					if (state == State.BODY) {
+						handler.partEnd();
+					}
+					state = State.DELIMITER_SUFFIX;
+					suffix = 0;
+					return i;
+				}
+			} else if (matched > 0) {
+				// the matched bytes were content after all, the current byte may start a new match
+				if (carried > 0) {
+					data(delimiter, 0, carried);
+					carried = 0;
+				}
+				matched = 0;
+			} else {
+				i++;
+			}
+		}
+
+		// a partial match at the chunk end is held back until the next chunk decides it
+		data(chunk, dataStart, end - (matched - carried) - dataStart);
+		carried = matched;
+		return end;
+	}
+
+	private void data(byte[] bytes, int offset, int length) throws IOException {
+		if (length > 0 && state == State.BODY) {
+			handler.partData(ByteBuffer.wrap(bytes, offset, length));
+		}
+	}
+
+	private int delimiterSuffix(byte[] chunk, int i, int end) throws IOException {
+		for (; i < end; i++) {
+			var c = chunk[i];
+			if (suffix == 0) {
+				if (c == ' ' || c == '\t') {
+					// transport padding
+					continue;
+				}
+				if (c != '-' && c != '\r') {
+					throw new BadRequestException("Malformed multipart body");
+				}
+				suffix = c;
+			} else if (suffix == '-' && c == '-') {
+				state = State.EPILOGUE;
+				return end;
+			} else if (suffix == '\r' && c == '\n') {
+				state = State.HEADERS;
+				headersLength = 0;
+				return i + 1;
+			} else {
+				throw new BadRequestException("Malformed multipart body");
+			}
+		}
+		return end;
+	}
+
+	private int headers(byte[] chunk, int i, int end) throws IOException {
+		for (; i < end; i++) {
+			if (headersLength == MAX_HEADERS_SIZE) {
+				throw new BadRequestException("Multipart headers too large");
+			}
+			headers[headersLength++] = chunk[i];
+
+			if (chunk[i] == '\n' && endOfHeaders()) {
+				handler.partStart(parseHeaders());
+				state = State.BODY;
+				return i + 1;
+			}
+		}
+		return end;
+	}
+
+	private boolean endOfHeaders() {
+		var n = headersLength;
+		return n == 2 && headers[0] == '\r'
+				|| n >= 4 && headers[n - 4] == '\r' && headers[n - 3] == '\n' && headers[n - 2] == '\r';
+	}
+
+	private Map<String, String> parseHeaders() {
+		var parsed = new HashMap<String, String>();
+		var text = new String(headers, 0, headersLength, StandardCharsets.UTF_8);
+		for (var line : text.split("\r\n")) {
+			var colon = line.indexOf(':');
+			if (colon > 0) {
+				parsed.put(line.substring(0, colon).trim().toLowerCase(), line.substring(colon + 1).trim());
+			}
+		}
+		return parsed;
+	}
+}
@@ -0,0 +1,273 @@
+package gr.kgdev.beer.utils;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+import org.apache.commons.codec.binary.Hex;
+import org.slf4j.LoggerFactory;
+
+import gr.kgdev.beer.model.UploadResult;
+import gr.kgdev.beer.model.UploadedFile;
+import gr.kgdev.beer.model.exceptions.BadRequestException;
+import gr.kgdev.beer.model.exceptions.PayloadTooLargeException;
+import jakarta.servlet.ReadListener;
+import jakarta.servlet.ServletInputStream;
+import jakarta.servlet.http.HttpServletRequest;
+
+/**
+ * A single streaming multipart upload.
+ * <p>
+ * The request body is parsed by a {@link BeerMultipartParser} while it is
+ * read, file parts are written straight to the channels opened by a
+ * {@link BeerUploadSink} and their SHA-256 checksum is computed on the fly.
+ * Other parts are collected as form fields, and file parts without a file
+ * name, sent by browsers for an empty file input, are skipped.
+ *
+ * <p>
+ * The body is read either blocking, or from a {@link ReadListener} so that
+ * no request thread waits for a slow client. In both cases no more is read
+ * than has been written to the sink, so a slow disk throttles the client
+ * through TCP flow control instead of buffering in memory.
+ */
+final class BeerMultipartUpload implements BeerMultipartParser.Handler {
+
+	/** Maximum size of a single form field. */
+	private static final int MAX_FIELD_SIZE = 64 * 1024;
+
+	private static final int BUFFER_SIZE = 64 * 1024;
+
+	private final BeerUploadSink sink;
+	private final long maxFileSize;
+	private final long maxRequestSize;
+	private final BeerMultipartParser parser;
+
+	private final List<UploadedFile> files = new ArrayList<>();
+	private final Map<String, String> fields = new HashMap<>();
+	private final byte[] buffer = new byte[BUFFER_SIZE];
+	private long requestSize;
+	/** Number of files handed to {@link BeerUploadSink#complete(UploadedFile)}, never aborted. */
+	private int completed;
+
+	private UploadedFile file;
+	private WritableByteChannel channel;
+	private MessageDigest digest;
+	private String fieldName;
+	private ByteArrayOutputStream field;
+	private boolean skipping;
+
+	/**
+	 * Creates an upload for the given request.
+	 *
+	 * @param req the multipart request
+	 * @param sink the destination of file parts
+	 * @param config the size limits to enforce
+	 * @throws BadRequestException if the request is not multipart
+	 * @throws PayloadTooLargeException if the declared length exceeds the request limit
+	 */
+	BeerMultipartUpload(HttpServletRequest req, BeerUploadSink sink, BeerFileConfig config) {
+		this.sink = sink;
+		this.maxFileSize = limit(config.getMaxFileSize());
+		this.maxRequestSize = limit(config.getMaxReqSize());
+		this.parser = new BeerMultipartParser(BeerMultipartParser.boundary(req.getContentType()), this);
+
+		if (req.getContentLengthLong() > maxRequestSize) {
+			throw new PayloadTooLargeException("Request exceeds the maximum size of " + maxRequestSize + " bytes");
+		}
+	}
+
+	private static long limit(Integer limit) {
+		return limit != null && limit > 0 ? limit : Long.MAX_VALUE;
+	}
+
+	/**
+	 * Reads and stores the whole body, blocking.
+	 *
+	 * @param in the request input stream
+	 * @return the uploaded files and form fields
+	 * @throws IOException if reading or storing fails
+	 */
+	UploadResult read(ServletInputStream in) throws IOException {
+		try {
+			int n;
+			while ((n = in.read(buffer)) >= 0) {
+				feed(n);
+			}
+			return finish();
+		} catch (IOException | RuntimeException e) {
+			abort();
+			throw e;
+		}
+	}
+
+	/**
+	 * Reads and stores the body asynchronously. The request must be in async mode.
+	 *
+	 * @param in the request input stream
+	 * @return a future completed with the uploaded files and form fields
+	 */
+	CompletableFuture<UploadResult> readAsync(ServletInputStream in) {
+		var future = new CompletableFuture<UploadResult>();
+		in.setReadListener(new ReadListener() {
+			@Override
+			public void onDataAvailable() throws IOException {
+				try {
+					while (!future.isDone() && in.isReady() && !in.isFinished()) {
+						var n = in.read(buffer);
+						if (n > 0) {
+							feed(n);
+						}
+					}
+				} catch (Throwable t) {
+					onError(t);
+				}
+			}
+
+			@Override
+			public void onAllDataRead() {
+				try {
+					if (!future.isDone()) {
+						future.complete(finish());
+					}
+				} catch (Throwable t) {
+					onError(t);
+				}
+			}
+
+			@Override
+			public void onError(Throwable t) {
+				if (!future.isDone()) {
+					abort();
+					future.completeExceptionally(t);
+				}
+			}
+		});
+		return future;
+	}
+
+	private void feed(int n) throws IOException {
+		requestSize += n;
+		if (requestSize > maxRequestSize) {
+			throw new PayloadTooLargeException("Request exceeds the maximum size of " + maxRequestSize + " bytes");
+		}
+		parser.feed(buffer, 0, n);
+	}
+
+	/**
+	 * Completes the files once the whole body has been received, so a
+	 * request that fails halfway never replaces any file.
+	 */
+	private UploadResult finish() throws IOException {
+		if (!parser.isComplete()) {
+			throw new BadRequestException("Incomplete multipart body");
+		}
+		while (completed < files.size()) {
+			var uploaded = files.get(completed);
+			// counted first, a sink that failed to complete a file still owns it
+			completed++;
+			sink.complete(uploaded);
+		}
+		return new UploadResult(files, fields);
+	}
+
+	private void abort() {
+		if (channel != null) {
+			try {
+				channel.close();
+			} catch (IOException e) {
+				// discarded anyway
+			}
+			files.add(file);
+			channel = null;
+		}
+		// completed files are in place already, possibly over a previous version
+		var discarded = files.subList(completed, files.size());
+		for (var uploaded : discarded) {
+			sink.abort(uploaded);
+		}
+		LoggerFactory.getLogger(BeerFileUtils.class).debug("Upload aborted, discarded " + discarded.size() + " files");
+	}
+
+	@Override
+	public void partStart(Map<String, String> headers) throws IOException {
+		var disposition = headers.get("content-disposition");
+		var parameters = disposition != null ? BeerMultipartParser.parameters(disposition) : Map.<String, String>of();
+		var name = parameters.get("name");
+		var fileName = parameters.get("filename");
+
+		if (fileName == null) {
+			fieldName = name;
+			field = new ByteArrayOutputStream();
+			return;
+		}
+		if (fileName.isBlank()) {
+			skipping = true;
+			return;
+		}
+
+		file = new UploadedFile(name, BeerFileUtils.sanitizeFileName(fileName), headers.get("content-type"));
+		digest = sha256();
+		channel = sink.open(file);
+	}
+
+	@Override
+	public void partData(ByteBuffer data) throws IOException {
+		if (skipping) {
+			return;
+		}
+		if (channel == null) {
+			if (field.size() + data.remaining() > MAX_FIELD_SIZE) {
+				throw new PayloadTooLargeException("Form field exceeds the maximum size of " + MAX_FIELD_SIZE + " bytes");
+			}
+			field.write(data.array(), data.arrayOffset() + data.position(), data.remaining());
+			return;
+		}
+
+		var size = file.getSize() + data.remaining();
+		if (size > maxFileSize) {
+			throw new PayloadTooLargeException("File exceeds the maximum size of " + maxFileSize + " bytes");
+		}
+		file.setSize(size);
+		digest.update(data.duplicate());
+		while (data.hasRemaining()) {
+			channel.write(data);
+		}
+	}
+
+	@Override
+	public void partEnd() throws IOException {
+		if (skipping) {
+			skipping = false;
+			return;
+		}
+		if (channel == null) {
+			if (fieldName != null) {
+				fields.put(fieldName, field.toString(StandardCharsets.UTF_8));
+			}
+			field = null;
+			return;
+		}
+
+		channel.close();
+		channel = null;
+		file.setSha256(Hex.encodeHexString(digest.digest()));
+		files.add(file);
+	}
+
+	private static MessageDigest sha256() {
+		try {
+			return MessageDigest.getInstance("SHA-256");
+		} catch (NoSuchAlgorithmException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+}
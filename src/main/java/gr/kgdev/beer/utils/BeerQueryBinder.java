@@ -0,0 +1,370 @@
+package gr.kgdev.beer.utils;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Array;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.function.Function;
+
+import com.google.gson.FieldNamingPolicy;
+import com.google.gson.FieldNamingStrategy;
+import com.google.gson.annotations.SerializedName;
+
+import gr.kgdev.beer.model.exceptions.BadRequestException;
+
+/**
+ * Binds query parameters straight onto the fields of a class.
+ * <p>
+ * A binder is built once per class: its fields are bound to
+ * {@link MethodHandle} setters, or to the canonical constructor of a
+ * record, and each gets a converter from the parameter strings to its type.
+ * Supported types are strings, primitives and their wrappers,
+ * {@link BigDecimal}, {@link BigInteger}, {@link UUID}, enums, and arrays,
+ * lists and sets of these. As in JSON, parameters are matched by
+ * {@link SerializedName} or by field name translated by the field naming
+ * strategy of the {@link BeerGsonCodec} in use, and static and transient
+ * fields are skipped. With another codec nothing is bound, the JSON codec
+ * maps the parameters.
+ *
+ * <p>
+ * Parameters without a matching field are ignored, an empty value leaves a
+ * non-string field unset, and a value that does not convert fails with a
+ * {@link BadRequestException} naming the parameter. Classes with fields of
+ * other types, or without a no-argument constructor, are not bindable and
+ * are left to the JSON codec.
+ */
+final class BeerQueryBinder {
+
+	private static final MethodType SETTER = MethodType.methodType(void.class, Object.class, Object.class);
+
+	// the binders of the codec in use, null if it is not a BeerGsonCodec
+	private static volatile Binders binders = new Binders(FieldNamingPolicy.IDENTITY);
+
+	private static final BeerQueryBinder UNBINDABLE = new BeerQueryBinder();
+
+	private final Map<String, Property> properties = new HashMap<>();
+	private final Property[] components;
+	private final MethodHandle constructor;
+
+	private BeerQueryBinder() {
+		this.components = null;
+		this.constructor = null;
+	}
+
+	private BeerQueryBinder(Class<?> type, FieldNamingStrategy naming) throws ReflectiveOperationException {
+		if (type.isInterface() || type.isArray() || type.isEnum() || Modifier.isAbstract(type.getModifiers())
+				|| (type.isMemberClass() && !Modifier.isStatic(type.getModifiers()))) {
+			throw new UnsupportedOperationException(type.getName());
+		}
+		var lookup = MethodHandles.privateLookupIn(type, MethodHandles.lookup());
+
+		if (type.isRecord()) {
+			var recordComponents = type.getRecordComponents();
+			var types = new Class<?>[recordComponents.length];
+			components = new Property[recordComponents.length];
+			for (var i = 0; i < recordComponents.length; i++) {
+				var field = type.getDeclaredField(recordComponents[i].getName());
+				types[i] = field.getType();
+				var name = name(field, naming);
+				components[i] = new Property(name, field.getType(), converter(field.getGenericType(), description(name)), null, i);
+				index(field, components[i]);
+			}
+			constructor = lookup.findConstructor(type, MethodType.methodType(void.class, types))
+					.asSpreader(Object[].class, types.length)
+					.asType(MethodType.methodType(Object.class, Object[].class));
+			return;
+		}
+
+		components = null;
+		constructor = lookup.findConstructor(type, MethodType.methodType(void.class))
+				.asType(MethodType.methodType(Object.class));
+		for (var c = type; c != null && c != Object.class; c = c.getSuperclass()) {
+			var fieldLookup = MethodHandles.privateLookupIn(c, MethodHandles.lookup());
+			for (var field : c.getDeclaredFields()) {
+				if (Modifier.isStatic(field.getModifiers()) || Modifier.isTransient(field.getModifiers()) || field.isSynthetic()) {
+					continue;
+				}
+				field.setAccessible(true);
+				var setter = fieldLookup.unreflectSetter(field).asType(SETTER);
+				var name = name(field, naming);
+				index(field, new Property(name, field.getType(), converter(field.getGenericType(), description(name)), setter, -1));
+			}
+		}
+	}
+
+	/**
+	 * Binds query parameters to a new instance of a class.
+	 *
+	 * @param <T> the target type
+	 * @param parameters the parameters, as returned by {@code getParameterMap()}
+	 * @param type the target class
+	 * @return the bound instance, or {@code null} if the class is not bindable
+	 * @throws BadRequestException if a parameter value does not convert to its field
+	 */
+	@SuppressWarnings("unchecked")
+	static <T> T bind(Map<String, String[]> parameters, Class<T> type) {
+		var current = binders;
+		if (current == null) {
+			return null;
+		}
+		var binder = current.get(type);
+		if (binder == UNBINDABLE) {
+			return null;
+		}
+		try {
+			return (T) binder.bind(parameters);
+		} catch (RuntimeException e) {
+			throw e;
+		} catch (Throwable e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	private Object bind(Map<String, String[]> parameters) throws Throwable {
+		var args = components != null ? new Object[components.length] : null;
+		var instance = components == null ? constructor.invokeExact() : null;
+
+		for (var parameter : parameters.entrySet()) {
+			var property = properties.get(parameter.getKey());
+			if (property == null) {
+				continue;
+			}
+			var value = property.converter.apply(parameter.getValue());
+			if (value == null) {
+				continue;
+			}
+			if (args != null) {
+				args[property.index] = value;
+			} else {
+				property.setter.invokeExact(instance, value);
+			}
+		}
+
+		if (args == null) {
+			return instance;
+		}
+		for (var component : components) {
+			if (args[component.index] == null && component.type.isPrimitive()) {
+				args[component.index] = Array.get(Array.newInstance(component.type, 1), 0);
+			}
+		}
+		return constructor.invokeExact(args);
+	}
+
+	private void index(Field field, Property property) {
+		var names = new ArrayList<String>();
+		names.add(property.name);
+		var serializedName = field.getAnnotation(SerializedName.class);
+		if (serializedName != null) {
+			names.addAll(List.of(serializedName.alternate()));
+		}
+		for (var name : names) {
+			// as in JSON, a name bound twice is ambiguous
+			if (properties.putIfAbsent(name, property) != null) {
+				throw new IllegalArgumentException("Duplicate parameter name " + name);
+			}
+		}
+	}
+
+	private static String name(Field field, FieldNamingStrategy naming) {
+		var serializedName = field.getAnnotation(SerializedName.class);
+		return serializedName != null ? serializedName.value() : naming.translateName(field);
+	}
+
+	/**
+	 * Names fields as the given codec does, building binders anew.
+	 *
+	 * @param codec the codec in use
+	 */
+	static void useNamingOf(BeerJsonCodec codec) {
+		binders = codec instanceof BeerGsonCodec gsonCodec ? new Binders(gsonCodec.getGson().fieldNamingStrategy()) : null;
+	}
+
+	private static final class Binders extends ClassValue<BeerQueryBinder> {
+
+		private final FieldNamingStrategy naming;
+
+		private Binders(FieldNamingStrategy naming) {
+			this.naming = naming;
+		}
+
+		@Override
+		protected BeerQueryBinder computeValue(Class<?> type) {
+			try {
+				return new BeerQueryBinder(type, naming);
+			} catch (ReflectiveOperationException | UnsupportedOperationException | IllegalArgumentException
+					| SecurityException e) {
+				return UNBINDABLE;
+			}
+		}
+	}
+
+	private static String description(String name) {
+		return "query parameter '" + name + "'";
+	}
+
+	/**
+	 * Returns the converter from parameter values to a type, failing with a
+	 * {@link BadRequestException} naming the described parameter.
+	 *
+	 * @param type the target type
+	 * @param description the parameter, as named in error messages
+	 * @return the converter, returning {@code null} for an empty non-string value
+	 * @throws UnsupportedOperationException if the type is not supported
+	 */
+	static Function<String[], Object> converter(Type type, String description) {
+		var converter = converter(type);
+		return values -> {
+			try {
+				return converter.apply(values);
+			} catch (IllegalArgumentException e) {
+				var reason = e instanceof NumberFormatException ? "expected a number" : e.getMessage();
+				throw new BadRequestException("Invalid value for " + description + ": " + reason);
+			}
+		};
+	}
+
+	private static Function<String[], Object> converter(Type type) {
+		if (type instanceof Class<?> raw && raw.isArray()) {
+			var component = raw.getComponentType();
+			var scalar = scalar(component);
+			return values -> {
+				var array = Array.newInstance(component, values.length);
+				for (var i = 0; i < values.length; i++) {
+					Array.set(array, i, scalar.apply(values[i]));
+				}
+				return array;
+			};
+		}
+		if (type instanceof ParameterizedType parameterized && parameterized.getRawType() instanceof Class<?> raw
+				&& (raw == List.class || raw == Collection.class || raw == Set.class)
+				&& parameterized.getActualTypeArguments()[0] instanceof Class<?> element) {
+			var scalar = scalar(element);
+			var set = raw == Set.class;
+			return values -> {
+				Collection<Object> collection = set ? new LinkedHashSet<>() : new ArrayList<>(values.length);
+				for (var value : values) {
+					collection.add(scalar.apply(value));
+				}
+				return collection;
+			};
+		}
+		if (type instanceof Class<?> raw) {
+			var scalar = scalar(raw);
+			var string = raw == String.class;
+			return values -> {
+				if (values.length != 1) {
+					throw new IllegalArgumentException("expected a single value");
+				}
+				return values[0].isEmpty() && !string ? null : scalar.apply(values[0]);
+			};
+		}
+		throw new UnsupportedOperationException(type.getTypeName());
+	}
+
+	/**
+	 * Returns the converter from a single parameter value to a type.
+	 */
+	@SuppressWarnings({ "unchecked", "rawtypes" })
+	private static Function<String, Object> scalar(Class<?> type) {
+		if (type == String.class || type == Object.class) {
+			return value -> value;
+		}
+		if (type == int.class || type == Integer.class) {
+			return value -> Integer.valueOf(value.trim());
+		}
+		if (type == long.class || type == Long.class) {
+			return value -> Long.valueOf(value.trim());
+		}
+		if (type == double.class || type == Double.class) {
+			return value -> Double.valueOf(value.trim());
+		}
+		if (type == float.class || type == Float.class) {
+			return value -> Float.valueOf(value.trim());
+		}
+		if (type == short.class || type == Short.class) {
+			return value -> Short.valueOf(value.trim());
+		}
+		if (type == byte.class || type == Byte.class) {
+			return value -> Byte.valueOf(value.trim());
+		}
+		if (type == boolean.class || type == Boolean.class) {
+			return value -> {
+				if (value.equalsIgnoreCase("true")) {
+					return Boolean.TRUE;
+				}
+				if (value.equalsIgnoreCase("false")) {
+					return Boolean.FALSE;
+				}
+				throw new IllegalArgumentException("expected true or false");
+			};
+		}
+		if (type == char.class || type == Character.class) {
+			return value -> {
+				if (value.length() != 1) {
+					throw new IllegalArgumentException("expected a single character");
+				}
+				return value.charAt(0);
+			};
+		}
+		if (type == BigDecimal.class) {
+			return value -> new BigDecimal(value.trim());
+		}
+		if (type == BigInteger.class) {
+			return value -> new BigInteger(value.trim());
+		}
+		if (type == UUID.class) {
+			return value -> UUID.fromString(value.trim());
+		}
+		if (type.isEnum()) {
+			var constants = new HashMap<String, Object>();
+			for (var constant : type.getEnumConstants()) {
+				var name = ((Enum) constant).name();
+				try {
+					var serializedName = type.getField(name).getAnnotation(SerializedName.class);
+					constants.put(serializedName != null ? serializedName.value() : name, constant);
+				} catch (NoSuchFieldException e) {
+					constants.put(name, constant);
+				}
+			}
+			return value -> {
+				var constant = constants.get(value);
+				if (constant == null) {
+					throw new IllegalArgumentException("expected one of " + constants.keySet());
+				}
+				return constant;
+			};
+		}
+		throw new UnsupportedOperationException(type.getName());
+	}
+
+	private static final class Property {
+		private final String name;
+		private final Class<?> type;
+		private final Function<String[], Object> converter;
+		private final MethodHandle setter;
+		private final int index;
+
+		private Property(String name, Class<?> type, Function<String[], Object> converter, MethodHandle setter, int index) {
+			this.name = name;
+			this.type = type;
+			this.converter = converter;
+			this.setter = setter;
+			this.index = index;
+		}
+	}
+}
@@ -0,0 +1,96 @@
+package gr.kgdev.beer.utils;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+
+import gr.kgdev.beer.model.UploadedFile;
+
+/**
+ * Destination of the file parts of a streaming multipart upload.
+ * <p>
+ * {@link #open(UploadedFile)} is called when a file part starts, and the
+ * returned channel receives the part content as it is parsed from the
+ * request. Once the part ends the channel is closed. When the whole request
+ * has been received, {@link #complete(UploadedFile)} is called for every
+ * file, with its final size and checksum. If the upload fails before,
+ * {@link #abort(UploadedFile)} is called for every file instead, so a
+ * failed request leaves no file behind. Completed files are never aborted.
+ */
+public interface BeerUploadSink {
+
+	/**
+	 * Opens the destination of a file part.
+	 *
+	 * @param file the part being uploaded, its location may be set by the sink
+	 * @return the channel the part content is written to
+	 * @throws IOException if the destination cannot be opened
+	 */
+	WritableByteChannel open(UploadedFile file) throws IOException;
+
+	/**
+	 * Called once the whole request has been received, for every file part,
+	 * whose channel is closed by then.
+	 *
+	 * @param file the uploaded file, with size and checksum set
+	 * @throws IOException if the file cannot be finalized
+	 */
+	default void complete(UploadedFile file) throws IOException {
+	}
+
+	/**
+	 * Called when the upload fails, to discard a file written by it that was
+	 * not completed.
+	 *
+	 * @param file the file to discard
+	 */
+	default void abort(UploadedFile file) {
+	}
+
+	/**
+	 * Returns a sink storing each file part as a file of the same name in the
+	 * given directory, replacing existing files. Parts are written to
+	 * temporary files and moved into place once the whole request has been
+	 * received, so listings and downloads never see a partial file, and a
+	 * failed request leaves the existing files untouched.
+	 *
+	 * @param uploadLocation the directory where files are stored
+	 * @return the directory sink
+	 */
+	static BeerUploadSink directory(String uploadLocation) {
+		return new BeerUploadSink() {
+			@Override
+			public WritableByteChannel open(UploadedFile file) throws IOException {
+				var temp = Files.createTempFile(BeerFileUtils.uploadTempDirectory(Paths.get(uploadLocation)), "part-", ".upload");
+				file.setLocation(temp.toString());
+				return FileChannel.open(temp, StandardOpenOption.WRITE);
+			}
+
+			@Override
+			public void complete(UploadedFile file) throws IOException {
+				var path = Paths.get(uploadLocation).resolve(file.getFileName());
+				Files.move(Paths.get(file.getLocation()), path, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+				file.setLocation(path.toString());
+				BeerFileUtils.getMetadataCache().invalidate(path);
+			}
+
+			@Override
+			public void abort(UploadedFile file) {
+				if (file.getLocation() == null) {
+					return;
+				}
+				var path = Paths.get(file.getLocation());
+				try {
+					Files.deleteIfExists(path);
+				} catch (IOException e) {
+					// best effort, the request already failed
+				}
+				BeerFileUtils.getMetadataCache().invalidate(path);
+			}
+		};
+	}
+}
@@ -1,19 +1,28 @@
 package gr.kgdev.beer.utils;
 
 import java.io.IOException;
-import java.nio.charset.StandardCharsets;
+import java.io.StringReader;
+import java.io.Writer;
 import java.util.Base64;
+import java.util.Collection;
 import java.util.HashMap;
+import java.util.Iterator;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Function;
+import java.util.stream.Stream;
 
-import org.apache.commons.io.IOUtils;
-import org.apache.commons.lang3.StringUtils;
-
-import com.google.gson.Gson;
+import com.google.gson.JsonParseException;
 import com.google.gson.JsonParser;
+import com.google.gson.JsonSyntaxException;
+import com.google.gson.Strictness;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
 
 import gr.kgdev.beer.core.Beer;
 import gr.kgdev.beer.model.Credentials;
+import gr.kgdev.beer.model.RawJson;
 import gr.kgdev.beer.model.exceptions.BadRequestException;
+import gr.kgdev.beer.model.exceptions.PayloadTooLargeException;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 
@@ -30,56 +39,104 @@ import jakarta.servlet.http.HttpServletResponse;
  */
 public class BeerUtils {
 
-	private static final Gson GSON = new Gson();
+	private static volatile BeerJsonCodec codec = new BeerGsonCodec();
+	private static volatile boolean jsonValidationEnabled = false;
+
+	private static volatile long maxBodySize = 10 * 1024 * 1024;
+
+	/**
+     * Sets the maximum size of request bodies read by {@link #parseReqBody},
+     * {@link #parseBody} and {@link #parseBodyAsync}. Larger bodies are
+     * rejected with a {@link PayloadTooLargeException}, before they are read
+     * if their length is declared. 10 MB by default.
+     *
+     * @param maxSize the maximum size in bytes, {@code null} or not positive for no limit
+     */
+	public static void setMaxBodySize(Long maxSize) {
+		maxBodySize = maxSize != null && maxSize > 0 ? maxSize : Long.MAX_VALUE;
+	}
 
 	/**
-     * Reads and returns the raw request body as a string.
+     * Reads and returns the raw request body as a string, decoded in the
+     * charset of the request, UTF-8 if it declares none.
      *
      * @param req the {@link HttpServletRequest} to read from
      * @return the request body as a string
      * @throws IOException if reading the input stream fails
+     * @throws PayloadTooLargeException if the body exceeds the maximum body size
      */
 	public static String parseReqBody(HttpServletRequest req) throws IOException {
-        var bodyAsBytes = IOUtils.toByteArray(req.getInputStream());
-        var body = StringUtils.toEncodedString(bodyAsBytes,  StandardCharsets.UTF_8);
-        return body;
+		return BeerBodyReader.read(req, maxBodySize);
 	}
 	
 	/**
      * Parses the HTTP request body into an instance of the given class.
      * <p>
-     * The request body is expected to be in JSON format.
+     * The request body is expected to be in JSON format. It is decoded while
+     * it is read from the request, in the charset of the request.
      *
      * @param <T> the target type
      * @param req the {@link HttpServletRequest} containing the body
      * @param clazz the class to deserialize the body into
      * @return an instance of the requested type
      * @throws BadRequestException if parsing or deserialization fails
+     * @throws PayloadTooLargeException if the body exceeds the maximum body size
      */
 	@SuppressWarnings("unchecked")
 	public static <T> T parseBody(HttpServletRequest req, Class<?> clazz) throws BadRequestException {
-		try {
-			return (T) GSON.fromJson(BeerUtils.parseReqBody(req), clazz);
-		} catch (Exception e) {
-			throw new BadRequestException("Could not parse request's body");
-		}
+		return (T) BeerBodyReader.decode(req, clazz, maxBodySize);
+	}
+
+	/**
+     * Parses the HTTP request body into an instance of the given class,
+     * reading it asynchronously.
+     * <p>
+     * The request is put in async mode and the body is read whenever data
+     * arrives, so no request thread waits for a slow client. Route handlers
+     * should return the resulting future, or one derived from it, the
+     * response is written once it completes. A body not received within the
+     * async timeout of the container fails with a 400. If the request does not support
+     * async processing, the body is read blocking and an already completed
+     * future is returned.
+     *
+     * @param <T> the target type
+     * @param req the {@link HttpServletRequest} containing the body
+     * @param clazz the class to deserialize the body into
+     * @return a future completed with the parsed body, or failed with a
+     *         {@link BadRequestException} or {@link PayloadTooLargeException}
+     * @throws IOException if the request cannot be read
+     */
+	public static <T> CompletableFuture<T> parseBodyAsync(HttpServletRequest req, Class<T> clazz) throws IOException {
+		return BeerBodyReader.decodeAsync(req, clazz, maxBodySize);
 	}
 	
 	/**
      * Parses HTTP query parameters into an instance of the given class.
      * <p>
-     * Single-value parameters are mapped as strings, while multi-value
-     * parameters are mapped as arrays.
+     * Parameters are bound straight onto the fields of the class, converted
+     * to strings, numbers, booleans, enums, UUIDs, or arrays and collections
+     * of these; multi-value parameters fill array and collection fields.
+     * The binding is prepared once per class, with fields named as the
+     * {@link BeerGsonCodec} in use names them. Classes with other field
+     * types, and any class while another codec is in use, are bound through
+     * the JSON codec, single-value parameters mapped as strings and
+     * multi-value ones as arrays.
      *
      * @param <T> the target type
      * @param req the {@link HttpServletRequest} containing query parameters
      * @param clazz the class to deserialize parameters into
      * @return an instance of the requested type
-     * @throws BadRequestException if parsing or deserialization fails
+     * @throws BadRequestException if parsing or deserialization fails, naming
+     *                             the parameter whose value does not convert
      */
 	@SuppressWarnings("unchecked")
 	public static <T> T parseQueryParams(HttpServletRequest req, Class<?> clazz) throws BadRequestException {
 		try {
+			var bound = BeerQueryBinder.bind(req.getParameterMap(), clazz);
+			if (bound != null) {
+				return (T) bound;
+			}
+
 			var queriesMap = new HashMap<>();
 			
 			req.getParameterMap().entrySet().forEach( e -> {
@@ -91,12 +148,37 @@ public class BeerUtils {
 					queriesMap.put(e.getKey(), value);
 				}
 			});
-			return (T) GSON.fromJson(GSON.toJson(queriesMap), clazz);
+			return (T) codec.fromJson(codec.toJson(queriesMap), clazz);
+		} catch (BadRequestException e) {
+			throw e;
 		} catch (Exception e) {
 			throw new BadRequestException("Could not parse request's query params");
 		}
 	}
 	
+	/**
+     * Returns a converter from parameter values to a type, the conversion
+     * {@link #parseQueryParams} applies to each field. Strings, primitives
+     * and their wrappers, {@code BigDecimal}, {@code BigInteger},
+     * {@code UUID} and enums take a single value, arrays of these any
+     * number of values.
+     *
+     * @param <T> the target type
+     * @param type the target type
+     * @param description the parameter as named in error messages, e.g. {@code header 'X-Page'}
+     * @return the converter, returning {@code null} for an empty value of a non-string type
+     *         and failing with a {@link BadRequestException} if a value does not convert
+     * @throws IllegalArgumentException if the type is not supported
+     */
+	@SuppressWarnings("unchecked")
+	public static <T> Function<String[], T> parameterConverter(Class<T> type, String description) {
+		try {
+			return (Function<String[], T>) BeerQueryBinder.converter(type, description);
+		} catch (UnsupportedOperationException e) {
+			throw new IllegalArgumentException("Unsupported type " + type.getName() + " of " + description);
+		}
+	}
+
 	/**
      * Retrieves a path parameter previously stored as a request attribute.
      *
@@ -195,28 +277,138 @@ public class BeerUtils {
 		return null;
 	}
 	
+	/**
+     * Deserializes a JSON string into an instance of the given class.
+     *
+     * @param <T> the target type
+     * @param json the JSON text
+     * @param clazz the class to deserialize into
+     * @return an instance of the requested type
+     */
+	public static <T> T fromJson(String json, Class<T> clazz) {
+		return codec.fromJson(json, clazz);
+	}
+
+	/**
+     * Sets the JSON codec used wherever Beer encodes or decodes JSON.
+     *
+     * @param jsonCodec the codec, {@code null} restores the default {@link BeerGsonCodec}
+     */
+	public static void setJsonCodec(BeerJsonCodec jsonCodec) {
+		codec = jsonCodec != null ? jsonCodec : new BeerGsonCodec();
+		BeerQueryBinder.useNamingOf(codec);
+	}
+
+	/**
+     * Returns the JSON codec in use.
+     *
+     * @return the JSON codec
+     */
+	public static BeerJsonCodec getJsonCodec() {
+		return codec;
+	}
+
+	/**
+     * Sets whether strings passed to {@link #json(Object)} that look like JSON
+     * are parsed and re-serialized, which validates and normalizes them at
+     * the cost of a full parse. Malformed ones fail with an
+     * {@link IllegalArgumentException}. Off by default, so pre-rendered JSON
+     * strings are passed through as they are.
+     *
+     * @param enabled {@code true} to validate and normalize JSON strings
+     */
+	public static void setJsonValidationEnabled(boolean enabled) {
+		jsonValidationEnabled = enabled;
+	}
+
 	/**
      * Converts an object to its JSON string representation.
      * <p>
      * Supports collections, maps, raw JSON strings, and arbitrary objects.
+     * Strings and {@link RawJson} are returned as they are, unless
+     * {@link #setJsonValidationEnabled(boolean) JSON validation} is enabled.
      *
      * @param object the object to convert
      * @return a JSON-formatted string
+     * @throws IllegalArgumentException if validation is enabled and a string
+     *                                  starting like JSON is not valid JSON
      */
 	public static String json(Object object) {
+		if (object instanceof RawJson raw) {
+			return raw.toString();
+		}
 	    if (object instanceof String str) {
+	        if (!jsonValidationEnabled) {
+	            return str;
+	        }
 	        str = str.trim();
 	        if (str.startsWith("{") || str.startsWith("[")) {
 	            try {
-	                // validate and normalize json
-	                return GSON.toJson(JsonParser.parseString(str));
-	            } catch (Exception e) {
-	                return str; 
+	                // validate strictly and normalize json
+	                var reader = new JsonReader(new StringReader(str));
+	                reader.setStrictness(Strictness.STRICT);
+	                var element = JsonParser.parseReader(reader);
+	                if (reader.peek() != JsonToken.END_DOCUMENT) {
+	                    throw new JsonSyntaxException("Unexpected content after the JSON document");
+	                }
+	                return element.toString();
+	            } catch (JsonParseException | IOException e) {
+	                throw new IllegalArgumentException("Malformed JSON string: " + e.getMessage(), e);
 	            }
 	        }
 	        return str;
 	    }
 	    
-	    return GSON.toJson(object);
+	    return codec.toJson(object);
+	}
+
+	/**
+     * Serializes an object as JSON straight into a writer, without building
+     * the whole document as a string first.
+     * <p>
+     * A {@link Stream}, {@link Iterator} or {@link Iterable} is written as a
+     * JSON array one element at a time, so a lazily produced result, e.g. a
+     * database cursor, is never held in memory as a whole. Streams are closed
+     * once written. Everything else is written as {@link #json(Object)} would
+     * serialize it.
+     *
+     * @param object the object to write
+     * @param writer the target writer, e.g. the response writer
+     * @throws IOException if writing fails
+     */
+	public static void writeJson(Object object, Writer writer) throws IOException {
+		if (object instanceof String || object instanceof RawJson) {
+			writer.write(json(object));
+		} else if (object instanceof Stream<?> stream) {
+			try (stream) {
+				writeJsonArray(stream.iterator(), writer);
+			}
+		} else if (object instanceof Iterator<?> iterator) {
+			writeJsonArray(iterator, writer);
+		} else if (object instanceof Iterable<?> iterable && !(object instanceof Collection<?>)) {
+			writeJsonArray(iterable.iterator(), writer);
+		} else {
+			codec.toJson(object, writer);
+		}
+	}
+
+	private static void writeJsonArray(Iterator<?> elements, Writer writer) throws IOException {
+		var json = codec;
+		writer.write('[');
+		var first = true;
+		while (elements.hasNext()) {
+			if (!first) {
+				writer.write(',');
+			}
+			first = false;
+			var element = elements.next();
+			if (element == null) {
+				writer.write("null");
+			} else {
+				json.toJson(element, writer);
+			}
+		}
+		writer.write(']');
+		writer.flush();
 	}
 }